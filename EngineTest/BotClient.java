@@ -0,0 +1,240 @@
+package EngineTest;
+
+import java.io.*;
+import java.net.*;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Cliente sem janela que fala o protocolo do Network (HANDSHAKE, UDP_HELLO, INPUT, SYNC, ACK).
+// Manda INPUT numa taxa fixa e mede o que chega do servidor. Vários rodam na mesma JVM (LoadTest).
+public class BotClient {
+
+    private final int index;
+    private final String host;
+    private final int port;
+    private final double inputsPerSecond;
+    private final Random random;
+
+    private Socket tcpSocket;
+    private PrintWriter out;
+    private BufferedReader in;
+    private DatagramSocket udpSocket;
+    private InetAddress serverAddress;
+    private int clientId = -1;
+    private volatile boolean running = false;
+
+    private final SequenceChannel syncChannel = new SequenceChannel();
+    private double inputAccumulator = 0;
+
+    // --- MÉTRICAS ---
+    private volatile long tcpBytes = 0;
+    private volatile long udpBytes = 0;
+    private volatile long datagrams = 0;
+    private volatile long inputsSent = 0;
+    private volatile long spawnsReceived = 0;
+    private long startNanos, stopNanos;
+
+    // Perda: datagramas recebidos vs. faixa de sequência vista (só a thread UDP mexe)
+    private boolean hasSeq = false;
+    private long firstSeq, highestSeq; // "Desenrolados" (sem wrap-around)
+
+    // INPUT enviado -> SPAWN de volta ("TYPE:X:Y" -> nanoTime do envio)
+    private final Map<String, Long> pendingInputs = new ConcurrentHashMap<>();
+    private final LatencySamples inputToSpawn = new LatencySamples(100_000);
+
+    // Intervalo entre dois SYNC do mesmo corpo (quão "velho" o estado fica no cliente)
+    private final Map<Integer, Long> lastUpdate = new HashMap<>();
+    private final LatencySamples updateInterval = new LatencySamples(1_000_000);
+
+    public BotClient(int index, String host, int port, double inputsPerSecond, long seed) {
+        this.index = index;
+        this.host = host;
+        this.port = port;
+        this.inputsPerSecond = inputsPerSecond;
+        this.random = new Random(seed);
+    }
+
+    public void connect() throws IOException {
+        tcpSocket = new Socket(host, port);
+        tcpSocket.setTcpNoDelay(true);
+        out = new PrintWriter(tcpSocket.getOutputStream(), true);
+        in = new BufferedReader(new InputStreamReader(tcpSocket.getInputStream()));
+
+        String handshake = in.readLine();
+        if (handshake == null || !handshake.startsWith("HANDSHAKE:"))
+            throw new IOException("Bot " + index + ": HANDSHAKE inválido: " + handshake);
+        clientId = Integer.parseInt(handshake.substring("HANDSHAKE:".length()));
+
+        serverAddress = InetAddress.getByName(host);
+        udpSocket = new DatagramSocket();
+        running = true;
+        startNanos = System.nanoTime();
+
+        startTCPListening();
+        startUDPListening();
+
+        // Sem garantia de entrega: manda o HELLO algumas vezes (registrar de novo não faz mal)
+        for (int i = 0; i < 3; i++) {
+            sendUDP("UDP_HELLO:" + clientId);
+        }
+    }
+
+    // Chamado a cada tick (~16ms) pelo LoadTest
+    public void tick(double dt) {
+        if (!running)
+            return;
+
+        inputAccumulator += inputsPerSecond * dt;
+        while (inputAccumulator >= 1) {
+            inputAccumulator -= 1;
+            sendInput();
+        }
+
+        String ack = syncChannel.pollAck();
+        if (ack != null)
+            sendUDP(ack);
+    }
+
+    private void sendInput() {
+        String type = random.nextBoolean() ? "CIRCLE" : "POLY";
+        // Já arredondado em 2 casas, igual ao que volta no SPAWN
+        double x = (100 + random.nextInt(1800)) / 100.0;
+        double y = (500 + random.nextInt(900)) / 100.0;
+
+        pendingInputs.put(key(type, x, y), System.nanoTime());
+        out.println(new NetworkCommand.InputCommand(type, x, y).serialize());
+        inputsSent++;
+    }
+
+    private static String key(String type, double x, double y) {
+        return String.format(Locale.US, "%s:%.2f:%.2f", type, x, y);
+    }
+
+    private void sendUDP(String msg) {
+        try {
+            byte[] data = msg.getBytes();
+            udpSocket.send(new DatagramPacket(data, data.length, serverAddress, port));
+        } catch (IOException e) {
+            if (running)
+                System.err.println("Bot " + index + " UDP: " + e.getMessage());
+        }
+    }
+
+    private void startTCPListening() {
+        Thread t = new Thread(() -> {
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    tcpBytes += line.length() + 1;
+                    if (line.startsWith("SPAWN:"))
+                        onSpawn(line);
+                }
+            } catch (IOException e) {
+                // Socket fechado no stop()
+            }
+        }, "Bot-" + index + "-TCP");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void onSpawn(String line) {
+        spawnsReceived++;
+        NetworkCommand.SpawnCommand spawn = (NetworkCommand.SpawnCommand) NetworkCommand.parse(line);
+        Long sent = pendingInputs.remove(key(spawn.shapeType, spawn.x, spawn.y));
+        if (sent != null)
+            inputToSpawn.add(System.nanoTime() - sent);
+    }
+
+    private void startUDPListening() {
+        Thread t = new Thread(() -> {
+            byte[] buffer = new byte[1500];
+            try {
+                while (running) {
+                    DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                    udpSocket.receive(packet);
+                    udpBytes += packet.getLength();
+                    datagrams++;
+                    onDatagram(new String(packet.getData(), 0, packet.getLength()));
+                }
+            } catch (IOException e) {
+                // Socket fechado no stop()
+            }
+        }, "Bot-" + index + "-UDP");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    private void onDatagram(String datagram) {
+        long now = System.nanoTime();
+        boolean first = true;
+
+        for (String line : datagram.split("\n")) {
+            if (!line.startsWith("SYNC:"))
+                continue;
+
+            NetworkCommand.SyncCommand sync = (NetworkCommand.SyncCommand) NetworkCommand.parse(line);
+            if (first) {
+                trackSequence(sync.seq);
+                syncChannel.receive(sync.seq); // Uma vez por datagrama (ver SequenceChannel)
+                first = false;
+            }
+
+            if (!syncChannel.accept(sync.id, sync.seq))
+                continue;
+
+            Long last = lastUpdate.put(sync.id, now);
+            if (last != null)
+                updateInterval.add(now - last);
+        }
+    }
+
+    private void trackSequence(int seq) {
+        if (!hasSeq) {
+            hasSeq = true;
+            firstSeq = highestSeq = seq;
+            return;
+        }
+
+        int current = (int) (highestSeq % SequenceChannel.SEQ_MODULO);
+        if (SequenceChannel.sequenceGreaterThan(seq, current))
+            highestSeq += SequenceChannel.distance(seq, current);
+    }
+
+    public void stop() {
+        running = false;
+        stopNanos = System.nanoTime();
+        try {
+            tcpSocket.close();
+        } catch (IOException ignored) {
+        }
+        udpSocket.close();
+    }
+
+    // Uma linha JSON com as métricas do bot
+    public String toJson() {
+        double seconds = Math.max(1e-9, ((stopNanos != 0 ? stopNanos : System.nanoTime()) - startNanos) / 1e9);
+        long expected = hasSeq ? highestSeq - firstSeq + 1 : 0;
+        double loss = expected > 0 ? Math.max(0, 1.0 - (double) datagrams / expected) : 0;
+
+        return String.format(Locale.US,
+                "{\"bot\":%d,\"clientId\":%d,\"inputsSent\":%d,\"spawnsReceived\":%d,"
+                        + "\"tcpBytesPerSec\":%.1f,\"udpBytesPerSec\":%.1f,\"datagrams\":%d,"
+                        + "\"expectedDatagrams\":%d,\"packetLoss\":%.4f,\"reordered\":%d,\"staleDropped\":%d,"
+                        + "\"inputToSpawnMs\":%s,\"updateIntervalMs\":%s}",
+                index, clientId, inputsSent, spawnsReceived,
+                tcpBytes / seconds, udpBytes / seconds, datagrams,
+                expected, loss, syncChannel.getReorderedPackets(), syncChannel.getDroppedPackets(),
+                inputToSpawn.toJson(), updateInterval.toJson());
+    }
+
+    public long getTcpBytes() {
+        return tcpBytes;
+    }
+
+    public long getUdpBytes() {
+        return udpBytes;
+    }
+}
@@ -0,0 +1,257 @@
+package EngineTest;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Colisão contínua (CCD) por avanço conservador, para corpo rápido não atravessar parede fina.
+//
+// O step integra as posições sem olhar o caminho: um corpo que anda mais que a própria
+// espessura em um dt pode pular o chão inteiro. Depois da integração (e da correção de
+// posição), cada corpo que andou demais é varrido da pose do início do step até a do fim:
+//
+// - o GJK dá a distância d e a normal n até o obstáculo na pose t;
+// - nada chega mais perto que (deslocamento · n + |giro| * raio externo) por unidade de t,
+//   então dá para avançar t em d / esse limite sem passar do ponto de contato;
+// - repete até d ficar abaixo de TARGET (tempo de impacto) ou t passar de 1 (não bate).
+//
+// No impacto mais cedo o corpo volta para a pose desse t e entra PENETRATION no obstáculo
+// ao longo de n. A velocidade não muda: o contato sai no Manifold do próximo step e o solver
+// faz o quique, como qualquer outro contato (o resto do movimento daquele dt é perdido).
+//
+// Quem é varrido:
+// - corpos com 'bullet', contra estáticos e contra dinâmicos que não são bullet;
+// - qualquer dinâmico que andou mais que Scene.ccdThreshold * o raio interno da forma,
+//   só contra estáticos.
+// Sensores ficam de fora dos dois lados, e pares que o filtro de colisão separa também.
+// Os estáticos candidatos saem da BVH do Scene (só os que tocam a AABB varrida); os
+// outros corpos ficam parados na pose final deles. Candidatos sempre em ordem de índice,
+// sem aleatoriedade: o modo determinístico continua bit a bit.
+class Ccd {
+
+    private static final double TARGET = 0.01; // Distância que conta como impacto
+    private static final double TOLERANCE = 0.0025;
+    private static final double PENETRATION = 0.02; // Menor que o k_slop do Manifold
+    private static final int MAX_ITERATIONS = 20;
+
+    // Pose de cada corpo no início do step (mesmo índice de Scene.bodies)
+    private double[] startX = new double[64], startY = new double[64];
+    private float[] startAngle = new float[64];
+
+    // Última varredura
+    private final Vector2 normal = new Vector2();
+    private double hitDistance;
+    private final Vector2 hitNormal = new Vector2();
+    private int[] candidates = new int[16];
+
+    private long hits;
+
+    // Impactos encontrados desde o início
+    long getHits() {
+        return hits;
+    }
+
+    // Início do step: guarda as poses dos dinâmicos (estático não anda)
+    void begin(Scene scene) {
+        List<RigidBody> bodies = scene.bodies;
+        int n = bodies.size();
+        if (startX.length < n) {
+            int cap = Math.max(n, startX.length * 2);
+            startX = new double[cap];
+            startY = new double[cap];
+            startAngle = new float[cap];
+        }
+        for (int d = 0; d < scene.dynamicCount; d++) {
+            int i = scene.dynamicIndex[d];
+            RigidBody b = bodies.get(i);
+            startX[i] = b.position.x;
+            startY[i] = b.position.y;
+            startAngle[i] = b.angle;
+        }
+    }
+
+    // Fim do step: varre quem andou demais (Scene.ccdThreshold). Devolve quantos bateram.
+    int solve(Scene scene) {
+        List<RigidBody> bodies = scene.bodies;
+        double threshold = scene.ccdThreshold;
+        int count = 0;
+        for (int d = 0; d < scene.dynamicCount; d++) {
+            int i = scene.dynamicIndex[d];
+            RigidBody b = bodies.get(i);
+            if (b.sensor)
+                continue;
+
+            double dx = b.position.x - startX[i];
+            double dy = b.position.y - startY[i];
+            if (!b.bullet) {
+                if (threshold <= 0)
+                    continue;
+                double limit = threshold * innerRadius(b.shape);
+                if (dx * dx + dy * dy <= limit * limit)
+                    continue;
+            } else if (dx == 0 && dy == 0 && b.angle == startAngle[i]) {
+                continue;
+            }
+
+            if (sweep(scene, b, i))
+                count++;
+        }
+        hits += count;
+        return count;
+    }
+
+    private boolean sweep(Scene scene, RigidBody b, int index) {
+        List<RigidBody> bodies = scene.bodies;
+        double x0 = startX[index], y0 = startY[index];
+        float a0 = startAngle[index];
+        double x1 = b.position.x, y1 = b.position.y;
+        float a1 = b.angle;
+        double dx = x1 - x0, dy = y1 - y0;
+        double turn = Math.abs((double) a1 - a0) * outerRadius(b.shape);
+
+        // AABB varrida: a do início unida à do fim
+        Shape shape = b.shape;
+        setPose(b, x0, y0, a0);
+        double minX = shape.minX, minY = shape.minY, maxX = shape.maxX, maxY = shape.maxY;
+        setPose(b, x1, y1, a1);
+        minX = Math.min(minX, shape.minX);
+        minY = Math.min(minY, shape.minY);
+        maxX = Math.max(maxX, shape.maxX);
+        maxY = Math.max(maxY, shape.maxY);
+
+        // Candidatos: estáticos pela BVH; bullet também contra os dinâmicos que não são bullet
+        int n = scene.queryStatic(minX, minY, maxX, maxY);
+        if (candidates.length < n)
+            candidates = new int[Math.max(n, candidates.length * 2)];
+        int count = 0;
+        for (int h = 0; h < n; h++) {
+            int j = scene.staticHit(h);
+            RigidBody o = bodies.get(j);
+            if (!o.sensor && RigidBody.shouldCollide(b, o))
+                candidates[count++] = j;
+        }
+        n = count;
+
+        if (b.bullet) {
+            for (int d = 0; d < scene.dynamicCount; d++) {
+                int j = scene.dynamicIndex[d];
+                RigidBody o = bodies.get(j);
+                if (o.bullet || o.sensor || !RigidBody.shouldCollide(b, o))
+                    continue;
+
+                Shape other = o.shape;
+                other.updateWorld();
+                if (other.minX > maxX || other.maxX < minX || other.minY > maxY || other.maxY < minY)
+                    continue;
+                if (n == candidates.length)
+                    candidates = Arrays.copyOf(candidates, n * 2);
+                candidates[n++] = j;
+            }
+        }
+
+        // Em ordem de índice: no empate de t ganha o primeiro da lista, como sempre
+        Arrays.sort(candidates, 0, n);
+
+        double best = 1;
+        boolean hit = false;
+        for (int c = 0; c < n; c++) {
+            RigidBody o = bodies.get(candidates[c]);
+            double t = timeOfImpact(b, o, x0, y0, a0, dx, dy, a1 - a0, turn, best);
+            if (t >= 0) {
+                best = t;
+                hit = true;
+            }
+        }
+
+        if (!hit) {
+            setPose(b, x1, y1, a1);
+            return false;
+        }
+
+        // Pose do impacto, entrando PENETRATION no obstáculo para o contato existir
+        double push = hitDistance + PENETRATION;
+        setPose(b, x0 + dx * best + hitNormal.x * push, y0 + dy * best + hitNormal.y * push,
+                (float) (a0 + (a1 - a0) * best));
+        return true;
+    }
+
+    // Menor t em [0, tMax) em que b chega a TARGET de o, ou -1
+    private double timeOfImpact(RigidBody b, RigidBody o, double x0, double y0, float a0,
+            double dx, double dy, float da, double turn, double tMax) {
+        double t = 0;
+        setPose(b, x0, y0, a0);
+        double d = Gjk.distance(b.shape, o.shape, normal);
+
+        // Já se tocando no início: é contato normal, o solver resolve
+        if (d <= 0)
+            return -1;
+
+        for (int iter = 0;; iter++) {
+            // O mais rápido que a distância pode cair por unidade de t
+            double bound = dx * normal.x + dy * normal.y + turn;
+
+            if (d <= TARGET + TOLERANCE || iter == MAX_ITERATIONS) {
+                // Perto o bastante; só conta se ainda está se aproximando
+                if (bound <= 0 || t >= tMax)
+                    return -1;
+                hitDistance = d;
+                hitNormal.set(normal);
+                return t;
+            }
+
+            if (bound <= 0)
+                return -1; // Se afastando
+            t += (d - TARGET) / bound;
+            if (t >= tMax)
+                return -1;
+
+            double nx = normal.x, ny = normal.y;
+            setPose(b, x0 + dx * t, y0 + dy * t, (float) (a0 + da * t));
+            d = Gjk.distance(b.shape, o.shape, normal);
+            if (d <= 0) {
+                // Não deveria acontecer (o avanço é conservador): impacto aqui, com a
+                // normal da iteração anterior
+                d = 0;
+                normal.set(nx, ny);
+            }
+        }
+    }
+
+    private static void setPose(RigidBody b, double x, double y, float angle) {
+        b.position.set(x, y);
+        b.setAngle(angle);
+        b.shape.updateWorld();
+    }
+
+    // Maior círculo centrado no corpo que cabe na forma (quanto dá para andar sem atravessar)
+    static double innerRadius(Shape s) {
+        if (!(s instanceof PolygonShape))
+            return s.radius;
+
+        PolygonShape p = (PolygonShape) s;
+        double r = Double.MAX_VALUE;
+        for (int i = 0; i < p.m_vertexCount; i++) {
+            Vector2 v1 = p.m_vertices[i];
+            Vector2 v2 = p.m_vertices[(i + 1 < p.m_vertexCount) ? i + 1 : 0];
+            double ex = v2.x - v1.x, ey = v2.y - v1.y;
+            double len = Math.sqrt(ex * ex + ey * ey);
+            if (len > 0)
+                r = Math.min(r, Math.abs(ex * v1.y - ey * v1.x) / len);
+        }
+        return r;
+    }
+
+    // Menor círculo centrado no corpo que contém a forma (quanto um ponto anda girando).
+    // Círculo girando não muda de forma: 0.
+    static double outerRadius(Shape s) {
+        if (!(s instanceof PolygonShape))
+            return 0;
+
+        PolygonShape p = (PolygonShape) s;
+        double r2 = 0;
+        for (int i = 0; i < p.m_vertexCount; i++) {
+            Vector2 v = p.m_vertices[i];
+            r2 = Math.max(r2, v.x * v.x + v.y * v.y);
+        }
+        return Math.sqrt(r2);
+    }
+}
@@ -0,0 +1,135 @@
+package EngineTest;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Narrowphase círculo x círculo em lote: os pares candidatos do broadphase ('pairs' do
+// Scene, índices em primitivos) que são de dois círculos viram arrays por coordenada, as
+// contas (distância, normal) rodam numa passada só e o resultado vai direto para o
+// Manifold do pool (ManifoldPool), sem passar pelo Colision.circleToCircle.
+//
+// Mesmas operações, na mesma ordem, do circleToCircle (soma dos raios em float, sqrt e
+// divisões IEEE, exatas também em lanes), então o contato sai igual bit a bit e o modo não
+// precisa ir no snapshot nem no handshake.
+//
+// VECTOR faz as contas com jdk.incubator.vector (CircleBatchVector). Essa classe só é
+// compilada com o perfil -Pvector do Maven e só carrega com --add-modules
+// jdk.incubator.vector na JVM; sem ela, VECTOR cai no SCALAR.
+//
+// Desligado por padrão: medido no CircleBatchBenchmark, juntar os dados dos corpos nos
+// arrays e espalhar o resultado pelos Manifolds custa mais que as ~10 contas por par que o
+// lote economiza, e o lote sai mais lento que o circleToCircle direto.
+final class CircleBatch {
+
+    enum Mode {
+        OFF, SCALAR, VECTOR
+    }
+
+    // As contas em [0, count): dx, dy, d2, dist, nx, ny a partir de ax, ay, bx, by
+    interface Kernel {
+        void run(CircleBatch batch);
+    }
+
+    private static final Kernel VECTOR_KERNEL = loadVectorKernel();
+
+    static boolean vectorAvailable() {
+        return VECTOR_KERNEL != null;
+    }
+
+    private static Kernel loadVectorKernel() {
+        if (!ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+            return null;
+        try {
+            return (Kernel) Class.forName("EngineTest.CircleBatchVector").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null; // Compilado sem -Pvector
+        }
+    }
+
+    // Par k do lote: posição em Scene.pairs, centros e soma dos raios
+    int[] pair = new int[64];
+    double[] ax = new double[64], ay = new double[64], bx = new double[64], by = new double[64];
+    double[] radius = new double[64];
+
+    // Saída do run(): distância ao quadrado, distância e normal (válidas se d2 < radius^2)
+    double[] d2 = new double[64], dist = new double[64], nx = new double[64], ny = new double[64];
+    int count = 0;
+
+    // Separa os pares de dois círculos. Devolve quantos.
+    int collect(long[] pairs, int pairCount, List<RigidBody> bodies) {
+        count = 0;
+        for (int p = 0; p < pairCount; p++) {
+            RigidBody A = bodies.get((int) (pairs[p] >>> 32));
+            RigidBody B = bodies.get((int) pairs[p]);
+            if (A.shape.getType() != Shape.Type.CIRCLE || B.shape.getType() != Shape.Type.CIRCLE)
+                continue;
+
+            if (count == pair.length)
+                grow();
+            pair[count] = p;
+            ax[count] = A.position.x;
+            ay[count] = A.position.y;
+            bx[count] = B.position.x;
+            by[count] = B.position.y;
+            radius[count] = A.shape.radius + B.shape.radius; // Soma em float, como no circleToCircle
+            count++;
+        }
+        return count;
+    }
+
+    void run(Mode mode) {
+        if (mode == Mode.VECTOR && VECTOR_KERNEL != null)
+            VECTOR_KERNEL.run(this);
+        else
+            scalar(0);
+    }
+
+    // Laço escalar em [from, count) (também o resto do laço em lanes)
+    void scalar(int from) {
+        for (int k = from; k < count; k++) {
+            double dx = bx[k] - ax[k], dy = by[k] - ay[k];
+            double s = dx * dx + dy * dy;
+            double d = Math.sqrt(s);
+            d2[k] = s;
+            dist[k] = d;
+            nx[k] = dx / d;
+            ny[k] = dy / d;
+        }
+    }
+
+    // Manifold do par k, igual ao do Colision.circleToCircle
+    void write(int k, Manifold m) {
+        double r = radius[k];
+        if (d2[k] >= r * r) {
+            m.contactCount = 0;
+            return;
+        }
+
+        m.contactCount = 1;
+        float radiusA = m.A.shape.radius;
+        if (dist[k] == 0.0f) {
+            // Caso Raro: Círculos exatamente na mesma posição
+            m.penetration = radiusA;
+            m.normal.set(1.0f, 0.0f);
+            m.contacts[0].set(ax[k], ay[k]);
+        } else {
+            m.penetration = r - dist[k];
+            m.normal.set(nx[k], ny[k]);
+            m.contacts[0].set(nx[k] * radiusA + ax[k], ny[k] * radiusA + ay[k]);
+        }
+    }
+
+    private void grow() {
+        int cap = pair.length * 2;
+        pair = Arrays.copyOf(pair, cap);
+        ax = Arrays.copyOf(ax, cap);
+        ay = Arrays.copyOf(ay, cap);
+        bx = Arrays.copyOf(bx, cap);
+        by = Arrays.copyOf(by, cap);
+        radius = Arrays.copyOf(radius, cap);
+        d2 = new double[cap];
+        dist = new double[cap];
+        nx = new double[cap];
+        ny = new double[cap];
+    }
+}
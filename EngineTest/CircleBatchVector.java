@@ -0,0 +1,41 @@
+package EngineTest;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorSpecies;
+
+// CircleBatch.run() com o Vector API: 4 pares por vez (AVX2; 2 com vetores de 128 bits).
+// Só aritmética por lane (subtração, multiplicação, sqrt, divisão), que é IEEE exata como
+// no laço escalar: sem máscaras nem blend, que alocam no JDK 17. Lanes de pares que não se
+// tocam também são calculadas; o write() decide pelo d2.
+//
+// Só é compilada com o perfil -Pvector (mvn -Pvector ...) e carregada pelo CircleBatch
+// com --add-modules jdk.incubator.vector na JVM.
+final class CircleBatchVector implements CircleBatch.Kernel {
+
+    // Até 256 bits: no JDK 17 os vetores de 512 bits (AVX-512) não saem mais rápidos aqui
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED.vectorBitSize() > 256
+            ? DoubleVector.SPECIES_256
+            : DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void run(CircleBatch batch) {
+        int count = batch.count;
+        int bound = SPECIES.loopBound(count);
+
+        // Em locais: o JIT não tira as leituras dos campos de dentro do laço
+        double[] ax = batch.ax, ay = batch.ay, bx = batch.bx, by = batch.by;
+        double[] d2 = batch.d2, dist = batch.dist, nx = batch.nx, ny = batch.ny;
+
+        for (int k = 0; k < bound; k += SPECIES.length()) {
+            DoubleVector dx = DoubleVector.fromArray(SPECIES, bx, k).sub(DoubleVector.fromArray(SPECIES, ax, k));
+            DoubleVector dy = DoubleVector.fromArray(SPECIES, by, k).sub(DoubleVector.fromArray(SPECIES, ay, k));
+            DoubleVector s = dx.mul(dx).add(dy.mul(dy));
+            DoubleVector d = s.sqrt();
+            s.intoArray(d2, k);
+            d.intoArray(dist, k);
+            dx.div(d).intoArray(nx, k);
+            dy.div(d).intoArray(ny, k);
+        }
+        batch.scalar(bound);
+    }
+}
@@ -1,6 +1,21 @@
 package EngineTest;
 
 public class Colision {
+
+    // Marca no Manifold.pairResult: a face separadora é do B
+    static final int FACE_OF_B = 1 << 8;
+
+    // Rascunho por thread (como o do Gjk): o narrowphase roda para cada par do step e não
+    // aloca nada. As contas que eram com Vector2 temporários agora são em double, na mesma
+    // ordem, então os resultados não mudam.
+    private static final class Scratch {
+        final int[] separatingFace = { -1 };
+        final float[] penetrationA = { 0 }, penetrationB = { 0 };
+        final Vector2[] incidentFace = { new Vector2(), new Vector2() };
+        final Vector2 out0 = new Vector2(), out1 = new Vector2();
+    }
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
     // ===========================================================
     // CIRCLE VS CIRCLE
     // ===========================================================
@@ -9,9 +24,10 @@ public class Colision {
         Circle B = (Circle) b.shape;
 
         // Calculate translational vector, which is normal
-        Vector2 normal = b.position.subtract(a.position);
+        double nx = b.position.x - a.position.x;
+        double ny = b.position.y - a.position.y;
 
-        double dist_sqr = normal.LengthSquared();
+        double dist_sqr = nx * nx + ny * ny;
         double radius = A.radius + B.radius;
 
         // Not in contact
@@ -33,11 +49,10 @@ public class Colision {
             m.penetration = radius - distance;
 
             // m->normal = normal / distance
-            m.normal.set(normal.x / distance, normal.y / distance);
+            m.normal.set(nx / distance, ny / distance);
 
             // m->contacts[0] = m->normal * A->radius + a->position;
-            Vector2 contactPoint = m.normal.multiply(A.radius).add(a.position);
-            m.contacts[0].set(contactPoint);
+            m.contacts[0].set(m.normal.x * A.radius + a.position.x, m.normal.y * A.radius + a.position.y);
         }
     }
 
@@ -50,14 +65,12 @@ public class Colision {
 
         m.contactCount = 0;
 
-        // 1. Transform circle center to Polygon model space
-        // A mágica acontece aqui: Em vez de girar o polígono, giramos o círculo "ao
-        // contrário"
-        // para que ele fique alinhado com o polígono local (eixo 0,0).
-        // Vector2 center = B->u.Transpose( ) * (center - b->position);
-
-        Vector2 center = a.position.subtract(b.position);
-        center = B.u.transpose().mul(center);
+        // 1. Tudo no espaço do mundo: vértices/normais de B vêm do cache do PolygonShape
+        // (antes o centro do círculo era levado para o espaço local de B e o resultado
+        // trazido de volta com B->u)
+        Vector2 center = a.position;
+        Vector2[] vertices = B.getWorldVertices();
+        Vector2[] normals = B.getWorldNormals();
 
         // 2. Find edge with minimum penetration
         double separation = -Double.MAX_VALUE;
@@ -65,7 +78,9 @@ public class Colision {
 
         for (int i = 0; i < B.m_vertexCount; ++i) {
             // s = Dot( n, center - v )
-            double s = B.m_normals[i].dot(center.subtract(B.m_vertices[i]));
+            Vector2 n = normals[i];
+            Vector2 v = vertices[i];
+            double s = n.x * (center.x - v.x) + n.y * (center.y - v.y);
 
             if (s > A.radius) {
                 return; // Separated
@@ -78,30 +93,30 @@ public class Colision {
         }
 
         // 3. Grab face's vertices
-        Vector2 v1 = B.m_vertices[faceNormal];
+        Vector2 v1 = vertices[faceNormal];
         int i2 = (faceNormal + 1 < B.m_vertexCount) ? faceNormal + 1 : 0;
-        Vector2 v2 = B.m_vertices[i2];
+        Vector2 v2 = vertices[i2];
 
         // 4. Check to see if center is within polygon
         if (separation < Engine.EPSILON) {
             m.contactCount = 1;
 
             // Normal deve apontar do Poligono para o Círculo.
-            // No espaço local é a normal da face. Precisamos rotacionar para o Mundo.
             // m->normal = -(B->u * B->m_normals[faceNormal]);
-            Vector2 polyNormalWorld = B.u.mul(B.m_normals[faceNormal]);
+            Vector2 polyNormalWorld = normals[faceNormal];
             m.normal.set(-polyNormalWorld.x, -polyNormalWorld.y);
 
             // m->contacts[0] = m->normal * A->radius + a->position;
-            m.contacts[0].set(m.normal.multiply(A.radius).add(a.position));
+            m.contacts[0].set(m.normal.x * A.radius + center.x, m.normal.y * A.radius + center.y);
 
             m.penetration = A.radius;
             return;
         }
 
         // 5. Determine which voronoi region of the edge center of circle lies within
-        double dot1 = center.subtract(v1).dot(v2.subtract(v1)); // Dot( center - v1, v2 - v1 )
-        double dot2 = center.subtract(v2).dot(v1.subtract(v2)); // Dot( center - v2, v1 - v2 )
+        // Dot( center - v1, v2 - v1 ) e Dot( center - v2, v1 - v2 )
+        double dot1 = (center.x - v1.x) * (v2.x - v1.x) + (center.y - v1.y) * (v2.y - v1.y);
+        double dot2 = (center.x - v2.x) * (v1.x - v2.x) + (center.y - v2.y) * (v1.y - v2.y);
 
         m.penetration = A.radius - separation;
 
@@ -113,18 +128,12 @@ public class Colision {
 
             m.contactCount = 1;
 
-            // Calcular normal: v1 -> center
-            Vector2 n = v1.subtract(center);
+            // Calcular normal: v1 -> center (o normalize() original descartava o resultado:
+            // a normal fica sem normalizar, como sempre foi)
+            m.normal.set(v1.x - center.x, v1.y - center.y);
 
-            // Transformar para Mundo
-            n = B.u.mul(n);
-            n.normalize();
-            m.normal.set(n);
-
-            // Ponto de contato é o próprio V1 (transformado para mundo)
-            // v1 = B->u * v1 + b->position;
-            Vector2 v1World = B.u.mul(v1).add(b.position);
-            m.contacts[0].set(v1World);
+            // Ponto de contato é o próprio V1
+            m.contacts[0].set(v1);
         }
 
         // --- Região 2: Closest to v2 (Colisão com o Canto V2) ---
@@ -135,31 +144,21 @@ public class Colision {
 
             m.contactCount = 1;
 
-            // Calcular normal: v2 -> center
-            Vector2 n = v2.subtract(center);
-
-            // Ponto de contato é o próprio V2 (transformado para mundo)
-            // v2 = B->u * v2 + b->position;
-            Vector2 v2World = B.u.mul(v2).add(b.position);
-            m.contacts[0].set(v2World);
+            // Ponto de contato é o próprio V2
+            m.contacts[0].set(v2);
 
-            // Transformar Normal para Mundo
-            n = B.u.mul(n);
-            n.normalize();
-            m.normal.set(n);
+            // Calcular normal: v2 -> center (sem normalizar, ver acima)
+            m.normal.set(v2.x - center.x, v2.y - center.y);
         }
 
         // --- Região 3: Closest to face (Colisão com a Aresta) ---
         else {
-            Vector2 n = B.m_normals[faceNormal];
+            Vector2 n = normals[faceNormal];
 
-            if (center.subtract(v1).dot(n) > A.radius) {
+            if ((center.x - v1.x) * n.x + (center.y - v1.y) * n.y > A.radius) {
                 return;
             }
 
-            // Transformar Normal para Mundo
-            n = B.u.mul(n);
-
             // A normal no manifold deve apontar de A para B (ou vice versa, dependendo da
             // convenção).
             // O código original usa m->normal = -n
@@ -167,7 +166,7 @@ public class Colision {
 
             // Ponto de contato na superfície do círculo
             // m->contacts[0] = m->normal * A->radius + a->position;
-            m.contacts[0].set(m.normal.multiply(A.radius).add(a.position));
+            m.contacts[0].set(m.normal.x * A.radius + center.x, m.normal.y * A.radius + center.y);
 
             m.contactCount = 1;
         }
@@ -191,18 +190,38 @@ public class Colision {
         PolygonShape B = (PolygonShape) b.shape;
 
         m.contactCount = 0;
+        m.pairResult = PairCache.NONE;
+
+        // 0. Coerência entre frames: o eixo que separava o par no step anterior quase sempre
+        // ainda separa, e aí um teste só basta. O resultado é o mesmo do SAT completo
+        // (sem contato), então o cache não muda a simulação (modo determinístico, rollback).
+        if (m.pairHint != PairCache.NONE) {
+            int face = m.pairHint & (FACE_OF_B - 1);
+            boolean ofB = (m.pairHint & FACE_OF_B) != 0;
+            PolygonShape owner = ofB ? B : A;
+            if (face < owner.m_vertexCount && faceSeparation(owner, ofB ? A : B, face, 0) > 0) {
+                m.pairResult = m.pairHint;
+                return; // Continua separado
+            }
+        }
 
         // 1. Testar separação nos eixos de A (Face de A empurrando B)
-        float[] penetrationA = { 0 }; // Hack para passar float por referência
-        int faceA = findAxisLeastPenetration(faceIndexRef, A, B, penetrationA);
-        if (faceA == -1)
+        Scratch scratch = SCRATCH.get();
+        int[] separatingFace = scratch.separatingFace;
+        float[] penetrationA = scratch.penetrationA; // Hack para passar float por referência
+        int faceA = findAxisLeastPenetration(separatingFace, A, B, penetrationA);
+        if (faceA == -1) {
+            m.pairResult = separatingFace[0];
             return; // Separado!
+        }
 
         // 2. Testar separação nos eixos de B (Face de B empurrando A)
-        float[] penetrationB = { 0 };
-        int faceB = findAxisLeastPenetration(faceIndexRef, B, A, penetrationB);
-        if (faceB == -1)
+        float[] penetrationB = scratch.penetrationB;
+        int faceB = findAxisLeastPenetration(separatingFace, B, A, penetrationB);
+        if (faceB == -1) {
+            m.pairResult = separatingFace[0] | FACE_OF_B;
             return; // Separado!
+        }
 
         int referenceIndex;
         boolean flip; // Indica se invertemos A e B
@@ -227,28 +246,34 @@ public class Colision {
             flip = true;
         }
 
+        clipReferenceFace(m, RefPoly, IncPoly, referenceIndex, flip);
+    }
+
+    // -------------------------------------------------------------------
+    // HELPER: Pontos de contato a partir da face de referência já escolhida
+    // (também usado pelo GJK, que escolhe a face pela normal do EPA)
+    // -------------------------------------------------------------------
+    static void clipReferenceFace(Manifold m, PolygonShape RefPoly, PolygonShape IncPoly, int referenceIndex,
+            boolean flip) {
         // 4. Encontrar a Face Incidente (a face do outro polígono mais "anti-paralela")
-        Vector2[] incidentFace = new Vector2[2];
+        Scratch scratch = SCRATCH.get();
+        Vector2[] incidentFace = scratch.incidentFace;
 
-        // Normal da face de referência no MUNDO
-        Vector2 referenceNormalLocal = RefPoly.m_normals[referenceIndex];
-        Vector2 referenceNormalWorld = RefPoly.u.mul(referenceNormalLocal);
+        // Normal da face de referência no MUNDO (do cache)
+        Vector2 referenceNormalWorld = RefPoly.getWorldNormals()[referenceIndex];
 
         findIncidentFace(incidentFace, RefPoly, IncPoly, referenceNormalWorld);
 
         // 5. Configuração para o Clipping (Corte)
-        // Precisamos dos vértices da face de referência no Mundo
-        Vector2 v1 = RefPoly.m_vertices[referenceIndex];
+        // Vértices da face de referência no Mundo
+        Vector2[] refVertices = RefPoly.getWorldVertices();
+        Vector2 v1 = refVertices[referenceIndex];
         int i2 = (referenceIndex + 1 < RefPoly.m_vertexCount) ? referenceIndex + 1 : 0;
-        Vector2 v2 = RefPoly.m_vertices[i2];
+        Vector2 v2 = refVertices[i2];
 
-        // Transformar para Mundo
-        v1 = RefPoly.u.mul(v1).add(RefPoly.body.position);
-        v2 = RefPoly.u.mul(v2).add(RefPoly.body.position);
-
-        // Vetor Tangente (lado da face)
-        Vector2 sidePlaneNormal = v2.subtract(v1);
-        sidePlaneNormal.normalize();
+        // Vetor Tangente (lado da face). Não é unitário: o normalize() original descartava o
+        // resultado, e os planos de corte continuam certos (só a escala das distâncias muda)
+        double sideX = v2.x - v1.x, sideY = v2.y - v1.y;
 
         // Vetor Ortogonal ao lado (para fazer o clip das laterais)
         // É basicamente a tangente rotacionada 90 graus? Não, podemos usar float
@@ -257,22 +282,26 @@ public class Colision {
 
         // Distância do plano à origem (produto escalar)
         double refFaceOffset = referenceNormalWorld.dot(v1);
-        double negSide = -sidePlaneNormal.dot(v1);
-        double posSide = sidePlaneNormal.dot(v2);
+        double negSide = -(sideX * v1.x + sideY * v1.y);
+        double posSide = sideX * v2.x + sideY * v2.y;
 
         // 6. Clip (Cortar) a face incidente contra as laterais da face de referência
         // Passo 1: Cortar contra a tangente negativa (lado esquerdo)
-        if (clip(sidePlaneNormal.multiply(-1), negSide, incidentFace) < 2)
+        if (clip(-sideX, -sideY, negSide, incidentFace, scratch) < 2)
             return;
 
         // Passo 2: Cortar contra a tangente positiva (lado direito)
-        if (clip(sidePlaneNormal, posSide, incidentFace) < 2)
+        if (clip(sideX, sideY, posSide, incidentFace, scratch) < 2)
             return;
 
         // 7. Considerar apenas pontos que estão "abaixo" da face de referência
         // (penetração real)
         // Inverter normal se houve flip, para garantir que aponta sempre de A para B
-        m.normal = flip ? referenceNormalWorld.multiply(-1) : referenceNormalWorld;
+        // (cópia: referenceNormalWorld é do cache do polígono)
+        if (flip)
+            m.normal.set(-referenceNormalWorld.x, -referenceNormalWorld.y);
+        else
+            m.normal.set(referenceNormalWorld);
 
         int cp = 0; // Contact points count
         double penetration = 0; // Acumulador para média (opcional) ou usar o maior
@@ -283,6 +312,7 @@ public class Colision {
             if (separation <= 0.0f) {
                 m.contacts[cp].set(incidentFace[i]);
                 m.penetration = (float) -separation; // Guarda a penetração deste ponto
+                m.depths[cp] = -separation;
                 cp++;
             }
         }
@@ -295,47 +325,24 @@ public class Colision {
 
     // -------------------------------------------------------------------
     // HELPER: Encontrar eixo de menor penetração (SAT)
-    // Retorna o índice da face ou -1 se separado
+    // Retorna o índice da face ou -1 se separado (a face que separou vai em
+    // faceIndex[0]). O array float[] penetration serve para retornar o valor da
+    // penetração.
     // -------------------------------------------------------------------
-    // Usamos um array int[] de tamanho 1 apenas para "simular" um ponteiro,
-    // mas aqui nem precisei passar o índice, apenas retorno ele.
-    // O array float[] penetration serve para retornar o valor da penetração.
-    private static int[] faceIndexRef = { 0 }; // Placeholder se precisasse passar por ref
-
-    private static int findAxisLeastPenetration(int[] faceIndex, PolygonShape A, PolygonShape B,
+    static int findAxisLeastPenetration(int[] faceIndex, PolygonShape A, PolygonShape B,
             float[] bestPenetration) {
         double bestDistance = -Double.MAX_VALUE;
         int bestIndex = -1;
+        int support = 0;
 
         for (int i = 0; i < A.m_vertexCount; ++i) {
-            // Pegar a normal da face de A no espaço do MUNDO
-            Vector2 n = A.m_normals[i];
-            Vector2 nw = A.u.mul(n);
-
-            // Transformar a face de A para o mundo também (para saber o offset)
-            // Mas podemos fazer a matemática relativa.
-            // Estratégia: Projetar o "Support Point" de B na normal de A.
-
-            // Matriz de rotação do B transposta (inversa)
-            Mat2 buT = B.u.transpose();
-
-            // Converter a normal de A (Mundo) para o espaço local de B
-            Vector2 nLocalB = buT.mul(nw);
-
-            // Pegar o ponto extremo de B na direção oposta da normal
-            // (Support Point é o ponto mais "fundo" na direção da colisão)
-            Vector2 s = B.getSupport(nLocalB.multiply(-1));
-
-            // Agora calcular a distância no Mundo
-            Vector2 v = B.u.mul(s).add(B.body.position); // Ponto de suporte no mundo
-
-            // Ponto na face de A (qualquer vértice da face serve)
-            Vector2 p = A.u.mul(A.m_vertices[i]).add(A.body.position);
-
-            // Distância = dot(normal, suporte - facePonto)
-            double d = nw.dot(v.subtract(p));
+            // As normais de faces vizinhas giram pouco, então o suporte de B na face i
+            // começa a busca de onde parou na face i - 1 (rotating calipers)
+            support = minSupport(B, A.getWorldNormals()[i], support);
+            double d = faceSeparation(A, B, i, support);
 
             if (d > 0) {
+                faceIndex[0] = i;
                 return -1; // Separado!
             }
 
@@ -349,13 +356,29 @@ public class Colision {
         return bestIndex;
     }
 
+    // Distância (no mundo) do ponto mais "fundo" de B até a face 'face' de A, ao longo da
+    // normal da face. > 0 = separados por esse eixo. 'hint' = de onde começar a busca do suporte.
+    static double faceSeparation(PolygonShape A, PolygonShape B, int face, int hint) {
+        Vector2 nw = A.getWorldNormals()[face];
+        Vector2 s = B.getWorldVertices()[minSupport(B, nw, hint)];
+        Vector2 p = A.getWorldVertices()[face]; // Ponto na face de A (qualquer vértice da face serve)
+
+        // Distância = dot(normal, suporte - facePonto)
+        return (nw.x * s.x + nw.y * s.y) - (nw.x * p.x + nw.y * p.y);
+    }
+
+    // Índice do vértice de B (no mundo) com a MENOR projeção em n, isto é, o Support Point
+    // na direção -n
+    static int minSupport(PolygonShape B, Vector2 n, int start) {
+        return PolygonShape.supportIndex(B.getWorldVertices(), B.m_vertexCount, -n.x, -n.y, start);
+    }
+
     // -------------------------------------------------------------------
     // HELPER: Encontrar a Face Incidente (Clipping)
     // -------------------------------------------------------------------
     private static void findIncidentFace(Vector2[] v, PolygonShape RefPoly, PolygonShape IncPoly,
             Vector2 referenceNormal) {
-        // Precisamos da normal de Referência no espaço local do Polígono Incidente
-        Vector2 referenceNormalIncLocal = IncPoly.u.transpose().mul(referenceNormal);
+        Vector2[] normals = IncPoly.getWorldNormals();
 
         // Achar qual face do Incidente é mais "Anti-Paralela" (dot product próximo de
         // -1)
@@ -363,44 +386,42 @@ public class Colision {
         int incidentFace = 0;
 
         for (int i = 0; i < IncPoly.m_vertexCount; ++i) {
-            double dot = referenceNormalIncLocal.dot(IncPoly.m_normals[i]);
+            double dot = referenceNormal.dot(normals[i]);
             if (dot < minDot) {
                 minDot = dot;
                 incidentFace = i;
             }
         }
 
-        // Pegar os vértices da face incidente e transformar para Mundo
-        Vector2 v1 = IncPoly.m_vertices[incidentFace];
+        // Vértices da face incidente no Mundo (cópias: o clip escreve neles)
+        Vector2[] vertices = IncPoly.getWorldVertices();
         int i2 = (incidentFace + 1 < IncPoly.m_vertexCount) ? incidentFace + 1 : 0;
-        Vector2 v2 = IncPoly.m_vertices[i2];
 
-        v[0] = IncPoly.u.mul(v1).add(IncPoly.body.position);
-        v[1] = IncPoly.u.mul(v2).add(IncPoly.body.position);
+        v[0].set(vertices[incidentFace]);
+        v[1].set(vertices[i2]);
     }
 
     // -------------------------------------------------------------------
     // HELPER: Clipping (Sutherland-Hodgman)
     // Corta um segmento de reta (vIn) baseado em um plano (normal + offset)
     // -------------------------------------------------------------------
-    private static int clip(Vector2 n, double c, Vector2[] face) {
+    private static int clip(double nx, double ny, double c, Vector2[] face, Scratch scratch) {
         int sp = 0;
-        Vector2[] out = {
-                new Vector2(face[0].x, face[0].y),
-                new Vector2(face[1].x, face[1].y)
-        };
+        Vector2 out0 = scratch.out0, out1 = scratch.out1;
+        out0.set(face[0]);
+        out1.set(face[1]);
 
         // Distâncias dos dois pontos ao plano
-        double d1 = n.dot(face[0]) - c;
-        double d2 = n.dot(face[1]) - c;
+        double d1 = (nx * face[0].x + ny * face[0].y) - c;
+        double d2 = (nx * face[1].x + ny * face[1].y) - c;
 
         // Se ponto 1 está dentro/atrás do plano
         if (d1 <= 0.0f)
-            out[sp++].set(face[0]);
+            (sp++ == 0 ? out0 : out1).set(face[0]);
 
         // Se ponto 2 está dentro/atrás do plano
         if (d2 <= 0.0f)
-            out[sp++].set(face[1]);
+            (sp++ == 0 ? out0 : out1).set(face[1]);
 
         // Se os pontos estão em lados opostos do plano, precisamos calcular a
         // intersecção
@@ -409,15 +430,13 @@ public class Colision {
 
             // Interpolação linear (Lerp)
             // out[sp] = face[0] + alpha * (face[1] - face[0])
-            Vector2 delta = face[1].subtract(face[0]);
-            Vector2 intersection = face[0].add(delta.multiply(alpha));
-
-            out[sp++].set(intersection);
+            (sp++ == 0 ? out0 : out1).set(face[0].x + (face[1].x - face[0].x) * alpha,
+                    face[0].y + (face[1].y - face[0].y) * alpha);
         }
 
         // Atualiza o array original com os novos pontos cortados
-        face[0].set(out[0]);
-        face[1].set(out[1]);
+        face[0].set(out0);
+        face[1].set(out1);
 
         return sp; // Retorna quantos pontos sobraram (geralmente 2)
     }
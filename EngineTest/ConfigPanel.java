@@ -4,7 +4,7 @@ import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 import java.awt.*;
 
-public class ConfigPanel extends JPanel {
+public class ConfigPanel extends JPanel implements NetworkListener {
 
     private JTextField ipField;
     private JComboBox<String> modeBox;
@@ -102,6 +102,13 @@ public class ConfigPanel extends JPanel {
 
         // Inicializa a rede e lógica
         this.network = new Network(this); // Passa 'this' para o Network poder escrever no log
+
+        // Emulador de rede opcional (-Dnet.sim=true ...)
+        LinkConditioner conditioner = LinkConditioner.fromSystemProperties();
+        if (conditioner != null) {
+            network.setConditioner(conditioner);
+            log(">> [SIM] Emulador de rede ligado: " + conditioner);
+        }
         setupLogic();
     }
 
@@ -167,6 +174,7 @@ public class ConfigPanel extends JPanel {
     }
 
     // UI callbacks used by Network to update controls/state
+    @Override
     public void onConnected() {
         SwingUtilities.invokeLater(() -> {
             connectButton.setEnabled(false);
@@ -181,6 +189,7 @@ public class ConfigPanel extends JPanel {
         });
     }
 
+    @Override
     public void onConnectionFailed(String reason) {
         SwingUtilities.invokeLater(() -> {
             connectButton.setEnabled(true);
@@ -204,6 +213,7 @@ public class ConfigPanel extends JPanel {
         });
     }
 
+    @Override
     public void onConnectionClosed() {
         SwingUtilities.invokeLater(() -> {
             connectButton.setEnabled(true);
@@ -228,6 +238,7 @@ public class ConfigPanel extends JPanel {
     }
 
     // Método público para a classe Network escrever aqui
+    @Override
     public void log(String msg) {
         SwingUtilities.invokeLater(() -> {
             terminal.append(msg + "\n");
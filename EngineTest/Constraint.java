@@ -0,0 +1,36 @@
+package EngineTest;
+
+import java.awt.Graphics2D;
+
+// Restrição entre corpos resolvida pelo mesmo solver iterativo dos contatos (ver Scene.step):
+// juntas (DistanceJoint, RevoluteJoint, WeldJoint) e o MouseJoint.
+//
+// O Scene chama initialize() uma vez por step, antes das iterações, e solve() em cada
+// iteração (ou sub-passo), antes dos contatos. Tudo o que não muda dentro do step (braços,
+// direções, massa efetiva já invertida, bias) sai no initialize(); o solve() é só
+// velocidade relativa, multiplicação pela massa e impulso, sem trigonometria, raiz nem
+// alocação. O Scene guarda as restrições num array agrupado por tipo, então o laço passa
+// por todas as de um tipo seguidas.
+public interface Constraint {
+
+    // dt = step inteiro (o erro de posição é corrigido ao longo dele), h = duração de cada
+    // passada do solver (dt / substeps; = dt sem sub-stepping), para as restrições macias
+    void initialize(double dt, double h);
+
+    // Uma iteração: aplica o impulso que falta para a velocidade relativa respeitar a restrição
+    void solve();
+
+    void draw(Graphics2D g, double scale, int screenHeight);
+
+    // Estado que passa de um step para o outro (os impulsos acumulados do warm start), para o
+    // RollbackBuffer voltar com ele junto dos corpos. Sem estado: 0 e nada a fazer.
+    default int stateSize() {
+        return 0;
+    }
+
+    default void saveState(double[] out, int offset) {
+    }
+
+    default void restoreState(double[] in, int offset) {
+    }
+}
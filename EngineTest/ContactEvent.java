@@ -0,0 +1,16 @@
+package EngineTest;
+
+// Dois corpos começaram ou pararam de se tocar num step (ver Scene.contactListener).
+// 'a' é sempre o de menor uid: o mesmo par sai com os mesmos papéis no início e no fim.
+public class ContactEvent {
+    public final RigidBody a, b;
+    public final boolean begin; // false = terminou (inclusive porque um dos dois saiu da cena)
+    public final boolean sensor; // Um dos dois é sensor: só sobreposição, sem impulso
+
+    ContactEvent(RigidBody a, RigidBody b, boolean begin, boolean sensor) {
+        this.a = a;
+        this.b = b;
+        this.begin = begin;
+        this.sensor = sensor;
+    }
+}
@@ -0,0 +1,10 @@
+package EngineTest;
+
+import java.util.List;
+
+// Recebe os inícios/fins de contato de um step, todos de uma vez, depois que o step terminou
+// (fora do laço de colisão: pode criar, remover ou mexer em corpos). A lista só vale durante
+// a chamada.
+public interface ContactListener {
+    void onContacts(Scene scene, List<ContactEvent> events);
+}
@@ -0,0 +1,102 @@
+package EngineTest;
+
+import java.nio.ByteBuffer;
+
+// Mantém a distância entre as duas âncoras: barra rígida (frequency = 0) ou mola com
+// amortecimento (frequency em Hz > 0, dampingRatio 1 = criticamente amortecida).
+public class DistanceJoint extends Joint {
+
+    public double length;
+    public double frequency = 0;
+    public double dampingRatio = 0.7;
+
+    // Do initialize(): direção de A para B, braços cruzados com ela, massa efetiva (com a
+    // maciez da mola), bias e gamma (0 na barra rígida)
+    private double ux, uy, crossA, crossB, mass, bias, gamma;
+    private double impulse = 0;
+
+    // Âncoras em coordenadas do mundo; o comprimento é a distância atual entre elas
+    public DistanceJoint(RigidBody a, RigidBody b, double ax, double ay, double bx, double by) {
+        super(a, b, ax, ay, bx, by);
+        length = Math.sqrt((bx - ax) * (bx - ax) + (by - ay) * (by - ay));
+    }
+
+    DistanceJoint(RigidBody a, RigidBody b, ByteBuffer buf) {
+        super(a, b, buf);
+        length = buf.getDouble();
+        frequency = buf.getDouble();
+        dampingRatio = buf.getDouble();
+        impulse = buf.getDouble();
+    }
+
+    @Override
+    void write(ByteBuffer buf) {
+        super.write(buf);
+        buf.putDouble(length);
+        buf.putDouble(frequency);
+        buf.putDouble(dampingRatio);
+        buf.putDouble(impulse);
+    }
+
+    @Override
+    public int stateSize() {
+        return 1;
+    }
+
+    @Override
+    public void saveState(double[] out, int offset) {
+        out[offset] = impulse;
+    }
+
+    @Override
+    public void restoreState(double[] in, int offset) {
+        impulse = in[offset];
+    }
+
+    @Override
+    public void initialize(double dt, double h) {
+        computeArms();
+
+        double dx = separationX(), dy = separationY();
+        double current = Math.sqrt(dx * dx + dy * dy);
+        if (current > Engine.EPSILON) {
+            ux = dx / current;
+            uy = dy / current;
+        } else {
+            // Âncoras no mesmo ponto: sem direção, a junta não age neste step
+            ux = 0;
+            uy = 0;
+        }
+
+        crossA = rax * uy - ray * ux;
+        crossB = rbx * uy - rby * ux;
+        double k = a.invMass + b.invMass + a.invInertia * crossA * crossA + b.invInertia * crossB * crossB;
+        double c = current - length;
+
+        if (frequency > 0 && k > 0) {
+            // Mola: rigidez e amortecimento para a massa efetiva, na forma implícita
+            double m = 1.0 / k;
+            double omega = 2 * Math.PI * frequency;
+            double stiffness = m * omega * omega;
+            double damping = 2 * m * dampingRatio * omega;
+            gamma = h * (damping + h * stiffness);
+            gamma = gamma != 0 ? 1.0 / gamma : 0;
+            bias = c * h * stiffness * gamma;
+            k += gamma;
+        } else {
+            gamma = 0;
+            bias = BAUMGARTE * c / dt;
+        }
+        mass = k != 0 ? 1.0 / k : 0;
+
+        applyLinear(ux * impulse, uy * impulse);
+    }
+
+    @Override
+    public void solve() {
+        double cdot = ux * velocityX() + uy * velocityY();
+        double lambda = -mass * (cdot + bias + gamma * impulse);
+        impulse += lambda;
+        applyLinear(ux * lambda, uy * lambda);
+    }
+}
@@ -0,0 +1,488 @@
+package EngineTest;
+
+// Narrowphase alternativo ao SAT do Colision: GJK para a distância entre as formas e EPA
+// para a normal e a profundidade quando elas se sobrepõem. Só usa Shape.support() e
+// Shape.radius, então serve para qualquer forma convexa escrita como "núcleo + casca"
+// (círculo = ponto + raio, polígono = núcleo com raio 0, e o que vier: cápsula, polígono
+// arredondado...).
+//
+// Os dois trabalham na diferença de Minkowski dos núcleos, A - B:
+// - núcleos a uma distância d >= rA + rB: separados;
+// - 0 < d < rA + rB: só as cascas se tocam. Normal e pontos saem exatos do GJK
+//   (é o caso normal de um círculo encostando);
+// - núcleos se sobrepondo: EPA acha a borda mais perto da origem (normal de A para B) e a
+//   profundidade, somada às cascas.
+// Círculos nunca chegam ao EPA com uma borda curva, que ele só aproxima com muitos vértices.
+//
+// Contatos: polígono x polígono usa a normal do EPA só para escolher as faces e gera os
+// pontos com o mesmo clipping do SAT (2 pontos, senão as pilhas não param em pé). Com
+// círculo (ou qualquer outra forma) sai 1 ponto, na superfície de A.
+//
+// Par separado: o Manifold.pairResult guarda a direção que separou o par; no step seguinte
+// ela é testada primeiro (um suporte de cada lado). Se ainda separa, acabou; senão o GJK
+// roda do zero. O resultado nunca depende do cache (determinismo, rollback).
+//
+// Selecionado com -Dsim.narrowphase=gjk (ver Scene.narrowphase).
+public class Gjk {
+
+    private static final int MAX_GJK_ITERATIONS = 32;
+    private static final int MAX_EPA_ITERATIONS = 32;
+    private static final double GJK_TOLERANCE = 1e-12; // relativa a |v|²
+    private static final double EPA_TOLERANCE = 1e-7;
+
+    // Mesma tolerância do SAT para trocar a face de referência
+    private static final double k_bias = 0.95;
+
+    // Rascunho por thread (o servidor e os clientes dos testes rodam em threads diferentes)
+    private static final ThreadLocal<Gjk> SCRATCH = ThreadLocal.withInitial(Gjk::new);
+
+    // Resultado do GJK
+    private static final int SEPARATED = 0, SKIN = 1, OVERLAP = 2;
+
+    // Simplex do GJK / polígono do EPA: ponto da diferença (w), ponto em A, índices dos
+    // suportes e peso de cada ponto no ponto mais perto da origem (só GJK)
+    private static final int CAPACITY = 3 + MAX_EPA_ITERATIONS;
+    private final double[] wx = new double[CAPACITY], wy = new double[CAPACITY];
+    private final double[] ax = new double[CAPACITY], ay = new double[CAPACITY];
+    private final int[] ia = new int[CAPACITY], ib = new int[CAPACITY];
+    private final double[] lambda = new double[3];
+    private int count;
+
+    // Ponto do simplex mais perto da origem, e o v do último suporte (eixo de separação)
+    private double vx, vy;
+    private double sepX, sepY;
+    private int hintA, hintB;
+    private final Vector2 pa = new Vector2(), pb = new Vector2();
+
+    // Resultado do EPA
+    private double normalX, normalY, depth;
+    private double witnessX, witnessY;
+
+    // ===========================================================
+    // ENTRADA (mesma assinatura das funções do Colision)
+    // ===========================================================
+    public static void collide(Manifold m, RigidBody a, RigidBody b) {
+        SCRATCH.get().solve(m, a, b);
+    }
+
+    // Distância entre as superfícies (núcleos - cascas), com a direção de A para B em
+    // 'normal'. <= 0 se as formas se tocam (o valor aí não é a profundidade). Usado pelo CCD.
+    public static double distance(Shape A, Shape B, Vector2 normal) {
+        return SCRATCH.get().separation(A, B, normal);
+    }
+
+    private double separation(Shape A, Shape B, Vector2 normal) {
+        A.updateWorld();
+        B.updateWorld();
+        double skin = (double) A.radius + B.radius;
+
+        hintA = 0;
+        hintB = 0;
+        double dx = B.body.position.x - A.body.position.x;
+        double dy = B.body.position.y - A.body.position.y;
+        if (dx == 0 && dy == 0)
+            dx = 1;
+
+        count = 0;
+        addSupport(A, B, dx, dy);
+        // Sem o teste de saída antecipada: aqui interessa a distância, não só o sim/não
+        if (distance(A, B, Double.POSITIVE_INFINITY) == OVERLAP) {
+            normal.set(0, 0);
+            return -skin;
+        }
+
+        double d = Math.sqrt(vx * vx + vy * vy);
+        normal.set(-vx / d, -vy / d);
+        return d - skin;
+    }
+
+    private void solve(Manifold m, RigidBody a, RigidBody b) {
+        Shape A = a.shape;
+        Shape B = b.shape;
+        m.contactCount = 0;
+        m.pairResult = PairCache.NONE;
+        A.updateWorld();
+        B.updateWorld();
+        double skin = (double) A.radius + B.radius;
+
+        // 0. Eixo que separava o par no step anterior
+        if (m.pairHint != PairCache.NONE && stillSeparated(m, A, B, skin))
+            return;
+
+        // 1. GJK, sempre do mesmo ponto de partida (o centro de B visto de A)
+        hintA = 0;
+        hintB = 0;
+        double dx = b.position.x - a.position.x;
+        double dy = b.position.y - a.position.y;
+        if (dx == 0 && dy == 0)
+            dx = 1;
+
+        count = 0;
+        addSupport(A, B, dx, dy);
+        int result = distance(A, B, skin);
+        if (result == SEPARATED) {
+            // Direção que separou e o suporte nela: o palpite do próximo step
+            m.pairResult = pack(hintA, hintB, -sepX, -sepY);
+            return;
+        }
+
+        if (result == SKIN) {
+            // 2a. Só as cascas: normal entre os pontos mais perto dos núcleos (v = A - B)
+            double d = Math.sqrt(vx * vx + vy * vy);
+            double nx = -vx / d, ny = -vy / d;
+            double cx = 0, cy = 0;
+            for (int i = 0; i < count; i++) {
+                cx += lambda[i] * ax[i];
+                cy += lambda[i] * ay[i];
+            }
+            m.contactCount = 1;
+            m.normal.set(nx, ny);
+            m.contacts[0].set(cx + nx * A.radius, cy + ny * A.radius);
+            m.penetration = skin - d;
+            return;
+        }
+
+        // 2b. Núcleos se sobrepondo: EPA a partir do simplex final
+        if (!expand(A, B)) {
+            if (skin == 0)
+                return; // Raspão entre núcleos sem casca: sem profundidade
+
+            // Núcleos degenerados no mesmo ponto (dois círculos concêntricos): mesma
+            // escolha arbitrária do Colision.circleToCircle
+            m.contactCount = 1;
+            m.normal.set(1, 0);
+            m.contacts[0].set(ax[0], ay[0]);
+            m.penetration = skin;
+            return;
+        }
+
+        // 3. Pontos de contato
+        if (skin == 0 && A instanceof PolygonShape && B instanceof PolygonShape) {
+            clipPolygons(m, (PolygonShape) A, (PolygonShape) B);
+        } else {
+            m.contactCount = 1;
+            m.normal.set(normalX, normalY);
+            m.contacts[0].set(witnessX + normalX * A.radius, witnessY + normalY * A.radius);
+            m.penetration = depth + skin;
+        }
+    }
+
+    // ===========================================================
+    // GJK (distância entre os núcleos)
+    // ===========================================================
+    // Parte do simplex com 1 ponto já preenchido. SEPARATED se a distância passa de 'skin'
+    // (só o último suporte fica válido), SKIN com o simplex e os pesos do ponto mais perto
+    // (v), OVERLAP com o simplex contendo a origem.
+    private int distance(Shape A, Shape B, double skin) {
+        lambda[0] = 1;
+        vx = wx[0];
+        vy = wy[0];
+
+        for (int iter = 0; iter < MAX_GJK_ITERATIONS; iter++) {
+            double vv = vx * vx + vy * vy;
+            if (vv == 0)
+                return OVERLAP; // Origem em cima do simplex: núcleos encostando
+
+            addSupport(A, B, -vx, -vy);
+
+            // Plano pelo novo ponto, perpendicular a v: a distância é pelo menos w·v/|v|
+            double wv = wx[count - 1] * vx + wy[count - 1] * vy;
+            sepX = vx;
+            sepY = vy;
+            if (wv >= 0 && wv * wv >= skin * skin * vv)
+                return SEPARATED;
+
+            // O novo ponto não chega mais perto que v: v é o mais perto
+            if (vv - wv <= GJK_TOLERANCE * vv) {
+                count--;
+                break;
+            }
+
+            if (closest())
+                return OVERLAP;
+        }
+        return (vx * vx + vy * vy < skin * skin) ? SKIN : SEPARATED;
+    }
+
+    private void addSupport(Shape A, Shape B, double dx, double dy) {
+        int i = count++;
+        hintA = A.support(dx, dy, hintA, pa);
+        hintB = B.support(-dx, -dy, hintB, pb);
+        wx[i] = pa.x - pb.x;
+        wy[i] = pa.y - pb.y;
+        ax[i] = pa.x;
+        ay[i] = pa.y;
+        ia[i] = hintA;
+        ib[i] = hintB;
+    }
+
+    // Reduz o simplex à parte mais perto da origem, com os pesos em 'lambda' e o ponto em v.
+    // true = o triângulo contém a origem. (Regiões de Voronoi do segmento/triângulo.)
+    private boolean closest() {
+        if (count == 2) {
+            double ex = wx[1] - wx[0], ey = wy[1] - wy[0];
+            double d1 = -(wx[0] * ex + wy[0] * ey);
+            double d2 = ex * ex + ey * ey;
+            if (d1 <= 0 || d2 == 0) {
+                keep(0);
+            } else if (d1 >= d2) {
+                keep(1);
+            } else {
+                keep(0, 1, d1 / d2);
+            }
+            return false;
+        }
+
+        // Triângulo a = 0, b = 1, c = 2
+        double abx = wx[1] - wx[0], aby = wy[1] - wy[0];
+        double acx = wx[2] - wx[0], acy = wy[2] - wy[0];
+
+        double d1 = -(abx * wx[0] + aby * wy[0]);
+        double d2 = -(acx * wx[0] + acy * wy[0]);
+        if (d1 <= 0 && d2 <= 0) {
+            keep(0);
+            return false;
+        }
+
+        double d3 = -(abx * wx[1] + aby * wy[1]);
+        double d4 = -(acx * wx[1] + acy * wy[1]);
+        if (d3 >= 0 && d4 <= d3) {
+            keep(1);
+            return false;
+        }
+
+        double vc = d1 * d4 - d3 * d2;
+        if (vc <= 0 && d1 >= 0 && d3 <= 0) {
+            keep(0, 1, d1 / (d1 - d3));
+            return false;
+        }
+
+        double d5 = -(abx * wx[2] + aby * wy[2]);
+        double d6 = -(acx * wx[2] + acy * wy[2]);
+        if (d6 >= 0 && d5 <= d6) {
+            keep(2);
+            return false;
+        }
+
+        double vb = d5 * d2 - d1 * d6;
+        if (vb <= 0 && d2 >= 0 && d6 <= 0) {
+            keep(0, 2, d2 / (d2 - d6));
+            return false;
+        }
+
+        double va = d3 * d6 - d5 * d4;
+        if (va <= 0 && (d4 - d3) >= 0 && (d5 - d6) >= 0) {
+            keep(1, 2, (d4 - d3) / ((d4 - d3) + (d5 - d6)));
+            return false;
+        }
+
+        vx = 0;
+        vy = 0;
+        return true;
+    }
+
+    // Simplex vira só o ponto i
+    private void keep(int i) {
+        copy(i, 0);
+        count = 1;
+        lambda[0] = 1;
+        vx = wx[0];
+        vy = wy[0];
+    }
+
+    // Simplex vira o segmento i-j, com o ponto mais perto em i + t * (j - i)
+    private void keep(int i, int j, double t) {
+        copy(i, 0);
+        copy(j, 1);
+        count = 2;
+        lambda[0] = 1 - t;
+        lambda[1] = t;
+        vx = wx[0] + (wx[1] - wx[0]) * t;
+        vy = wy[0] + (wy[1] - wy[0]) * t;
+    }
+
+    private void copy(int from, int to) {
+        if (from == to)
+            return;
+        wx[to] = wx[from];
+        wy[to] = wy[from];
+        ax[to] = ax[from];
+        ay[to] = ay[from];
+        ia[to] = ia[from];
+        ib[to] = ib[from];
+    }
+
+    // ===========================================================
+    // EPA
+    // ===========================================================
+    private boolean expand(Shape A, Shape B) {
+        // GJK pode terminar com 1 ou 2 pontos quando as formas só encostam:
+        // completa o triângulo com suportes perpendiculares
+        if (count == 1) {
+            if (wx[0] == 0 && wy[0] == 0)
+                addSupport(A, B, 1, 0);
+            else
+                addSupport(A, B, -wx[0], -wy[0]);
+        }
+        if (count == 2) {
+            double ex = wx[1] - wx[0], ey = wy[1] - wy[0];
+            addSupport(A, B, -ey, ex);
+            if (area() == 0) {
+                count = 2;
+                addSupport(A, B, ey, -ex);
+            }
+        }
+
+        double area = area();
+        if (area == 0)
+            return false; // Degenerado (contato de raspão, sem profundidade)
+        if (area < 0) {
+            // Sentido anti-horário: a normal (ey, -ex) de cada aresta aponta para fora
+            swap(0, 1);
+        }
+
+        int best = 0;
+        for (int iter = 0;; iter++) {
+            // Aresta mais perto da origem
+            double bestDist = Double.MAX_VALUE;
+            double bnx = 0, bny = 0;
+            for (int i = 0; i < count; i++) {
+                int j = (i + 1 < count) ? i + 1 : 0;
+                double ex = wx[j] - wx[i], ey = wy[j] - wy[i];
+                double len = Math.sqrt(ex * ex + ey * ey);
+                if (len == 0)
+                    continue;
+                double nx = ey / len, ny = -ex / len;
+                double dist = nx * wx[i] + ny * wy[i];
+                if (dist < bestDist) {
+                    bestDist = dist;
+                    bnx = nx;
+                    bny = ny;
+                    best = i;
+                }
+            }
+
+            normalX = bnx;
+            normalY = bny;
+            depth = bestDist;
+
+            if (iter == MAX_EPA_ITERATIONS || count == CAPACITY)
+                break;
+
+            // A borda ainda pode crescer nessa direção?
+            int hA = hintA, hB = hintB;
+            hintA = A.support(bnx, bny, ia[best], pa);
+            hintB = B.support(-bnx, -bny, ib[best], pb);
+            double sx = pa.x - pb.x, sy = pa.y - pb.y;
+            if ((sx * bnx + sy * bny) - bestDist < EPA_TOLERANCE) {
+                hintA = hA;
+                hintB = hB;
+                break;
+            }
+
+            // Insere o suporte entre best e best + 1
+            for (int k = count; k > best + 1; k--) {
+                copy(k - 1, k);
+            }
+            int at = best + 1;
+            wx[at] = sx;
+            wy[at] = sy;
+            ax[at] = pa.x;
+            ay[at] = pa.y;
+            ia[at] = hintA;
+            ib[at] = hintB;
+            count++;
+        }
+
+        // Witness em A: mesma combinação dos pontos da aresta que dá o ponto mais perto da origem
+        int j = (best + 1 < count) ? best + 1 : 0;
+        double ex = wx[j] - wx[best], ey = wy[j] - wy[best];
+        double len2 = ex * ex + ey * ey;
+        double t = (len2 > 0) ? -(wx[best] * ex + wy[best] * ey) / len2 : 0;
+        t = Math.max(0, Math.min(1, t));
+        witnessX = ax[best] + (ax[j] - ax[best]) * t;
+        witnessY = ay[best] + (ay[j] - ay[best]) * t;
+        return true;
+    }
+
+    private double area() {
+        return (wx[1] - wx[0]) * (wy[2] - wy[0]) - (wy[1] - wy[0]) * (wx[2] - wx[0]);
+    }
+
+    private void swap(int i, int j) {
+        double t;
+        t = wx[i]; wx[i] = wx[j]; wx[j] = t;
+        t = wy[i]; wy[i] = wy[j]; wy[j] = t;
+        t = ax[i]; ax[i] = ax[j]; ax[j] = t;
+        t = ay[i]; ay[i] = ay[j]; ay[j] = t;
+        int k;
+        k = ia[i]; ia[i] = ia[j]; ia[j] = k;
+        k = ib[i]; ib[i] = ib[j]; ib[j] = k;
+    }
+
+    // ===========================================================
+    // CONTATOS POLÍGONO X POLÍGONO
+    // ===========================================================
+    // A face de cada polígono mais alinhada com a normal é uma das duas que encostam no
+    // vértice de suporte (sem varrer todas as faces)
+    private void clipPolygons(Manifold m, PolygonShape A, PolygonShape B) {
+        int faceA = alignedFace(A, normalX, normalY);
+        int faceB = alignedFace(B, -normalX, -normalY);
+
+        double alignA = alignment(A, faceA, normalX, normalY);
+        double alignB = alignment(B, faceB, -normalX, -normalY);
+
+        if (alignA >= alignB * k_bias)
+            Colision.clipReferenceFace(m, A, B, faceA, false);
+        else
+            Colision.clipReferenceFace(m, B, A, faceB, true);
+    }
+
+    private static int alignedFace(PolygonShape P, double nx, double ny) {
+        int v = PolygonShape.supportIndex(P.getWorldVertices(), P.m_vertexCount, nx, ny, 0);
+        int prev = (v > 0) ? v - 1 : P.m_vertexCount - 1;
+        return alignment(P, v, nx, ny) >= alignment(P, prev, nx, ny) ? v : prev;
+    }
+
+    // Cosseno entre a normal da face e (nx, ny) (as normais locais nem sempre são unitárias)
+    private static double alignment(PolygonShape P, int face, double nx, double ny) {
+        Vector2 n = P.getWorldNormals()[face];
+        double len = Math.sqrt(n.x * n.x + n.y * n.y);
+        return (len > 0) ? (n.x * nx + n.y * ny) / len : -1;
+    }
+
+    // ===========================================================
+    // CACHE DO PAR
+    // ===========================================================
+    // O pairResult guarda a direção que provou a separação (v do GJK) e os vértices de
+    // suporte nela. No step seguinte basta um suporte de cada lado nessa direção: qualquer
+    // direção dá um teste exato, então o palpite só decide se dá para pular o GJK.
+    //
+    // Bits: vértice de A (6) | vértice de B (6) | direção (19, "ângulo de losango",
+    // sem trigonometria). MAX_POLY_VERTEX_COUNT = 64 cabe em 6 bits.
+    private static final int DIR_BITS = 19;
+    private static final double DIR_SCALE = (1 << DIR_BITS) / 4.0;
+
+    private boolean stillSeparated(Manifold m, Shape A, Shape B, double skin) {
+        double t = (m.pairHint >>> 12) / DIR_SCALE;
+        double dx = (t < 2) ? 1 - t : t - 3;
+        double dy = (t < 2) ? 1 - Math.abs(dx) : Math.abs(dx) - 1;
+
+        int sa = A.support(dx, dy, m.pairHint & 63, pa);
+        int sb = B.support(-dx, -dy, (m.pairHint >>> 6) & 63, pb);
+        double wd = (pa.x - pb.x) * dx + (pa.y - pb.y) * dy;
+        if (wd < 0 && wd * wd > skin * skin * (dx * dx + dy * dy)) {
+            m.pairResult = (m.pairHint & ~4095) | sa | (sb << 6);
+            return true;
+        }
+        return false;
+    }
+
+    // Direção (dx, dy) em [0, 4) pela posição no losango |x| + |y| = 1
+    private static int pack(int a, int b, double dx, double dy) {
+        double u = dx / (Math.abs(dx) + Math.abs(dy));
+        double t = (dy >= 0) ? 1 - u : 3 + u;
+        int q = (int) (t * DIR_SCALE) & ((1 << DIR_BITS) - 1);
+        return (a & 63) | ((b & 63) << 6) | (q << 12);
+    }
+}
@@ -0,0 +1,104 @@
+package EngineTest;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Servidor sem janela: mesma cena do initDemo e mesmo ServerLoop da main, rodando a 60Hz
+// numa thread própria. Usado pelo LoadTest para medir o tempo de tick sob carga.
+public class HeadlessServer implements NetworkListener {
+
+    private final Scene scene = new Scene();
+    private final Network network = new Network(this);
+    private final ServerLoop loop;
+    private final LatencySamples tickTimes = new LatencySamples(1_000_000);
+    private final boolean verbose;
+
+    private ScheduledExecutorService executor;
+    private MetricsServer metrics;
+
+    public HeadlessServer(int budgetBytesPerSecond, boolean verbose) {
+        this.verbose = verbose;
+        scene.deltaTime = Engine.dt;
+        scene.iterations = 10;
+        main.initDemo(scene);
+        main.applyDeterminism(scene);
+        main.applySubsteps(scene);
+        main.applyCcd(scene);
+        main.applyNarrowphase(scene);
+        main.applyCircleBatch(scene);
+        main.applyProfiler(scene);
+
+        loop = new ServerLoop(scene, network, new SendScheduler(budgetBytesPerSecond), 10.0, 7.5);
+        loop.hashInterval = Math.max(1, Integer.getInteger("sim.hashInterval", 1));
+        main.applyRollback(scene);
+        main.applyCheckpoint(loop);
+        main.applyRecording(loop);
+    }
+
+    public void start(int port) {
+        network.startServer(port);
+
+        try {
+            metrics = MetricsServer.fromSystemProperties(loop);
+        } catch (IOException e) {
+            System.err.println("[server] Métricas: " + e.getMessage());
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "HeadlessServer");
+            t.setDaemon(true);
+            return t;
+        });
+        executor.scheduleAtFixedRate(() -> {
+            try {
+                loop.tick();
+                tickTimes.add(loop.getLastTickNanos());
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }, 0, 16, TimeUnit.MILLISECONDS);
+    }
+
+    // Para o loop e devolve o número de corpos no fim (lido na thread do loop)
+    public int stop() throws Exception {
+        int bodies = executor.submit(() -> {
+            loop.stopRecording(); // Na thread do loop: o hash final é do último tick
+            return scene.bodies.size();
+        }).get();
+        executor.shutdownNow();
+        if (metrics != null)
+            metrics.stop();
+        network.close();
+        return bodies;
+    }
+
+    public LatencySamples getTickTimes() {
+        return tickTimes;
+    }
+
+    public Network getNetwork() {
+        return network;
+    }
+
+    // --- NetworkListener ---
+    @Override
+    public void log(String msg) {
+        if (verbose)
+            System.err.println("[server] " + msg);
+    }
+
+    @Override
+    public void onConnected() {
+    }
+
+    @Override
+    public void onConnectionFailed(String reason) {
+        System.err.println("[server] Falha: " + reason);
+    }
+
+    @Override
+    public void onConnectionClosed() {
+    }
+}
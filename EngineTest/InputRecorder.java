@@ -0,0 +1,148 @@
+package EngineTest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Log append-only (arquivo mapeado em memória) dos comandos aplicados pelo servidor:
+// cada INPUT executado e o SPAWN que ele gerou, com o tick da cena. Junto com um
+// SceneSnapshot do início, o Replay refaz a sessão inteira sem rede.
+//
+// Formato: MAGIC(int) VERSION(int) FIM(long) e depois registros LEN(int) TICK(long)
+// LINHA(LEN bytes UTF-8). O LEN é escrito por último: se o processo cair no meio, o leitor
+// para no registro incompleto. FIM é o tamanho do log, gravado no close() (0 = não fechou):
+// o arquivo só é cortado nesse tamanho quando o sistema deixa (no Windows não dá com o
+// mapeamento ainda vivo, e o Java não tem como desfazer o mapeamento na hora).
+public class InputRecorder {
+
+    public static final int MAGIC = 0x494D504C; // "IMPL"
+    public static final int VERSION = 2;
+
+    private static final int HEADER = 16;
+    private static final int HEADER_V1 = 8; // Sem o FIM
+    private static final int REGION = 4 * 1024 * 1024; // Mapeia de 4MB em 4MB
+
+    private final FileChannel channel;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private long position; // Fim do log no arquivo
+    private long entries = 0;
+
+    public InputRecorder(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        map(0);
+        region.putInt(0, MAGIC);
+        region.putInt(4, VERSION);
+        region.putLong(8, 0);
+        position = HEADER;
+    }
+
+    // Grava um comando aplicado no tick (chamado pelo InputCommand.execute do servidor)
+    public synchronized void record(long tick, NetworkCommand cmd) {
+        record(tick, cmd.serialize());
+    }
+
+    public synchronized void record(long tick, String line) {
+        byte[] data = line.getBytes(StandardCharsets.UTF_8);
+        int size = 4 + 8 + data.length;
+
+        try {
+            if (position + size > regionStart + REGION)
+                map(position);
+        } catch (IOException e) {
+            System.out.println("Erro no log de inputs: " + e.getMessage());
+            return;
+        }
+
+        int at = (int) (position - regionStart);
+        region.putLong(at + 4, tick);
+        region.put(at + 12, data);
+        region.putInt(at, data.length); // Por último: marca o registro como completo
+        position += size;
+        entries++;
+    }
+
+    // Fecha com o hash do estado final (o Replay confere se chegou no mesmo mundo),
+    // grava o tamanho real no cabeçalho e tenta cortar o arquivo nele.
+    public synchronized void close(Scene scene) throws IOException {
+        if (scene != null)
+            record(scene.tick, new NetworkCommand.HashCommand(scene.tick, scene.worldHash.compute(scene, scene.tick)));
+
+        region.force();
+        region = null;
+        try {
+            // Fora do mapeamento: o cabeçalho pode não estar mais na janela atual
+            channel.write(ByteBuffer.allocate(8).putLong(0, position), 8);
+            channel.force(false);
+            try {
+                channel.truncate(position);
+            } catch (IOException e) {
+                // Mapeamento ainda vivo (Windows): o FIM do cabeçalho já diz onde o log acaba
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    public synchronized long getEntries() {
+        return entries;
+    }
+
+    // Nova janela mapeada começando em 'start' (o arquivo cresce junto)
+    private void map(long start) throws IOException {
+        if (region != null)
+            region.force();
+        regionStart = start;
+        region = channel.map(FileChannel.MapMode.READ_WRITE, start, REGION);
+    }
+
+    // --- LEITURA ---
+
+    public static class Entry {
+        public final long tick;
+        public final String line;
+
+        Entry(long tick, String line) {
+            this.tick = tick;
+            this.line = line;
+        }
+    }
+
+    public static List<Entry> read(Path file) throws IOException {
+        List<Entry> result = new ArrayList<>();
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            if (buf.remaining() < HEADER || buf.getInt() != MAGIC)
+                throw new IllegalArgumentException("Não é um log de inputs: " + file);
+            int version = buf.getInt();
+            if (version == VERSION) {
+                if (buf.remaining() < HEADER - HEADER_V1)
+                    throw new IllegalArgumentException("Log de inputs cortado: " + file);
+                long end = buf.getLong();
+                if (end >= HEADER && end < buf.limit())
+                    buf.limit((int) end); // O resto é a sobra da última janela mapeada
+            } else if (version != 1) {
+                throw new IllegalArgumentException("Versão de log não suportada: " + version);
+            }
+
+            while (buf.remaining() >= 12) {
+                int len = buf.getInt();
+                if (len <= 0 || len > buf.remaining() - 8)
+                    break; // Fim (ou registro que não terminou de ser escrito)
+
+                long tick = buf.getLong();
+                byte[] data = new byte[len];
+                buf.get(data);
+                result.add(new Entry(tick, new String(data, StandardCharsets.UTF_8)));
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,124 @@
+package EngineTest;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.nio.ByteBuffer;
+
+// Base das juntas entre dois corpos: uma âncora presa em cada um (guardada no referencial
+// do corpo, então gira junto) e o impulso acumulado, que sobra de um step para o outro e
+// entra de novo no initialize() (warm start: uma corrente parada já começa o step com o
+// impulso que a segura, em vez de achá-lo de novo em 10 iterações).
+//
+// Para prender no mundo use um corpo estático (o chão, por exemplo). Os dois corpos de uma
+// junta continuam colidindo entre si: peças de um ragdoll ou elos de uma corrente devem
+// ir para o mesmo RigidBody.group negativo.
+//
+// Juntas vão no SceneSnapshot (com os impulsos) e o RollbackBuffer volta os impulsos junto
+// com os corpos; na rede (SPAWN/SYNC) não vão, então não servem para o mundo compartilhado.
+public abstract class Joint implements Constraint {
+
+    // Fração do erro de posição que o bias devolve por step (Baumgarte)
+    static final double BAUMGARTE = 0.2;
+
+    public final RigidBody a, b;
+    final double localAx, localAy, localBx, localBy;
+
+    // Do initialize(): do centro de cada corpo até a âncora, no mundo
+    double rax, ray, rbx, rby;
+
+    // Âncoras em coordenadas do mundo na pose atual dos corpos
+    Joint(RigidBody a, RigidBody b, double ax, double ay, double bx, double by) {
+        this.a = a;
+        this.b = b;
+        localAx = localX(a, ax, ay);
+        localAy = localY(a, ax, ay);
+        localBx = localX(b, bx, by);
+        localBy = localY(b, bx, by);
+    }
+
+    // Do snapshot (ver write)
+    Joint(RigidBody a, RigidBody b, ByteBuffer buf) {
+        this.a = a;
+        this.b = b;
+        localAx = buf.getDouble();
+        localAy = buf.getDouble();
+        localBx = buf.getDouble();
+        localBy = buf.getDouble();
+    }
+
+    // Configuração e impulsos para o SceneSnapshot (os corpos ele mesmo grava, por índice)
+    void write(ByteBuffer buf) {
+        buf.putDouble(localAx);
+        buf.putDouble(localAy);
+        buf.putDouble(localBx);
+        buf.putDouble(localBy);
+    }
+
+    // Rotação do corpo: a do polígono já está no shape.u (StrictMath, acompanha o angle); o
+    // círculo não mantém a sua, então sai do StrictMath igual, para o modo determinístico
+    static double cos(RigidBody body) {
+        return body.shape instanceof PolygonShape ? body.shape.u.m00 : StrictMath.cos(body.angle);
+    }
+
+    static double sin(RigidBody body) {
+        return body.shape instanceof PolygonShape ? body.shape.u.m10 : StrictMath.sin(body.angle);
+    }
+
+    // Ponto do mundo no referencial do corpo (rotação inversa)
+    static double localX(RigidBody body, double x, double y) {
+        return cos(body) * (x - body.position.x) + sin(body) * (y - body.position.y);
+    }
+
+    static double localY(RigidBody body, double x, double y) {
+        return -sin(body) * (x - body.position.x) + cos(body) * (y - body.position.y);
+    }
+
+    // Braços na pose do início do step (valem para todas as iterações e sub-passos)
+    void computeArms() {
+        double c = cos(a), s = sin(a);
+        rax = c * localAx - s * localAy;
+        ray = s * localAx + c * localAy;
+        c = cos(b);
+        s = sin(b);
+        rbx = c * localBx - s * localBy;
+        rby = s * localBx + c * localBy;
+    }
+
+    // Âncora de B menos âncora de A (o erro de posição de uma junta de ponto)
+    double separationX() {
+        return (b.position.x + rbx) - (a.position.x + rax);
+    }
+
+    double separationY() {
+        return (b.position.y + rby) - (a.position.y + ray);
+    }
+
+    // Velocidade da âncora de B menos a da âncora de A: vB + wB x rB - (vA + wA x rA)
+    double velocityX() {
+        return (b.velocity.x - b.angularVelocity * rby) - (a.velocity.x - a.angularVelocity * ray);
+    }
+
+    double velocityY() {
+        return (b.velocity.y + b.angularVelocity * rbx) - (a.velocity.y + a.angularVelocity * rax);
+    }
+
+    // Impulso linear (de A para B) nas âncoras
+    void applyLinear(double px, double py) {
+        a.applyImpulse(-px, -py, rax, ray);
+        b.applyImpulse(px, py, rbx, rby);
+    }
+
+    // Linha entre as âncoras, na pose atual
+    @Override
+    public void draw(Graphics2D g, double scale, int screenHeight) {
+        double ca = cos(a), sa = sin(a);
+        double cb = cos(b), sb = sin(b);
+        double ax = a.position.x + ca * localAx - sa * localAy, ay = a.position.y + sa * localAx + ca * localAy;
+        double bx = b.position.x + cb * localBx - sb * localBy, by = b.position.y + sb * localBx + cb * localBy;
+
+        g.setColor(Color.CYAN);
+        g.drawLine((int) (ax * scale), (int) (screenHeight - ay * scale), (int) (bx * scale),
+                (int) (screenHeight - by * scale));
+        g.fillRect((int) (bx * scale) - 2, (int) (screenHeight - by * scale) - 2, 4, 4);
+    }
+}
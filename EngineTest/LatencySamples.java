@@ -0,0 +1,51 @@
+package EngineTest;
+
+import java.util.Arrays;
+
+// Amostras de tempo (nanos) para calcular percentis no fim de um teste.
+// Thread-safe; guarda no máximo 'capacity' amostras (as mais antigas ficam).
+public class LatencySamples {
+
+    private long[] samples;
+    private int count = 0;
+    private final int capacity;
+
+    public LatencySamples(int capacity) {
+        this.capacity = capacity;
+        this.samples = new long[Math.min(capacity, 1024)];
+    }
+
+    public synchronized void add(long nanos) {
+        if (count == capacity)
+            return;
+        if (count == samples.length)
+            samples = Arrays.copyOf(samples, Math.min(capacity, samples.length * 2));
+        samples[count++] = nanos;
+    }
+
+    public synchronized int count() {
+        return count;
+    }
+
+    // Percentil em milissegundos (p entre 0 e 100); NaN se não houver amostras
+    public synchronized double percentileMillis(double p) {
+        if (count == 0)
+            return Double.NaN;
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(p / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))] / 1_000_000.0;
+    }
+
+    // {"count":N,"p50":..,"p95":..,"p99":..,"max":..} em milissegundos
+    public String toJson() {
+        return String.format(java.util.Locale.US,
+                "{\"count\":%d,\"p50\":%s,\"p95\":%s,\"p99\":%s,\"max\":%s}",
+                count(), num(percentileMillis(50)), num(percentileMillis(95)), num(percentileMillis(99)),
+                num(percentileMillis(100)));
+    }
+
+    static String num(double v) {
+        return Double.isNaN(v) ? "null" : String.format(java.util.Locale.US, "%.3f", v);
+    }
+}
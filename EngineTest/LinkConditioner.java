@@ -0,0 +1,203 @@
+package EngineTest;
+
+import java.util.Random;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Emulador de rede dentro da JVM: atraso, jitter, perda, duplicação, reordenação e
+// limite de banda nos caminhos de envio/recebimento do Network.
+// Cada canal (UDP/TCP, envio/recebimento) tem o seu Random, com semente derivada da
+// principal, e o seu gargalo: as threads de cada canal (recebimento UDP, leitor TCP, quem
+// envia) não disputam o mesmo sorteio, então a mesma sequência de pacotes de um canal
+// sofre sempre os mesmos efeitos (perde o 7º, duplica o 12º, ...).
+//
+// Ligado por propriedades do sistema, ex:
+// -Dnet.sim=true -Dnet.sim.latency=80 -Dnet.sim.jitter=20 -Dnet.sim.loss=0.05 -Dnet.sim.seed=42
+public class LinkConditioner {
+
+    public enum Distribution {
+        UNIFORM, NORMAL
+    }
+
+    public enum Direction {
+        IN, OUT
+    }
+
+    // --- CONFIGURAÇÃO ---
+    public double latencyMs = 0; // Atraso base (por travessia)
+    public double jitterMs = 0; // Uniforme: +-jitter / Normal: desvio padrão
+    public Distribution distribution = Distribution.UNIFORM;
+    public double lossRate = 0; // 0..1
+    public double duplicateRate = 0; // 0..1
+    public double reorderRate = 0; // 0..1: pacote ganha atraso extra e é ultrapassado
+    public double reorderDelayMs = 50;
+    public int bandwidthBytesPerSecond = 0; // 0 = sem limite
+    public double maxQueueMs = 500; // Fila do gargalo: acima disso, descarta (tail drop)
+    public boolean incoming = true; // Aplica no recebimento
+    public boolean outgoing = true; // Aplica no envio
+
+    // Canal: sorteio, gargalo de banda e ordem próprios; o lock é o do próprio canal
+    private static final class Lane {
+        final Random random;
+        long linkFreeAtNanos = 0; // Gargalo de banda: quando o "fio" fica livre de novo
+        long lastOrderedDeliveryNanos = 0; // TCP não reordena: cada entrega é depois da anterior
+
+        Lane(long seed) {
+            random = new Random(seed);
+        }
+    }
+
+    // [direção][0 = UDP, 1 = TCP]
+    private final Lane[][] lanes = new Lane[2][2];
+    private final ScheduledThreadPoolExecutor scheduler;
+
+    // --- ESTATÍSTICAS ---
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong duplicated = new AtomicLong();
+    private final AtomicLong reordered = new AtomicLong();
+
+    public LinkConditioner(long seed) {
+        for (int d = 0; d < 2; d++) {
+            for (int t = 0; t < 2; t++) {
+                lanes[d][t] = new Lane(mix(seed + (d * 2 + t + 1) * 0x9E3779B97F4A7C15L));
+            }
+        }
+
+        ThreadFactory daemon = r -> {
+            Thread t = new Thread(r, "LinkConditioner");
+            t.setDaemon(true);
+            return t;
+        };
+        this.scheduler = new ScheduledThreadPoolExecutor(1, daemon);
+    }
+
+    // null se -Dnet.sim não estiver ligado
+    public static LinkConditioner fromSystemProperties() {
+        if (!Boolean.getBoolean("net.sim"))
+            return null;
+
+        LinkConditioner c = new LinkConditioner(Long.getLong("net.sim.seed", 1234L));
+        c.latencyMs = doubleProperty("net.sim.latency", c.latencyMs);
+        c.jitterMs = doubleProperty("net.sim.jitter", c.jitterMs);
+        c.distribution = Distribution.valueOf(System.getProperty("net.sim.distribution", "UNIFORM").toUpperCase());
+        c.lossRate = doubleProperty("net.sim.loss", c.lossRate);
+        c.duplicateRate = doubleProperty("net.sim.dup", c.duplicateRate);
+        c.reorderRate = doubleProperty("net.sim.reorder", c.reorderRate);
+        c.reorderDelayMs = doubleProperty("net.sim.reorderDelay", c.reorderDelayMs);
+        c.bandwidthBytesPerSecond = Integer.getInteger("net.sim.bandwidth", c.bandwidthBytesPerSecond);
+        c.maxQueueMs = doubleProperty("net.sim.maxQueue", c.maxQueueMs);
+
+        String direction = System.getProperty("net.sim.direction", "both");
+        c.incoming = !direction.equals("out");
+        c.outgoing = !direction.equals("in");
+        return c;
+    }
+
+    private static double doubleProperty(String key, double def) {
+        String v = System.getProperty(key);
+        return v == null ? def : Double.parseDouble(v);
+    }
+
+    // UDP: pode perder, duplicar, reordenar e sofre com o limite de banda
+    public void submit(Direction direction, int bytes, Runnable deliver) {
+        submitted.incrementAndGet();
+        Lane lane = lanes[direction.ordinal()][0];
+        synchronized (lane) {
+            Random random = lane.random;
+            long now = System.nanoTime();
+
+            if (random.nextDouble() < lossRate) {
+                dropped.incrementAndGet();
+                return;
+            }
+
+            // Gargalo: o pacote só "sai" depois que os anteriores passaram pelo fio
+            long departure = now;
+            if (bandwidthBytesPerSecond > 0) {
+                long start = Math.max(now, lane.linkFreeAtNanos);
+                if (start - now > maxQueueMs * 1_000_000) {
+                    dropped.incrementAndGet(); // Fila cheia
+                    return;
+                }
+                lane.linkFreeAtNanos = start + (long) (bytes * 1_000_000_000.0 / bandwidthBytesPerSecond);
+                departure = lane.linkFreeAtNanos;
+            }
+
+            long delay = departure - now + sampleDelayNanos(random);
+            if (random.nextDouble() < reorderRate) {
+                reordered.incrementAndGet();
+                delay += (long) (reorderDelayMs * 1_000_000);
+            }
+            schedule(deliver, delay);
+
+            if (random.nextDouble() < duplicateRate) {
+                duplicated.incrementAndGet();
+                schedule(deliver, delay + sampleDelayNanos(random));
+            }
+        }
+    }
+
+    // TCP: só atraso (a ordem é mantida, nada se perde)
+    public void submitOrdered(Direction direction, Runnable deliver) {
+        submitted.incrementAndGet();
+        Lane lane = lanes[direction.ordinal()][1];
+        synchronized (lane) {
+            long now = System.nanoTime();
+            long at = Math.max(now + sampleDelayNanos(lane.random), lane.lastOrderedDeliveryNanos);
+            lane.lastOrderedDeliveryNanos = at;
+            schedule(deliver, at - now);
+        }
+    }
+
+    // Semente de cada canal (SplitMix64): sementes vizinhas não dão sequências parecidas
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private long sampleDelayNanos(Random random) {
+        double ms = latencyMs;
+        if (jitterMs > 0) {
+            if (distribution == Distribution.NORMAL)
+                ms += random.nextGaussian() * jitterMs;
+            else
+                ms += (random.nextDouble() * 2 - 1) * jitterMs;
+        }
+        return (long) (Math.max(0, ms) * 1_000_000);
+    }
+
+    private void schedule(Runnable deliver, long delayNanos) {
+        scheduler.schedule(deliver, Math.max(0, delayNanos), TimeUnit.NANOSECONDS);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getDuplicated() {
+        return duplicated.get();
+    }
+
+    public long getReordered() {
+        return reordered.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(java.util.Locale.US,
+                "latency=%.0fms jitter=%.0fms (%s) loss=%.2f dup=%.2f reorder=%.2f bandwidth=%dB/s",
+                latencyMs, jitterMs, distribution, lossRate, duplicateRate, reorderRate, bandwidthBytesPerSecond);
+    }
+}
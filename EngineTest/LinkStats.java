@@ -0,0 +1,131 @@
+package EngineTest;
+
+// Estimativa de RTT e perda de um cliente, a partir dos ACKs do canal SYNC.
+// O servidor registra cada datagrama enviado (onSend) e o cliente responde com
+// "ACK:SEQ:BITS" (o SEQ mais novo + bitfield dos 32 anteriores), seguido dos contadores
+// de reordenados/descartados do SequenceChannel do cliente.
+public class LinkStats {
+
+    private static final int WINDOW = 1024; // Datagramas em voo que conseguimos acompanhar
+    private static final int ACK_BITS = 32;
+
+    private static final double RTT_SMOOTHING = 0.1;
+    private static final double LOSS_SMOOTHING = 0.02;
+
+    private final long[] sentTime = new long[WINDOW];
+    private final int[] sentSeq = new int[WINDOW];
+    private final boolean[] acked = new boolean[WINDOW];
+
+    // Janela [oldestPending, nextSeq) ainda não decidida (ack ou perda)
+    private int oldestPending = 0;
+    private int nextSeq = 0;
+    private boolean hasSent = false;
+
+    private volatile double rttMillis = 0;
+    private volatile double lossRate = 0;
+    private volatile long bytesSent = 0;
+    private volatile long packetsSent = 0;
+    private volatile long packetsLost = 0;
+
+    // Contados pelo cliente (o servidor não vê a ordem de chegada)
+    private volatile long packetsReordered = 0;
+    private volatile long packetsStale = 0;
+
+    public synchronized void onSend(int seq, int bytes, long nowNanos) {
+        int slot = seq % WINDOW;
+        sentTime[slot] = nowNanos;
+        sentSeq[slot] = seq;
+        acked[slot] = false;
+
+        if (!hasSent) {
+            hasSent = true;
+            oldestPending = seq;
+        }
+        nextSeq = (seq + 1) % SequenceChannel.SEQ_MODULO;
+
+        bytesSent += bytes;
+        packetsSent++;
+
+        // Janela cheia: o mais velho é considerado perdido
+        if (SequenceChannel.distance(nextSeq, oldestPending) > WINDOW) {
+            resolveOldest();
+        }
+    }
+
+    public synchronized void onAck(int ackSeq, int ackBits, long nowNanos) {
+        markAcked(ackSeq, nowNanos);
+        for (int i = 1; i <= ACK_BITS; i++) {
+            if ((ackBits & (1 << (i - 1))) != 0) {
+                markAcked((ackSeq - i + SequenceChannel.SEQ_MODULO) % SequenceChannel.SEQ_MODULO, nowNanos);
+            }
+        }
+
+        // Tudo que ficou para trás do bitfield não pode mais ser confirmado
+        int limit = (ackSeq - ACK_BITS + SequenceChannel.SEQ_MODULO) % SequenceChannel.SEQ_MODULO;
+        while (oldestPending != nextSeq && SequenceChannel.sequenceGreaterThan(limit, oldestPending)) {
+            resolveOldest();
+        }
+    }
+
+    // Totais do cliente; ACKs podem chegar fora de ordem, então só sobem
+    public synchronized void onReceiverCounters(long reordered, long stale) {
+        packetsReordered = Math.max(packetsReordered, reordered);
+        packetsStale = Math.max(packetsStale, stale);
+    }
+
+    private void markAcked(int seq, long nowNanos) {
+        if (!isPending(seq))
+            return;
+
+        int slot = seq % WINDOW;
+        if (sentSeq[slot] != seq || acked[slot])
+            return;
+
+        acked[slot] = true;
+        double sample = (nowNanos - sentTime[slot]) / 1_000_000.0;
+        rttMillis = (rttMillis == 0) ? sample : rttMillis + (sample - rttMillis) * RTT_SMOOTHING;
+    }
+
+    private boolean isPending(int seq) {
+        return oldestPending != nextSeq
+                && SequenceChannel.distance(seq, oldestPending) < SequenceChannel.distance(nextSeq, oldestPending);
+    }
+
+    private void resolveOldest() {
+        int slot = oldestPending % WINDOW;
+        boolean lost = !acked[slot];
+        if (lost)
+            packetsLost++;
+
+        lossRate += ((lost ? 1.0 : 0.0) - lossRate) * LOSS_SMOOTHING;
+        oldestPending = (oldestPending + 1) % SequenceChannel.SEQ_MODULO;
+    }
+
+    public double getRttMillis() {
+        return rttMillis;
+    }
+
+    public double getLossRate() {
+        return lossRate;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    public long getPacketsLost() {
+        return packetsLost;
+    }
+
+    public long getPacketsReordered() {
+        return packetsReordered;
+    }
+
+    public long getPacketsStale() {
+        return packetsStale;
+    }
+}
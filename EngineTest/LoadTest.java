@@ -0,0 +1,133 @@
+package EngineTest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Teste de carga: N BotClients na mesma JVM contra um servidor (interno ou externo).
+// Resultado em JSON no stdout (logs vão para o stderr).
+//
+// Uso:
+// java -Dnet.debug=false EngineTest.LoadTest --clients 50 --duration 30 --input-rate 2
+// java -Dnet.debug=false EngineTest.LoadTest --host 10.0.0.5 --port 7777 --clients 20
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.net.preferIPv4Stack", "true");
+        Map<String, String> opts = parseArgs(args);
+
+        int clients = Integer.parseInt(opts.getOrDefault("clients", "10"));
+        int duration = Integer.parseInt(opts.getOrDefault("duration", "10"));
+        double inputRate = Double.parseDouble(opts.getOrDefault("input-rate", "1")); // INPUT/s por bot
+        int port = Integer.parseInt(opts.getOrDefault("port", "7777"));
+        int budget = Integer.parseInt(opts.getOrDefault("budget", String.valueOf(32 * 1024)));
+        long seed = Long.parseLong(opts.getOrDefault("seed", "1"));
+        String host = opts.get("host"); // Sem host: sobe um servidor headless aqui mesmo
+
+        HeadlessServer server = null;
+        if (host == null) {
+            server = new HeadlessServer(budget, opts.containsKey("verbose"));
+            server.start(port);
+            host = "127.0.0.1";
+            Thread.sleep(300); // Tempo para o ServerSocket abrir
+        }
+
+        // 1. Conecta os bots
+        List<BotClient> bots = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            BotClient bot = new BotClient(i, host, port, inputRate, seed + i);
+            bot.connect();
+            bots.add(bot);
+        }
+        System.err.println("LoadTest: " + clients + " bots conectados em " + host + ":" + port);
+
+        // 2. Tick dos bots a 60Hz
+        ScheduledExecutorService ticker = Executors.newScheduledThreadPool(
+                Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+        for (BotClient bot : bots) {
+            ticker.scheduleAtFixedRate(() -> bot.tick(Engine.dt), 0, 16, TimeUnit.MILLISECONDS);
+        }
+
+        Thread.sleep(duration * 1000L);
+
+        // 3. Para tudo e junta os números (stats do servidor antes dos bots desconectarem)
+        ticker.shutdownNow();
+        String serverClients = server != null ? serverClientStats(server.getNetwork()) : "[]";
+
+        for (BotClient bot : bots) {
+            bot.stop();
+        }
+
+        int bodies = server != null ? server.stop() : -1;
+
+        System.out.println(report(clients, duration, inputRate, budget, server, bodies, serverClients, bots));
+        System.exit(0);
+    }
+
+    // RTT / perda que o servidor estimou pelos ACKs de cada bot
+    private static String serverClientStats(Network net) {
+        StringBuilder sb = new StringBuilder("[");
+        for (Network.ClientConnection c : net.getClients()) {
+            if (sb.length() > 1)
+                sb.append(',');
+            sb.append(String.format(Locale.US,
+                    "{\"clientId\":%d,\"rttMs\":%.3f,\"lossRate\":%.4f,\"bytesSent\":%d,\"packetsSent\":%d,\"packetsLost\":%d}",
+                    c.id, c.stats.getRttMillis(), c.stats.getLossRate(), c.stats.getBytesSent(),
+                    c.stats.getPacketsSent(), c.stats.getPacketsLost()));
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String report(int clients, int duration, double inputRate, int budget, HeadlessServer server,
+            int bodies, String serverClients, List<BotClient> bots) {
+        StringBuilder sb = new StringBuilder();
+        sb.append('{');
+        sb.append(String.format(Locale.US, "\"clients\":%d,\"durationSec\":%d,\"inputRatePerClient\":%.2f,\"budget\":%d,",
+                clients, duration, inputRate, budget));
+
+        if (server != null) {
+            sb.append("\"server\":{\"tickMs\":").append(server.getTickTimes().toJson())
+                    .append(",\"bodies\":").append(bodies)
+                    .append(",\"clients\":").append(serverClients).append("},");
+        } else {
+            sb.append("\"server\":null,");
+        }
+
+        long tcp = 0, udp = 0;
+        sb.append("\"bots\":[");
+        for (int i = 0; i < bots.size(); i++) {
+            if (i > 0)
+                sb.append(',');
+            sb.append(bots.get(i).toJson());
+            tcp += bots.get(i).getTcpBytes();
+            udp += bots.get(i).getUdpBytes();
+        }
+        sb.append("],");
+
+        sb.append(String.format(Locale.US, "\"totals\":{\"tcpBytes\":%d,\"udpBytes\":%d,\"bytesPerSecPerClient\":%.1f}",
+                tcp, udp, (tcp + udp) / (double) duration / Math.max(1, clients)));
+        sb.append('}');
+        return sb.toString();
+    }
+
+    // --chave valor / --flag
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--"))
+                continue;
+            String key = args[i].substring(2);
+            if (i + 1 < args.length && !args[i + 1].startsWith("--")) {
+                opts.put(key, args[++i]);
+            } else {
+                opts.put(key, "true");
+            }
+        }
+        return opts;
+    }
+}
@@ -8,11 +8,41 @@ public class Manifold {
         Vector2 normal; // From A to B
         Vector2[] contacts; // Points of contact during collision
         int contactCount; // Number of contacts
+        // Penetração de cada ponto quando há dois (polígono x polígono); 'penetration' fica
+        // com a do último, como no original
+        final double[] depths = new double[2];
 
         float e; // Restitution
         float sf; // Static Friction
         float df; // Dynamic Friction
 
+        // Polígono x polígono: o que o narrowphase deixou para o par no step anterior (hint, vem
+        // do PairCache do Scene) e o que deixa agora. SAT: face separadora de A ou
+        // 'face | Colision.FACE_OF_B'; GJK: direção que separou e os suportes nela. É só um
+        // palpite: o backend confere antes de usar, então qualquer valor dá o mesmo resultado.
+        int pairHint = PairCache.NONE;
+        int pairResult = PairCache.NONE;
+
+        // --- SUB-STEPPING (Scene.substeps > 1, ver beginSubsteps) ---
+        // Separação de cada ponto, poses e ângulos no início do step, para estimar a
+        // separação nos sub-passos sem refazer a colisão
+        private final double[] baseSeparation = new double[2];
+        double ax0, ay0, bx0, by0;
+        float angleA0, angleB0;
+        // Por ponto: braços (x, y) do início do step, massas efetivas na normal e na
+        // tangente, impulsos acumulados e velocidade normal inicial (restituição)
+        private final double[] ra = new double[4], rb = new double[4];
+        private final double[] normalMass = new double[2], tangentMass = new double[2];
+        private final double[] normalImpulse = new double[2], tangentImpulse = new double[2];
+        private final double[] approachVelocity = new double[2];
+
+        // Contato macio: rigidez (limitada pela frequência dos sub-passos), amortecimento e
+        // velocidade máxima com que a penetração é desfeita
+        static final double CONTACT_HERTZ = 30;
+        static final double CONTACT_DAMPING_RATIO = 10;
+        static final double MAX_PUSH_VELOCITY = 3;
+        static final double LINEAR_SLOP = 0.005;
+
         Manifold(RigidBody a, RigidBody b) {
                 this.A = a;
                 this.B = b;
@@ -25,6 +55,25 @@ public class Manifold {
                 contactCount = 0;
         }
 
+        // Volta ao estado de recém-criado para outro par (ManifoldPool), sem alocar
+        void reset(RigidBody a, RigidBody b) {
+                A = a;
+                B = b;
+                penetration = 0;
+                normal.set(0, 0);
+                contacts[0].set(0, 0);
+                contacts[1].set(0, 0);
+                contactCount = 0;
+                e = 0;
+                sf = 0;
+                df = 0;
+                pairHint = PairCache.NONE;
+                pairResult = PairCache.NONE;
+                depths[0] = depths[1] = 0;
+                ax0 = ay0 = bx0 = by0 = 0;
+                angleA0 = angleB0 = 0;
+        }
+
         private static final CollisionCallback[][] dispatch = {
                         // LINHA 0: Se o Objeto A for CIRCLE
                         {
@@ -39,9 +88,21 @@ public class Manifold {
                         }
         };
 
-        void Solve() {
+        // GJK/EPA: o mesmo caminho para qualquer par de formas convexas
+        private static final CollisionCallback[][] gjkDispatch = {
+                        { Gjk::collide, Gjk::collide },
+                        { Gjk::collide, Gjk::collide }
+        };
+
+        public enum Backend {
+                SAT, GJK
+        }
+
+        // Backend do narrowphase: o da cena (Scene.narrowphase)
+        void Solve(Backend backend) {
                 // Chama a função correta usando a tabela de despacho
-                dispatch[A.shape.getType().ordinal()][B.shape.getType().ordinal()].resolve(this, A, B);
+                CollisionCallback[][] table = (backend == Backend.GJK) ? gjkDispatch : dispatch;
+                table[A.shape.getType().ordinal()][B.shape.getType().ordinal()].resolve(this, A, B);
         }
 
         void Initialize() {
@@ -52,24 +113,36 @@ public class Manifold {
                 sf = (float) Math.sqrt(A.staticFriction * B.staticFriction);
                 df = (float) Math.sqrt(A.dynamicFriction * B.dynamicFriction);
 
+                // Contas em double, sem Vector2 temporário, na mesma ordem das operações de
+                // antes (Add/Cross/Negate): o resultado é o mesmo bit a bit
+                double gx = Engine.gravity.x * Engine.dt, gy = Engine.gravity.y * Engine.dt;
                 for (int i = 0; i < contactCount; i++) {
                         // Calculate radii from COM to contact
-                        Vector2 ra = contacts[i].subtract(A.position);
-                        Vector2 rb = contacts[i].subtract(B.position);
+                        double rax = contacts[i].x - A.position.x, ray = contacts[i].y - A.position.y;
+                        double rbx = contacts[i].x - B.position.x, rby = contacts[i].y - B.position.y;
 
                         // Relative velocity
-                        Vector2 rv = Vector2.Add(
-                                        Vector2.Add(B.velocity, Vector2.Cross(B.angularVelocity, rb)),
-                                        Vector2.Negate(Vector2.Add(A.velocity, Vector2.Cross(A.angularVelocity, ra))));
+                        double rvx = relativeVelocityX(ray, rby);
+                        double rvy = relativeVelocityY(rax, rbx);
 
                         // Determine if we should perform a resting collision or not
-                        if (rv.LengthSquared() < (Engine.gravity.multiply(Engine.dt).LengthSquared()
-                                        + Engine.EPSILON)) {
+                        if (rvx * rvx + rvy * rvy < (gx * gx + gy * gy + Engine.EPSILON)) {
                                 e = 0.0f;
                         }
                 }
         }
 
+        // vB + wB x rb - (vA + wA x ra), como Vector2.Add(Add(vB, Cross(wB, rb)), Negate(...))
+        private double relativeVelocityX(double ray, double rby) {
+                double wb = B.angularVelocity, wa = A.angularVelocity;
+                return (B.velocity.x + -wb * rby) + -(A.velocity.x + -wa * ray);
+        }
+
+        private double relativeVelocityY(double rax, double rbx) {
+                double wb = B.angularVelocity, wa = A.angularVelocity;
+                return (B.velocity.y + wb * rbx) + -(A.velocity.y + wa * rax);
+        }
+
         void ApplyImpulse() {
                 // If both objects have infinite mass, do nothing
                 if (A.invMass + B.invMass == 0) {
@@ -77,25 +150,26 @@ public class Manifold {
                         return;
                 }
 
+                // Mesmas contas da versão com Vector2 (ver Initialize), em double
+                double nx = normal.x, ny = normal.y;
                 for (int i = 0; i < contactCount; i++) {
                         // Calculate radii from COM to contact
-                        Vector2 ra = contacts[i].subtract(A.position);
-                        Vector2 rb = contacts[i].subtract(B.position);
+                        double rax = contacts[i].x - A.position.x, ray = contacts[i].y - A.position.y;
+                        double rbx = contacts[i].x - B.position.x, rby = contacts[i].y - B.position.y;
 
                         // Relative velocity
-                        Vector2 rv = Vector2.Add(
-                                        Vector2.Add(B.velocity, Vector2.Cross(B.angularVelocity, rb)),
-                                        Vector2.Negate(Vector2.Add(A.velocity, Vector2.Cross(A.angularVelocity, ra))));
+                        double rvx = relativeVelocityX(ray, rby);
+                        double rvy = relativeVelocityY(rax, rbx);
 
                         // Relative velocity along the normal
-                        double contactVel = Vector2.Dot(rv, normal);
+                        double contactVel = rvx * nx + rvy * ny;
 
                         // Do not resolve if velocities are separating
                         if (contactVel > 0)
                                 return;
 
-                        double raCrossN = Vector2.Cross(ra, normal);
-                        double rbCrossN = Vector2.Cross(rb, normal);
+                        double raCrossN = rax * ny - ray * nx;
+                        double rbCrossN = rbx * ny - rby * nx;
                         double invMassSum = A.invMass + B.invMass + (raCrossN * raCrossN) * A.invInertia
                                         + (rbCrossN * rbCrossN) * B.invInertia;
 
@@ -105,20 +179,27 @@ public class Manifold {
                         j /= contactCount;
 
                         // Apply impulse
-                        Vector2 impulse = Vector2.Multiply(normal, j);
-                        A.ApplyImpulse(Vector2.Negate(impulse), ra);
-                        B.ApplyImpulse(impulse, rb);
+                        double ix = nx * j, iy = ny * j;
+                        A.applyImpulse(-ix, -iy, rax, ray);
+                        B.applyImpulse(ix, iy, rbx, rby);
 
                         // Friction Impulse
-                        rv = Vector2.Add(
-                                        Vector2.Add(B.velocity, Vector2.Cross(B.angularVelocity, rb)),
-                                        Vector2.Negate(Vector2.Add(A.velocity, Vector2.Cross(A.angularVelocity, ra))));
-
-                        Vector2 t = rv.subtract(Vector2.Multiply(normal, Vector2.Dot(rv, normal)));
-                        t = t.normalize();
+                        rvx = relativeVelocityX(ray, rby);
+                        rvy = relativeVelocityY(rax, rbx);
+
+                        double along = rvx * nx + rvy * ny;
+                        double tx = rvx - nx * along, ty = rvy - ny * along;
+                        double len = Math.sqrt(tx * tx + ty * ty); // Vector2.normalize()
+                        if (len == 0) {
+                                tx = 0;
+                                ty = 0;
+                        } else {
+                                tx = tx / len;
+                                ty = ty / len;
+                        }
 
                         // j tangent magnitude
-                        double jt = -Vector2.Dot(rv, t);
+                        double jt = -(rvx * tx + rvy * ty);
                         jt /= invMassSum;
                         jt /= contactCount;
 
@@ -127,31 +208,158 @@ public class Manifold {
                                 return;
 
                         // Coulumb's law
-                        Vector2 tangentImpulse;
-                        if (Math.abs(jt) < j * sf) {
-                                tangentImpulse = Vector2.Multiply(t, jt);
-                        } else {
-                                tangentImpulse = Vector2.Multiply(t, -j * df);
-                        }
+                        double scale = (Math.abs(jt) < j * sf) ? jt : -j * df;
+                        double fx = tx * scale, fy = ty * scale;
 
                         // Apply friction impulse
-                        A.ApplyImpulse(Vector2.Negate(tangentImpulse), ra);
-                        B.ApplyImpulse(tangentImpulse, rb);
+                        A.applyImpulse(-fx, -fy, rax, ray);
+                        B.applyImpulse(fx, fy, rbx, rby);
                 }
         }
 
         void PositionalCorrection() {
                 final double k_slop = 0.05; // Penetração permitida
                 final double percent = 0.4; // Correção percentual
-                Vector2 correction = Vector2.Multiply(normal,
-                                Math.max(penetration - k_slop, 0.0) / (A.invMass + B.invMass) * percent);
-                A.position = A.position.subtract(Vector2.Multiply(correction, A.invMass));
-                B.position = B.position.add(Vector2.Multiply(correction, B.invMass));
+                double s = Math.max(penetration - k_slop, 0.0) / (A.invMass + B.invMass) * percent;
+                double cx = normal.x * s, cy = normal.y * s;
+                // No lugar: ninguém guarda a referência de position entre steps
+                A.position.set(A.position.x - cx * A.invMass, A.position.y - cy * A.invMass);
+                B.position.set(B.position.x + cx * B.invMass, B.position.y + cy * B.invMass);
+        }
+
+        // --- SUB-STEPPING ---
+        // Contato macio com impulso acumulado (soft step). Os pontos do início do step valem
+        // para todos os sub-passos e a separação de cada um é estimada pelo quanto os corpos
+        // andaram e giraram desde então. Em cada sub-passo o Scene chama warmStart() (reaplica
+        // o impulso acumulado: a gravidade do sub-passo é a mesma), solveSubstep(true) (a
+        // penetração vira uma mola amortecida, no lugar do PositionalCorrection) e, depois de
+        // integrar as posições, solveSubstep(false) (relax: tira a velocidade que o bias
+        // deixou). A restituição entra uma vez, no fim do step (applyRestitution).
+
+        // Depois do Initialize(), uma vez por step
+        void beginSubsteps() {
+                ax0 = A.position.x;
+                ay0 = A.position.y;
+                bx0 = B.position.x;
+                by0 = B.position.y;
+                angleA0 = A.angle;
+                angleB0 = B.angle;
+
+                double nx = normal.x, ny = normal.y, tx = ny, ty = -nx;
+                double mA = A.invMass, mB = B.invMass, iA = A.invInertia, iB = B.invInertia;
+                for (int i = 0; i < contactCount; i++) {
+                        double rax = contacts[i].x - A.position.x, ray = contacts[i].y - A.position.y;
+                        double rbx = contacts[i].x - B.position.x, rby = contacts[i].y - B.position.y;
+                        // Com dois pontos cada um tem a sua: com a mesma nos dois, uma caixa
+                        // inclinada não teria torque para voltar
+                        baseSeparation[i] = contactCount > 1 ? -depths[i] : -penetration;
+                        ra[2 * i] = rax;
+                        ra[2 * i + 1] = ray;
+                        rb[2 * i] = rbx;
+                        rb[2 * i + 1] = rby;
+
+                        double rnA = rax * ny - ray * nx, rnB = rbx * ny - rby * nx;
+                        double kn = mA + mB + iA * rnA * rnA + iB * rnB * rnB;
+                        normalMass[i] = kn > 0 ? 1.0 / kn : 0;
+                        double rtA = rax * ty - ray * tx, rtB = rbx * ty - rby * tx;
+                        double kt = mA + mB + iA * rtA * rtA + iB * rtB * rtB;
+                        tangentMass[i] = kt > 0 ? 1.0 / kt : 0;
+
+                        normalImpulse[i] = 0;
+                        tangentImpulse[i] = 0;
+                        approachVelocity[i] = relativeVelocityX(ray, rby) * nx + relativeVelocityY(rax, rbx) * ny;
+                }
+        }
+
+        void warmStart() {
+                double nx = normal.x, ny = normal.y, tx = ny, ty = -nx;
+                for (int i = 0; i < contactCount; i++) {
+                        double px = normalImpulse[i] * nx + tangentImpulse[i] * tx;
+                        double py = normalImpulse[i] * ny + tangentImpulse[i] * ty;
+                        A.applyImpulse(-px, -py, ra[2 * i], ra[2 * i + 1]);
+                        B.applyImpulse(px, py, rb[2 * i], rb[2 * i + 1]);
+                }
+        }
+
+        // Uma passada nos pontos: normal (com o bias macio se useBias) e depois o atrito,
+        // limitado pelo impulso normal acumulado (Coulomb)
+        void solveSubstep(double h, boolean useBias) {
+                if (A.invMass + B.invMass == 0)
+                        return;
+
+                // Mola do contato na forma implícita (ver Joint/MouseJoint): bias, escala da
+                // massa e quanto do impulso acumulado "vaza" por passada
+                double omega = 2 * Math.PI * Math.min(CONTACT_HERTZ, 0.25 / h);
+                double a1 = 2 * CONTACT_DAMPING_RATIO + h * omega;
+                double a2 = h * omega * a1;
+                double a3 = 1 / (1 + a2);
+                double biasRate = omega / a1, softMass = a2 * a3, softImpulse = a3;
+
+                double nx = normal.x, ny = normal.y, tx = ny, ty = -nx;
+                double dpx = (B.position.x - bx0) - (A.position.x - ax0);
+                double dpy = (B.position.y - by0) - (A.position.y - ay0);
+                double dA = A.angle - angleA0, dB = B.angle - angleB0;
+
+                for (int i = 0; i < contactCount; i++) {
+                        double rax = ra[2 * i], ray = ra[2 * i + 1], rbx = rb[2 * i], rby = rb[2 * i + 1];
+
+                        // Separação atual: a do início mais o afastamento dos dois pontos na normal
+                        // (giro pequeno: o braço anda d x r)
+                        double sx = dpx + (-dB * rby) - (-dA * ray);
+                        double sy = dpy + (dB * rbx) - (dA * rax);
+                        double separation = baseSeparation[i] + sx * nx + sy * ny + LINEAR_SLOP;
+
+                        double bias = 0, massScale = 1, impulseScale = 0;
+                        if (separation > 0) {
+                                bias = separation / h; // Ainda separados: pode chegar até encostar
+                        } else if (useBias) {
+                                bias = Math.max(biasRate * separation, -MAX_PUSH_VELOCITY);
+                                massScale = softMass;
+                                impulseScale = softImpulse;
+                        }
+
+                        double vn = relativeVelocityX(ray, rby) * nx + relativeVelocityY(rax, rbx) * ny;
+                        double impulse = -normalMass[i] * massScale * (vn + bias) - impulseScale * normalImpulse[i];
+                        double total = Math.max(normalImpulse[i] + impulse, 0);
+                        impulse = total - normalImpulse[i];
+                        normalImpulse[i] = total;
+                        A.applyImpulse(-impulse * nx, -impulse * ny, rax, ray);
+                        B.applyImpulse(impulse * nx, impulse * ny, rbx, rby);
+
+                        double vt = relativeVelocityX(ray, rby) * tx + relativeVelocityY(rax, rbx) * ty;
+                        double limit = sf * normalImpulse[i];
+                        double friction = Math.max(-limit, Math.min(tangentImpulse[i] - tangentMass[i] * vt, limit));
+                        impulse = friction - tangentImpulse[i];
+                        tangentImpulse[i] = friction;
+                        A.applyImpulse(-impulse * tx, -impulse * ty, rax, ray);
+                        B.applyImpulse(impulse * tx, impulse * ty, rbx, rby);
+                }
+        }
+
+        // Fim do step: quem chegou batendo (e > 0, ver Initialize) sai com -e vezes a
+        // velocidade de aproximação do início do step
+        void applyRestitution() {
+                if (e == 0 || A.invMass + B.invMass == 0)
+                        return;
+
+                double nx = normal.x, ny = normal.y;
+                for (int i = 0; i < contactCount; i++) {
+                        if (approachVelocity[i] >= 0 || normalImpulse[i] == 0)
+                                continue;
+                        double rax = ra[2 * i], ray = ra[2 * i + 1], rbx = rb[2 * i], rby = rb[2 * i + 1];
+                        double vn = relativeVelocityX(ray, rby) * nx + relativeVelocityY(rax, rbx) * ny;
+                        double impulse = -normalMass[i] * (vn + e * approachVelocity[i]);
+                        double total = Math.max(normalImpulse[i] + impulse, 0);
+                        impulse = total - normalImpulse[i];
+                        normalImpulse[i] = total;
+                        A.applyImpulse(-impulse * nx, -impulse * ny, rax, ray);
+                        B.applyImpulse(impulse * nx, impulse * ny, rbx, rby);
+                }
         }
 
         void InfiniteMassCorrection() {
-                A.velocity = new Vector2(0, 0);
-                B.velocity = new Vector2(0, 0);
+                A.velocity.set(0, 0);
+                B.velocity.set(0, 0);
         }
 
 }
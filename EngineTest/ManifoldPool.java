@@ -0,0 +1,41 @@
+package EngineTest;
+
+import java.util.Arrays;
+
+// Manifolds do Scene reaproveitados de um step para o outro, para o narrowphase não alocar
+// um (mais a normal e os dois pontos) por par testado.
+//
+// No step: reset() no começo, acquire() para cada par e keep() só nos que deram contato;
+// o próximo acquire() reaproveita o descartado. Os mantidos valem até o próximo reset()
+// (Scene.contacts aponta para eles).
+class ManifoldPool {
+
+    private Manifold[] pool = new Manifold[256];
+    private int kept = 0;
+
+    // Manifold limpo para o par (o mesmo objeto até alguém chamar keep())
+    Manifold acquire(RigidBody a, RigidBody b) {
+        if (kept == pool.length)
+            pool = Arrays.copyOf(pool, pool.length * 2);
+
+        Manifold m = pool[kept];
+        if (m == null)
+            return pool[kept] = new Manifold(a, b);
+        m.reset(a, b);
+        return m;
+    }
+
+    // O último acquire() fica até o próximo reset()
+    void keep() {
+        kept++;
+    }
+
+    void reset() {
+        // Solta os corpos dos manifolds usados (um corpo removido não fica preso no pool)
+        for (int i = 0; i <= kept && i < pool.length && pool[i] != null; i++) {
+            pool[i].A = null;
+            pool[i].B = null;
+        }
+        kept = 0;
+    }
+}
@@ -0,0 +1,192 @@
+package EngineTest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+
+// Endpoint HTTP local com as métricas do servidor no formato texto do Prometheus.
+// Nada é empurrado para cá: cada GET /metrics lê os contadores que o ServerLoop, a Scene
+// e o Network já mantêm, então o custo no tick é zero.
+//
+// Ligado por propriedade do sistema:
+// -Dmetrics.port=9100   ->   curl http://127.0.0.1:9100/metrics
+public class MetricsServer {
+
+    private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 1.0 };
+
+    private final ServerLoop loop;
+    private final HttpServer http;
+
+    public MetricsServer(ServerLoop loop, int port) throws IOException {
+        this.loop = loop;
+
+        // Só na interface local: não é para ficar exposto na rede do jogo
+        http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        http.createContext("/metrics", this::handle);
+        http.setExecutor(Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "MetricsServer");
+            t.setDaemon(true);
+            return t;
+        }));
+    }
+
+    // null se -Dmetrics.port não estiver definido
+    public static MetricsServer fromSystemProperties(ServerLoop loop) throws IOException {
+        Integer port = Integer.getInteger("metrics.port");
+        if (port == null)
+            return null;
+
+        MetricsServer server = new MetricsServer(loop, port);
+        server.start();
+        return server;
+    }
+
+    public void start() {
+        http.start();
+    }
+
+    public void stop() {
+        http.stop(0);
+    }
+
+    public int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] body = render().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+        }
+    }
+
+    // Monta o texto inteiro (chamado na thread do HTTP, fora do tick)
+    String render() {
+        StringBuilder sb = new StringBuilder(4096);
+        Scene scene = loop.getScene();
+        Network net = loop.getNetwork();
+        StepProfiler prof = scene.profiler;
+
+        // --- TICK / STEP ---
+        summary(sb, "engine_tick_seconds", "Duração do tick do servidor (comandos + step + envio)",
+                loop.getTickHistogram(), null);
+
+        header(sb, "engine_step_phase_seconds", "summary", "Duração de cada fase do Scene.step()");
+        for (StepProfiler.Phase phase : StepProfiler.Phase.values()) {
+            summaryValues(sb, "engine_step_phase_seconds", prof.getHistogram(phase),
+                    "phase=\"" + phase.name().toLowerCase(Locale.ROOT) + "\"");
+        }
+
+        gauge(sb, "engine_bodies", "Corpos na cena", scene.bodies.size());
+        gauge(sb, "engine_contacts", "Contatos no último step", prof.getLastContacts());
+        gauge(sb, "engine_pair_tests", "Pares testados no último step", prof.getLastPairTests());
+        counter(sb, "engine_steps_total", "Steps simulados", scene.tick);
+        counter(sb, "engine_step_allocated_bytes_total", "Bytes alocados dentro do step (só com -Dsim.profileAllocations=true)", prof.getTotalAllocatedBytes());
+        counter(sb, "engine_ccd_hits_total", "Corpos rápidos parados pelo CCD no ponto de impacto", scene.getCcdHits());
+        counter(sb, "engine_static_rebuilds_total", "Vezes que a BVH dos corpos estáticos foi refeita", scene.getStaticRebuilds());
+        counter(sb, "engine_desyncs_total", "Clientes que avisaram hash diferente do servidor (modo determinístico)", scene.worldHash.getDesyncs());
+
+        RollbackBuffer rollback = scene.rollback;
+        if (rollback != null) {
+            counter(sb, "engine_rollbacks_total", "INPUTs aplicados no passado", rollback.getRollbacks());
+            counter(sb, "engine_resimulated_ticks_total", "Ticks ressimulados", rollback.getResimulatedTicks());
+            counter(sb, "engine_rollback_clamped_total", "INPUTs mais velhos que o anel/orçamento", rollback.getClampedInputs());
+        }
+
+        // --- REDE ---
+        gauge(sb, "net_clients", "Clientes conectados", net.getClients().size());
+        gauge(sb, "net_command_queue_depth", "Comandos esperando o processCommands", net.getQueueDepth());
+
+        header(sb, "net_bytes_total", "counter", "Bytes por canal e direção");
+        sample(sb, "net_bytes_total", "channel=\"tcp\",direction=\"in\"", net.getTcpBytesIn());
+        sample(sb, "net_bytes_total", "channel=\"tcp\",direction=\"out\"", net.getTcpBytesOut());
+        sample(sb, "net_bytes_total", "channel=\"udp\",direction=\"in\"", net.getUdpBytesIn());
+        sample(sb, "net_bytes_total", "channel=\"udp\",direction=\"out\"", net.getUdpBytesOut());
+
+        // Por cliente (estimado pelos ACKs; reordenados/descartados o cliente conta e manda no ACK)
+        header(sb, "net_client_loss_ratio", "gauge", "Perda de pacotes estimada (média móvel)");
+        for (Network.ClientConnection c : net.getClients()) {
+            sample(sb, "net_client_loss_ratio", "client=\"" + c.id + "\"", c.stats.getLossRate());
+        }
+        header(sb, "net_client_rtt_seconds", "gauge", "RTT suavizado");
+        for (Network.ClientConnection c : net.getClients()) {
+            sample(sb, "net_client_rtt_seconds", "client=\"" + c.id + "\"", c.stats.getRttMillis() / 1000.0);
+        }
+        header(sb, "net_client_packets_lost_total", "counter", "Datagramas SYNC dados como perdidos");
+        for (Network.ClientConnection c : net.getClients()) {
+            sample(sb, "net_client_packets_lost_total", "client=\"" + c.id + "\"", c.stats.getPacketsLost());
+        }
+        header(sb, "net_client_packets_reordered_total", "counter", "Datagramas SYNC que chegaram fora de ordem no cliente");
+        for (Network.ClientConnection c : net.getClients()) {
+            sample(sb, "net_client_packets_reordered_total", "client=\"" + c.id + "\"", c.stats.getPacketsReordered());
+        }
+        header(sb, "net_client_packets_stale_total", "counter", "SYNC velhos/duplicados descartados pelo cliente");
+        for (Network.ClientConnection c : net.getClients()) {
+            sample(sb, "net_client_packets_stale_total", "client=\"" + c.id + "\"", c.stats.getPacketsStale());
+        }
+
+        LinkConditioner conditioner = net.getConditioner();
+        if (conditioner != null) {
+            header(sb, "net_sim_packets_total", "counter", "Efeitos aplicados pelo emulador de rede");
+            sample(sb, "net_sim_packets_total", "effect=\"dropped\"", conditioner.getDropped());
+            sample(sb, "net_sim_packets_total", "effect=\"duplicated\"", conditioner.getDuplicated());
+            sample(sb, "net_sim_packets_total", "effect=\"reordered\"", conditioner.getReordered());
+        }
+
+        return sb.toString();
+    }
+
+    // --- FORMATO ---
+    private static void header(StringBuilder sb, String name, String type, String help) {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, double value) {
+        sb.append(name);
+        if (labels != null)
+            sb.append('{').append(labels).append('}');
+        sb.append(' ').append(value).append('\n');
+    }
+
+    private static void sample(StringBuilder sb, String name, String labels, long value) {
+        sb.append(name);
+        if (labels != null)
+            sb.append('{').append(labels).append('}');
+        sb.append(' ').append(value).append('\n');
+    }
+
+    private static void gauge(StringBuilder sb, String name, String help, long value) {
+        header(sb, name, "gauge", help);
+        sample(sb, name, null, value);
+    }
+
+    private static void counter(StringBuilder sb, String name, String help, long value) {
+        header(sb, name, "counter", help);
+        sample(sb, name, null, value);
+    }
+
+    private static void summary(StringBuilder sb, String name, String help, RollingHistogram h, String labels) {
+        header(sb, name, "summary", help);
+        summaryValues(sb, name, h, labels);
+    }
+
+    // Quantis da janela recente + soma/contagem desde o início (nanos -> segundos)
+    private static void summaryValues(StringBuilder sb, String name, RollingHistogram h, String labels) {
+        String prefix = labels != null ? labels + "," : "";
+        for (double q : QUANTILES) {
+            sample(sb, name, prefix + "quantile=\"" + q + "\"", h.percentile(q * 100) / 1e9);
+        }
+        sample(sb, name + "_sum", labels, h.getTotalSum() / 1e9);
+        sample(sb, name + "_count", labels, h.getTotalCount());
+    }
+}
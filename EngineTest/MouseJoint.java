@@ -0,0 +1,141 @@
+package EngineTest;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.nio.ByteBuffer;
+
+// Puxa um ponto do corpo até um alvo no mundo (arrastar com o mouse) com uma mola macia
+// (frequency em Hz, dampingRatio) e força limitada a maxForce, para não atravessar nada
+// quando o alvo vai longe. Muda o alvo com setTarget() a cada step.
+public class MouseJoint implements Constraint {
+
+    public final RigidBody body;
+    private final double localX, localY;
+    private double targetX, targetY;
+
+    public double frequency = 5;
+    public double dampingRatio = 0.7;
+    public double maxForce;
+
+    // Do initialize(): braço, inversa da massa efetiva 2x2 (com a maciez), bias, gamma e o
+    // maior impulso acumulado (maxForce * h)
+    private double rx, ry, m11, m12, m22, biasX, biasY, gamma, maxImpulse;
+    private double impulseX = 0, impulseY = 0;
+
+    // Pega o corpo no ponto (x, y) do mundo; o alvo começa nele
+    public MouseJoint(RigidBody body, double x, double y) {
+        this.body = body;
+        localX = Joint.localX(body, x, y);
+        localY = Joint.localY(body, x, y);
+        targetX = x;
+        targetY = y;
+        maxForce = 1000 * body.mass;
+    }
+
+    // Do snapshot (ver write)
+    MouseJoint(RigidBody body, ByteBuffer buf) {
+        this.body = body;
+        localX = buf.getDouble();
+        localY = buf.getDouble();
+        targetX = buf.getDouble();
+        targetY = buf.getDouble();
+        frequency = buf.getDouble();
+        dampingRatio = buf.getDouble();
+        maxForce = buf.getDouble();
+        impulseX = buf.getDouble();
+        impulseY = buf.getDouble();
+    }
+
+    void write(ByteBuffer buf) {
+        buf.putDouble(localX);
+        buf.putDouble(localY);
+        buf.putDouble(targetX);
+        buf.putDouble(targetY);
+        buf.putDouble(frequency);
+        buf.putDouble(dampingRatio);
+        buf.putDouble(maxForce);
+        buf.putDouble(impulseX);
+        buf.putDouble(impulseY);
+    }
+
+    @Override
+    public int stateSize() {
+        return 2;
+    }
+
+    @Override
+    public void saveState(double[] out, int offset) {
+        out[offset] = impulseX;
+        out[offset + 1] = impulseY;
+    }
+
+    @Override
+    public void restoreState(double[] in, int offset) {
+        impulseX = in[offset];
+        impulseY = in[offset + 1];
+    }
+
+    public void setTarget(double x, double y) {
+        targetX = x;
+        targetY = y;
+    }
+
+    @Override
+    public void initialize(double dt, double h) {
+        double c = Joint.cos(body), s = Joint.sin(body);
+        rx = c * localX - s * localY;
+        ry = s * localX + c * localY;
+
+        double m = body.mass;
+        double omega = 2 * Math.PI * frequency;
+        double stiffness = m * omega * omega;
+        double damping = 2 * m * dampingRatio * omega;
+        gamma = h * (damping + h * stiffness);
+        gamma = gamma != 0 ? 1.0 / gamma : 0;
+        double beta = h * stiffness * gamma;
+        maxImpulse = maxForce * h;
+
+        double iM = body.invMass, iI = body.invInertia;
+        double k11 = iM + iI * ry * ry + gamma;
+        double k12 = -iI * rx * ry;
+        double k22 = iM + iI * rx * rx + gamma;
+        double det = k11 * k22 - k12 * k12;
+        if (det != 0)
+            det = 1.0 / det;
+        m11 = det * k22;
+        m12 = -det * k12;
+        m22 = det * k11;
+
+        biasX = (body.position.x + rx - targetX) * beta;
+        biasY = (body.position.y + ry - targetY) * beta;
+
+        body.applyImpulse(impulseX, impulseY, rx, ry);
+    }
+
+    @Override
+    public void solve() {
+        double vx = body.velocity.x - body.angularVelocity * ry + biasX + gamma * impulseX;
+        double vy = body.velocity.y + body.angularVelocity * rx + biasY + gamma * impulseY;
+        double oldX = impulseX, oldY = impulseY;
+        impulseX += -(m11 * vx + m12 * vy);
+        impulseY += -(m12 * vx + m22 * vy);
+
+        double len2 = impulseX * impulseX + impulseY * impulseY;
+        if (len2 > maxImpulse * maxImpulse) {
+            double scale = maxImpulse / Math.sqrt(len2);
+            impulseX *= scale;
+            impulseY *= scale;
+        }
+        body.applyImpulse(impulseX - oldX, impulseY - oldY, rx, ry);
+    }
+
+    @Override
+    public void draw(Graphics2D g, double scale, int screenHeight) {
+        double c = Joint.cos(body), s = Joint.sin(body);
+        double px = body.position.x + c * localX - s * localY, py = body.position.y + s * localX + c * localY;
+
+        g.setColor(Color.YELLOW);
+        g.drawLine((int) (px * scale), (int) (screenHeight - py * scale), (int) (targetX * scale),
+                (int) (screenHeight - targetY * scale));
+    }
+}
@@ -2,7 +2,10 @@ package EngineTest;
 
 import java.io.*;
 import java.net.*;
+import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.swing.SwingUtilities;
 
 public class Network {
@@ -22,42 +25,127 @@ public class Network {
     private Thread udpListener;
 
     public boolean isServer = false;
-    private ConfigPanel uiCallback;
+    private NetworkListener uiCallback;
 
     // Buffer Compartilhado (TCP e UDP jogam comandos aqui)
     private ConcurrentLinkedQueue<NetworkCommand> commandBuffer = new ConcurrentLinkedQueue<>();
 
-    public Network(ConfigPanel ui) {
+    // Canal de sequência do SYNC (descarta pacotes UDP duplicados/fora de ordem)
+    private final SequenceChannel syncChannel = new SequenceChannel();
+
+    // --- SERVIDOR: Clientes conectados ---
+    private final List<ClientConnection> clients = new CopyOnWriteArrayList<>();
+    // Clientes que acabaram de entrar e ainda precisam receber o mundo (late-join)
+    private final ConcurrentLinkedQueue<ClientConnection> pendingJoins = new ConcurrentLinkedQueue<>();
+    private int nextClientId = 0;
+
+    // --- CLIENTE: ID dado pelo servidor no HANDSHAKE ---
+    private int clientId = -1;
+
+    // Emulador de rede (perda/atraso/...) para testes; null = rede real direto
+    private LinkConditioner conditioner;
+
+    // Bytes por canal (lidos pelo MetricsServer; nada é empurrado para lá)
+    private final AtomicLong tcpBytesIn = new AtomicLong();
+    private final AtomicLong tcpBytesOut = new AtomicLong();
+    private final AtomicLong udpBytesIn = new AtomicLong();
+    private final AtomicLong udpBytesOut = new AtomicLong();
+
+    // Log de cada pacote no console (desligue com -Dnet.debug=false em testes de carga)
+    static final boolean DEBUG = Boolean.parseBoolean(System.getProperty("net.debug", "true"));
+
+    // Tamanho máximo de um datagrama SYNC (abaixo do MTU típico de 1500)
+    public static final int MAX_DATAGRAM = 1200;
+
+    // Um cliente do ponto de vista do servidor (TCP próprio + endereço UDP registrado)
+    public static class ClientConnection {
+        public final int id;
+        final Socket tcpSocket;
+        final PrintWriter out;
+        final BufferedReader in;
+
+        // Preenchidos quando chega o UDP_HELLO
+        volatile InetAddress udpAddress;
+        volatile int udpPort;
+
+        // Sequência do SYNC é por cliente (cada um tem seu canal)
+        final SequenceChannel syncChannel = new SequenceChannel();
+
+        // RTT / perda estimados pelos ACKs
+        public final LinkStats stats = new LinkStats();
+
+        // Onde o cliente está "olhando" (último INPUT dele; começa no centro da tela)
+        public volatile double focusX = 10.0, focusY = 7.5;
+
+        // TCP caiu (marcado pela thread de escuta dele)
+        volatile boolean closed = false;
+
+        ClientConnection(int id, Socket socket) throws IOException {
+            this.id = id;
+            this.tcpSocket = socket;
+            this.out = new PrintWriter(socket.getOutputStream(), true);
+            this.in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+        }
+
+        boolean hasUDP() {
+            return udpAddress != null;
+        }
+
+        public boolean isClosed() {
+            return closed || tcpSocket.isClosed();
+        }
+    }
+
+    public Network(NetworkListener ui) {
         this.uiCallback = ui;
     }
 
+    public void setConditioner(LinkConditioner conditioner) {
+        this.conditioner = conditioner;
+    }
+
+    public LinkConditioner getConditioner() {
+        return conditioner;
+    }
+
     // --- MODO SERVIDOR ---
     public void startServer(int port) {
         isServer = true;
         new Thread(() -> {
             try {
-                // 1. Inicia TCP
+                // 1. Inicia UDP antes de aceitar alguém (o cliente manda UDP_HELLO logo depois)
+                udpSocket = new DatagramSocket(port);
+                startUDPListening();
+                uiCallback.log(">> [UDP] Ouvindo na porta " + port);
+
+                // 2. Inicia TCP
                 serverSocket = new ServerSocket(port);
                 uiCallback.log(">> [TCP] Aguardando...");
 
-                // TRAVA AQUI ATÉ CONECTAR
-                tcpSocket = serverSocket.accept();
+                // Aceita clientes até o servidor ser fechado
+                while (!serverSocket.isClosed()) {
+                    Socket socket = serverSocket.accept();
+                    ClientConnection client = new ClientConnection(nextClientId++, socket);
 
-                setupTCPStreams();
-                uiCallback.log(">> [TCP] Conectado!");
+                    // Diz ao cliente qual é o ID dele (usado no UDP_HELLO)
+                    client.out.println("HANDSHAKE:" + client.id);
 
-                // --- CORREÇÃO: Avisa a UI para abrir o jogo ---
-                uiCallback.onConnected();
-                // ---------------------------------------------
+                    clients.add(client);
+                    pendingJoins.add(client);
+                    uiCallback.log(">> [TCP] Cliente " + client.id + " conectado!");
 
-                startTCPListening();
+                    // Só o primeiro cliente abre o jogo
+                    if (clients.size() == 1) {
+                        uiCallback.onConnected();
+                    }
 
-                // 2. Inicia UDP
-                udpSocket = new DatagramSocket(port);
-                startUDPListening();
-                uiCallback.log(">> [UDP] Ouvindo na porta " + port);
+                    startTCPListening(client);
+                }
 
             } catch (IOException e) {
+                if (serverSocket != null && serverSocket.isClosed())
+                    return; // close() foi chamado
+
                 uiCallback.log("Erro Server: " + e.getMessage());
                 uiCallback.onConnectionFailed(e.getMessage()); // Avisa se falhar
             }
@@ -72,7 +160,13 @@ public class Network {
                 // 1. Conecta TCP
                 tcpSocket = new Socket(ip, port);
                 setupTCPStreams();
-                uiCallback.log(">> [TCP] Conectado!");
+
+                // Primeira linha é sempre o HANDSHAKE com o nosso ID
+                String handshake = in.readLine();
+                if (handshake != null && handshake.startsWith("HANDSHAKE:")) {
+                    clientId = Integer.parseInt(handshake.substring("HANDSHAKE:".length()));
+                }
+                uiCallback.log(">> [TCP] Conectado! (ID " + clientId + ")");
 
                 // --- CORREÇÃO: Avisa a UI para abrir o jogo ---
                 uiCallback.onConnected();
@@ -99,7 +193,7 @@ public class Network {
                 // --------------------------
 
                 // 3. Handshake UDP
-                sendUDP("UDP_HELLO");
+                sendUDP("UDP_HELLO:" + clientId);
                 uiCallback.log(">> [UDP] Canal aberto.");
 
             } catch (IOException e) {
@@ -113,25 +207,112 @@ public class Network {
 
     // TCP: Para SPAWN e INPUT
     public void sendTCP(NetworkCommand cmd) {
+        if (isServer) {
+            String line = cmd.serialize();
+            for (ClientConnection c : clients) {
+                writeTCP(c.out, line);
+            }
+            return;
+        }
+
         if (out != null)
-            out.println(cmd.serialize());
+            writeTCP(out, cmd.serialize());
+    }
+
+    // TCP para um cliente só (ex: snapshot de late-join)
+    public void sendTCP(ClientConnection client, NetworkCommand cmd) {
+        writeTCP(client.out, cmd.serialize());
+        if (client.out.checkError())
+            client.closed = true; // O PrintWriter engole o IOException da escrita
+    }
+
+    private void writeTCP(PrintWriter writer, String line) {
+        tcpBytesOut.addAndGet(line.length() + 1);
+        if (conditioner != null && conditioner.outgoing) {
+            conditioner.submitOrdered(LinkConditioner.Direction.OUT, () -> writer.println(line));
+        } else {
+            writer.println(line);
+        }
     }
 
     // UDP: Para SYNC (Novo!)
     public void sendUDP(NetworkCommand cmd) {
-        if (targetIP != null && udpSocket != null) {
+        if (udpSocket == null)
+            return;
+
+        if (isServer) {
+            for (ClientConnection c : clients) {
+                if (c.hasUDP())
+                    sendUDP(c, cmd);
+            }
+            return;
+        }
+
+        if (targetIP != null) {
+            if (cmd instanceof NetworkCommand.SyncCommand) {
+                ((NetworkCommand.SyncCommand) cmd).seq = syncChannel.next();
+            }
             sendUDP(cmd.serialize());
         }
     }
 
+    // UDP para um cliente só (cada cliente tem sua sequência de SYNC)
+    public void sendUDP(ClientConnection client, NetworkCommand cmd) {
+        if (cmd instanceof NetworkCommand.SyncCommand) {
+            ((NetworkCommand.SyncCommand) cmd).seq = client.syncChannel.next();
+        }
+        sendUDP(cmd.serialize(), client.udpAddress, client.udpPort);
+    }
+
+    // Próxima sequência do canal SYNC do cliente: uma por datagrama
+    public int nextSyncSeq(ClientConnection client) {
+        return client.syncChannel.next();
+    }
+
+    // Datagrama de SYNC já montado pelo SendScheduler ('bodies' linhas, todas com a sequência
+    // 'seq'). A perda é medida por datagrama: o LinkStats registra a sequência uma vez só.
+    // Retorna quantos bytes foram enviados.
+    public int sendSyncDatagram(ClientConnection client, int seq, CharSequence lines, int bodies) {
+        if (udpSocket == null || !client.hasUDP() || bodies == 0)
+            return 0;
+
+        String msg = lines.toString();
+        client.stats.onSend(seq, msg.length(), System.nanoTime());
+        sendUDP(msg, client.udpAddress, client.udpPort);
+
+        SimulationEvents.SnapshotSent event = new SimulationEvents.SnapshotSent();
+        if (event.shouldCommit()) {
+            event.kind = "SYNC";
+            event.client = client.id;
+            event.bodies = bodies;
+            event.bytes = msg.length();
+            event.commit();
+        }
+        return msg.length();
+    }
+
     // Helper interno para mandar String via UDP
     private void sendUDP(String msg) {
+        sendUDP(msg, targetIP, targetPort);
+    }
+
+    private void sendUDP(String msg, InetAddress ip, int port) {
+        if (conditioner != null && conditioner.outgoing) {
+            conditioner.submit(LinkConditioner.Direction.OUT, msg.length(), () -> rawSendUDP(msg, ip, port));
+        } else {
+            rawSendUDP(msg, ip, port);
+        }
+    }
+
+    private void rawSendUDP(String msg, InetAddress ip, int port) {
         try {
             byte[] data = msg.getBytes();
-            DatagramPacket packet = new DatagramPacket(data, data.length, targetIP, targetPort);
+            DatagramPacket packet = new DatagramPacket(data, data.length, ip, port);
             udpSocket.send(packet);
+            udpBytesOut.addAndGet(data.length);
 
-            System.out.println("Enviado UDP: [" + msg + "] to " + targetIP + ":" + targetPort);
+            if (DEBUG)
+                System.out.println("Enviado UDP: [" + msg + "] to " + ip + ":" + port);
 
         } catch (IOException e) {
             System.out.println("Erro UDP Send: " + e.getMessage());
@@ -145,6 +326,15 @@ public class Network {
         } else {
             sendTCP(cmd); // O resto vai seguro!
         }
+
+        SimulationEvents.SnapshotSent event = new SimulationEvents.SnapshotSent();
+        if (event.shouldCommit()) {
+            event.kind = cmd.type.name();
+            event.client = -1;
+            event.bodies = 1;
+            event.bytes = cmd.serialize().length();
+            event.commit();
+        }
     }
 
     // --- RECEBIMENTO ---
@@ -154,7 +344,7 @@ public class Network {
             try {
                 String line;
                 while ((line = in.readLine()) != null) {
-                    processIncomingLine(line);
+                    receiveTCP(line, null);
                 }
             } catch (IOException e) {
                 uiCallback.log("TCP Caiu.");
@@ -163,32 +353,51 @@ public class Network {
         tcpListener.start();
     }
 
+    // Servidor: uma thread de escuta por cliente
+    private void startTCPListening(ClientConnection client) {
+        Thread listener = new Thread(() -> {
+            try {
+                String line;
+                while ((line = client.in.readLine()) != null) {
+                    receiveTCP(line, client);
+                }
+            } catch (IOException e) {
+                // Cai no log abaixo
+            }
+
+            client.closed = true;
+            try {
+                client.tcpSocket.close();
+            } catch (IOException e) {
+                // Já estava fechado
+            }
+            clients.remove(client);
+            pendingJoins.remove(client);
+            uiCallback.log(">> [TCP] Cliente " + client.id + " desconectou.");
+        });
+        listener.start();
+    }
+
     private void startUDPListening() {
         udpListener = new Thread(() -> {
             try {
-                byte[] buffer = new byte[1024]; // 1KB buffer
+                byte[] buffer = new byte[1500]; // 1 MTU (SYNC vem em lotes)
 
                 while (true) {
                     DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
                     udpSocket.receive(packet);
+                    udpBytesIn.addAndGet(packet.getLength());
 
                     String line = new String(packet.getData(), 0, packet.getLength());
-
-                    // Lógica para o Servidor descobrir quem é o Cliente UDP
-                    if (isServer) {
-
-                        System.out.println("DEBUG SERVER RECEBEU UDP: [" + line + "] de " + packet.getAddress());
-                        uiCallback.log("DEBUG SERVER RECEBEU UDP: [" + line + "] de " + packet.getAddress());
-
-                        targetIP = packet.getAddress();
-                        targetPort = packet.getPort();
-                        if (line.equals("UDP_HELLO")) {
-                            uiCallback.log(">> [UDP] Cliente registrado: " + targetIP + ":" + targetPort);
-                            continue;
-                        }
+                    InetAddress address = packet.getAddress();
+                    int port = packet.getPort();
+
+                    if (conditioner != null && conditioner.incoming) {
+                        conditioner.submit(LinkConditioner.Direction.IN, packet.getLength(),
+                                () -> handleDatagram(line, address, port));
+                    } else {
+                        handleDatagram(line, address, port);
                     }
-
-                    processIncomingLine(line);
                 }
             } catch (IOException e) {
                 uiCallback.log("UDP Erro: " + e.getMessage());
@@ -197,18 +406,161 @@ public class Network {
         udpListener.start();
     }
 
-    // Processa texto (vindo de TCP ou UDP) e joga no buffer
+    private void handleDatagram(String line, InetAddress address, int port) {
+        emitPacketReceived("UDP", -1, line);
+
+        // Lógica para o Servidor descobrir quem é o Cliente UDP
+        if (isServer) {
+
+            // ACKs chegam todo tick, não passam pelo log
+            if (line.startsWith("ACK:")) {
+                processAck(line, address, port);
+                return;
+            }
+
+            if (DEBUG)
+                System.out.println("DEBUG SERVER RECEBEU UDP: [" + line + "] de " + address);
+            uiCallback.log("DEBUG SERVER RECEBEU UDP: [" + line + "] de " + address);
+
+            if (line.startsWith("UDP_HELLO")) {
+                registerUDP(line, address, port);
+                return;
+            }
+        }
+
+        // Um datagrama pode trazer vários SYNC (um por linha, todos com a mesma sequência):
+        // ACK, perda e reordenação contam o datagrama uma vez, não cada linha
+        if (line.startsWith("SYNC:")) {
+            try {
+                syncChannel.receive(Integer.parseInt(line.substring(5, line.indexOf(':', 5))));
+            } catch (RuntimeException e) {
+                uiCallback.log("ERRO PARSE: " + e.getMessage());
+                return;
+            }
+        }
+        for (String part : line.split("\n")) {
+            processIncomingLine(part);
+        }
+    }
+
+    // Linha TCP recebida (passa pelo emulador se estiver ligado, mantendo a ordem)
+    private void receiveTCP(String line, ClientConnection client) {
+        tcpBytesIn.addAndGet(line.length() + 1);
+        if (conditioner != null && conditioner.incoming) {
+            conditioner.submitOrdered(LinkConditioner.Direction.IN, () -> dispatchTCP(line, client));
+        } else {
+            dispatchTCP(line, client);
+        }
+    }
+
+    private void dispatchTCP(String line, ClientConnection client) {
+        emitPacketReceived("TCP", client != null ? client.id : -1, line);
+
+        processIncomingLine(line, client);
+    }
+
+    private static void emitPacketReceived(String protocol, int client, String data) {
+        SimulationEvents.PacketReceived event = new SimulationEvents.PacketReceived();
+        if (event.shouldCommit()) {
+            event.protocol = protocol;
+            event.client = client;
+            event.bytes = data.length();
+            event.lines = 1;
+            for (int i = 0; i < data.length(); i++) {
+                if (data.charAt(i) == '\n')
+                    event.lines++;
+            }
+            event.commit();
+        }
+    }
+
+    // UDP_HELLO:ID -> associa o endereço UDP ao cliente TCP com esse ID
+    private void registerUDP(String line, InetAddress address, int port) {
+        String[] parts = line.split(":");
+        if (parts.length < 2)
+            return;
+
+        int id;
+        try {
+            id = Integer.parseInt(parts[1]);
+        } catch (NumberFormatException e) {
+            return; // Lixo de qualquer um na porta: ignora o datagrama
+        }
+        for (ClientConnection c : clients) {
+            if (c.id == id) {
+                c.udpAddress = address;
+                c.udpPort = port;
+                uiCallback.log(">> [UDP] Cliente " + id + " registrado: " + address + ":" + port);
+                return;
+            }
+        }
+    }
+
+    // ACK:SEQ:BITS[:REORDERED:STALE] -> atualiza RTT/perda do cliente que mandou
+    private void processAck(String line, InetAddress address, int port) {
+        String[] parts = line.split(":");
+        if (parts.length < 3)
+            return;
+
+        int seq, bits;
+        long reordered = -1, stale = -1;
+        try {
+            seq = Integer.parseInt(parts[1]);
+            bits = Integer.parseInt(parts[2]);
+            if (parts.length >= 5) {
+                reordered = Long.parseLong(parts[3]);
+                stale = Long.parseLong(parts[4]);
+            }
+        } catch (NumberFormatException e) {
+            uiCallback.log("ERRO PARSE: " + e.getMessage());
+            return;
+        }
+
+        for (ClientConnection c : clients) {
+            if (port == c.udpPort && address.equals(c.udpAddress)) {
+                c.stats.onAck(seq, bits, System.nanoTime());
+                if (reordered >= 0)
+                    c.stats.onReceiverCounters(reordered, stale);
+                return;
+            }
+        }
+    }
+
     private void processIncomingLine(String line) {
-        if (line.startsWith("HANDSHAKE") || line.equals("UDP_HELLO"))
+        processIncomingLine(line, null);
+    }
+
+    // Processa texto (vindo de TCP ou UDP) e joga no buffer.
+    // 'sender' (servidor): cliente que mandou. O RTT dele estima em que tick um INPUT
+    // aconteceu, e o INPUT vira o foco dele
+    private void processIncomingLine(String line, ClientConnection sender) {
+        if (line.startsWith("HANDSHAKE") || line.startsWith("UDP_HELLO"))
             return;
 
         try {
-            System.out.println("Recebido: " + line);
+            if (DEBUG)
+                System.out.println("Recebido: " + line);
 
             NetworkCommand cmd = NetworkCommand.parse(line);
-            if (cmd != null) {
-                commandBuffer.add(cmd);
+            if (cmd == null)
+                return;
+
+            // Estado velho ou duplicado nunca chega no buffer
+            if (cmd instanceof NetworkCommand.SyncCommand) {
+                NetworkCommand.SyncCommand sync = (NetworkCommand.SyncCommand) cmd;
+                if (!syncChannel.accept(sync.id, sync.seq))
+                    return;
+            }
+
+            if (sender != null && cmd instanceof NetworkCommand.InputCommand) {
+                NetworkCommand.InputCommand input = (NetworkCommand.InputCommand) cmd;
+                input.latencyNanos = (long) (sender.stats.getRttMillis() * 500_000);
+                sender.focusX = input.x;
+                sender.focusY = input.y;
             }
+
+            cmd.receivedNanos = System.nanoTime();
+            commandBuffer.add(cmd);
         } catch (Exception e) {
             uiCallback.log("ERRO PARSE: " + e.getMessage());
             e.printStackTrace();
@@ -219,11 +571,78 @@ public class Network {
     public void processCommands(Scene scene) {
         while (!commandBuffer.isEmpty()) {
             NetworkCommand cmd = commandBuffer.poll();
-            if (cmd != null)
-                cmd.execute(scene, isServer, this);
+            if (cmd == null)
+                continue;
+
+            SimulationEvents.CommandProcessed event = new SimulationEvents.CommandProcessed();
+            event.begin();
+            cmd.execute(scene, isServer, this);
+            event.end();
+
+            if (event.shouldCommit()) {
+                event.type = cmd.type.name();
+                event.queueLatency = System.nanoTime() - cmd.receivedNanos;
+                event.commit();
+            }
+        }
+
+        // Cliente: um ACK por tick com tudo que chegou de SYNC
+        if (!isServer && udpSocket != null && targetIP != null) {
+            String ack = syncChannel.pollAck();
+            if (ack != null)
+                sendUDP(ack);
         }
     }
 
+    // Tira um comando do buffer sem executar (benchmarks de loopback)
+    NetworkCommand pollCommand() {
+        return commandBuffer.poll();
+    }
+
+    // Servidor: próximo cliente que entrou e ainda não recebeu o mundo (ou null)
+    public ClientConnection pollJoinedClient() {
+        return pendingJoins.poll();
+    }
+
+    // Mensagem para o terminal da UI (ou o log do servidor headless)
+    void log(String msg) {
+        uiCallback.log(msg);
+    }
+
+    public List<ClientConnection> getClients() {
+        return clients;
+    }
+
+    // --- ESTATÍSTICAS DO CANAL SYNC ---
+    public long getReorderedPackets() {
+        return syncChannel.getReorderedPackets();
+    }
+
+    public long getDroppedPackets() {
+        return syncChannel.getDroppedPackets();
+    }
+
+    // Comandos esperando o próximo processCommands
+    public int getQueueDepth() {
+        return commandBuffer.size();
+    }
+
+    public long getTcpBytesIn() {
+        return tcpBytesIn.get();
+    }
+
+    public long getTcpBytesOut() {
+        return tcpBytesOut.get();
+    }
+
+    public long getUdpBytesIn() {
+        return udpBytesIn.get();
+    }
+
+    public long getUdpBytesOut() {
+        return udpBytesOut.get();
+    }
+
     private void setupTCPStreams() throws IOException {
         out = new PrintWriter(tcpSocket.getOutputStream(), true);
         in = new BufferedReader(new InputStreamReader(tcpSocket.getInputStream()));
@@ -243,7 +662,15 @@ public class Network {
             udpSocket.close();
         }
 
-        // 3. Fechar Streams e Sockets TCP
+        // 3. Fechar Sockets e Streams TCP
+        // O socket fecha primeiro: isso destrava o readLine() da thread de escuta,
+        // que segura o lock do BufferedReader (fechar o 'in' antes travava aqui).
+        try {
+            if (tcpSocket != null && !tcpSocket.isClosed())
+                tcpSocket.close();
+        } catch (IOException ignored) {
+        }
+
         try {
             if (in != null)
                 in.close();
@@ -253,20 +680,26 @@ public class Network {
         if (out != null)
             out.close(); // PrintWriter não lança IOException no close
 
-        try {
-            if (tcpSocket != null && !tcpSocket.isClosed())
-                tcpSocket.close();
-        } catch (IOException ignored) {
-        }
-
         try {
             if (serverSocket != null && !serverSocket.isClosed())
                 serverSocket.close();
         } catch (IOException ignored) {
         }
 
+        // Servidor: derruba todos os clientes
+        for (ClientConnection c : clients) {
+            try {
+                c.tcpSocket.close();
+            } catch (IOException ignored) {
+            }
+        }
+
         // 4. Limpar Estado Interno
         commandBuffer.clear();
+        syncChannel.reset();
+        clients.clear();
+        pendingJoins.clear();
+        clientId = -1;
         isServer = false;
         targetIP = null;
         targetPort = 0;
@@ -279,4 +712,4 @@ public class Network {
             });
         }
     }
-}
\ No newline at end of file
+}
@@ -1,13 +1,21 @@
 package EngineTest;
 
+import java.nio.ByteBuffer;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
 public abstract class NetworkCommand {
 
     public enum Type {
-        SPAWN, SYNC, INPUT
+        SPAWN, SYNC, INPUT, SNAPSHOT, SETTINGS, HASH
     }
 
     public Type type;
 
+    // Quando entrou no buffer do Network (System.nanoTime), para medir o tempo na fila
+    public long receivedNanos;
+
     public NetworkCommand(Type type) {
         this.type = type;
     }
@@ -30,6 +38,12 @@ public abstract class NetworkCommand {
                 return new SyncCommand(parts);
             case INPUT:
                 return new InputCommand(parts);
+            case SNAPSHOT:
+                return new SnapshotCommand(parts);
+            case SETTINGS:
+                return new SettingsCommand(parts);
+            case HASH:
+                return new HashCommand(parts);
             default:
                 return null;
         }
@@ -43,6 +57,12 @@ public abstract class NetworkCommand {
         public String shapeType;
         public double x, y, size;
         public Vector2[] vertices; // NOVO: Guarda os vértices se for POLY
+        public long tick = -1; // Modo determinístico: tick em que o servidor criou o corpo
+
+        // Filtro e flags do corpo (ver RigidBody): o cliente determinístico precisa dos mesmos
+        // pares colidindo. Só vão na linha quando fogem do padrão.
+        public boolean bullet = false, sensor = false;
+        public int categoryBits = 1, maskBits = -1, group = 0, layer = 1;
 
         // Construtor servidor (geração interna)
         public SpawnCommand(int id, String shapeType, double x, double y, double size, Vector2[] vertices) {
@@ -74,7 +94,41 @@ public abstract class NetworkCommand {
                     double vy = Double.parseDouble(p[index++].replace(",", "."));
                     this.vertices[i] = new Vector2(vx, vy);
                 }
+                parseExtensions(p, index);
+            } else {
+                parseExtensions(p, 6);
+            }
+        }
+
+        // Depois da base (e dos vértices): [:F:FLAGS:CATEGORY:MASK:GROUP:LAYER] [:TICK]
+        private void parseExtensions(String[] p, int index) {
+            if (index < p.length && p[index].equals("F")) {
+                int flags = Integer.parseInt(p[index + 1]);
+                bullet = (flags & 1) != 0;
+                sensor = (flags & 2) != 0;
+                categoryBits = Integer.parseInt(p[index + 2]);
+                maskBits = Integer.parseInt(p[index + 3]);
+                group = Integer.parseInt(p[index + 4]);
+                layer = Integer.parseInt(p[index + 5]);
+                index += 6;
             }
+            if (index < p.length)
+                this.tick = Long.parseLong(p[index]);
+        }
+
+        // Copia filtro e flags do corpo criado no servidor
+        public SpawnCommand filterFrom(RigidBody b) {
+            bullet = b.bullet;
+            sensor = b.sensor;
+            categoryBits = b.categoryBits;
+            maskBits = b.maskBits;
+            group = b.group;
+            layer = b.layer;
+            return this;
+        }
+
+        private boolean defaultFilter() {
+            return !bullet && !sensor && categoryBits == 1 && maskBits == -1 && group == 0 && layer == 1;
         }
 
         @Override
@@ -90,6 +144,15 @@ public abstract class NetworkCommand {
                     sb.append(String.format(java.util.Locale.US, ":%.2f:%.2f", v.x, v.y));
                 }
             }
+
+            // Extensão (filtro fora do padrão): :F:FLAGS:CATEGORY:MASK:GROUP:LAYER
+            if (!defaultFilter())
+                sb.append(":F:").append((bullet ? 1 : 0) | (sensor ? 2 : 0)).append(':').append(categoryBits)
+                        .append(':').append(maskBits).append(':').append(group).append(':').append(layer);
+
+            // Extensão (modo determinístico): :TICK
+            if (tick >= 0)
+                sb.append(":").append(tick);
             return sb.toString();
         }
 
@@ -98,6 +161,14 @@ public abstract class NetworkCommand {
             if (isServer)
                 return;
 
+            if (scene.deterministic) {
+                // Antes do snapshot: o corpo já vem nele
+                if (scene.baselineTick < 0)
+                    return;
+                // Cria no mesmo tick em que o servidor criou
+                scene.stepTo(tick);
+            }
+
             RigidBody b;
             if (shapeType.equals("CIRCLE")) {
                 Circle c = new Circle((float) size);
@@ -116,8 +187,15 @@ public abstract class NetworkCommand {
             }
 
             b.id = id;
-            b.invMass = 0;
-            scene.bodies.add(b);
+            b.bullet = bullet;
+            b.sensor = sensor;
+            b.categoryBits = categoryBits;
+            b.maskBits = maskBits;
+            b.group = group;
+            b.layer = layer;
+            if (!scene.deterministic)
+                b.invMass = 0; // Cliente não simula, segue o SYNC
+            scene.insertBody(b);
         }
     }
 
@@ -125,6 +203,7 @@ public abstract class NetworkCommand {
     // COMMAND: SYNC (Server updates position)
     // ==========================================
     public static class SyncCommand extends NetworkCommand {
+        public int seq; // Número de sequência do canal UDP (carimbado pelo Network no envio)
         public int id;
         public double x, y;
         public float angle;
@@ -139,27 +218,39 @@ public abstract class NetworkCommand {
 
         public SyncCommand(String[] p) {
             super(Type.SYNC);
-            this.id = Integer.parseInt(p[1]);
-            this.x = Double.parseDouble(p[2].replace(",", "."));
-            this.y = Double.parseDouble(p[3].replace(",", "."));
-            this.angle = Float.parseFloat(p[4].replace(",", "."));
+            this.seq = Integer.parseInt(p[1]);
+            this.id = Integer.parseInt(p[2]);
+            this.x = Double.parseDouble(p[3].replace(",", "."));
+            this.y = Double.parseDouble(p[4].replace(",", "."));
+            this.angle = Float.parseFloat(p[5].replace(",", "."));
         }
 
         @Override
         public String serialize() {
-            return String.format("SYNC:%d:%.2f:%.2f:%.2f", id, x, y, angle);
+            // SYNC:SEQ:ID:X:Y:ANGLE
+            return "SYNC:" + seq + ":" + serializeBody();
+        }
+
+        // ID:X:Y:ANGLE, sem a sequência: o SendScheduler formata cada corpo uma vez só e
+        // carimba o SEQ do datagrama na frente
+        public String serializeBody() {
+            return String.format("%d:%.2f:%.2f:%.2f", id, x, y, angle);
         }
 
         @Override
         public void execute(Scene scene, boolean isServer, Network net) {
-            if (isServer)
-                return; // Server is the authority, ignore syncs
+            if (isServer || scene.deterministic)
+                return; // Server is the authority, ignore syncs (deterministic clients simulate)
 
             RigidBody b = scene.findBodyById(id);
             if (b != null) {
                 b.position.set(x, y);
                 b.setAngle(angle);
                 b.velocity.set(0, 0); // Prevent client prediction fighting
+                if (b.invMass == 0)
+                    scene.invalidateStatics(); // Cliente sem simular: todo corpo é estático
+                else
+                    scene.invalidateQueries();
             }
         }
     }
@@ -170,6 +261,12 @@ public abstract class NetworkCommand {
     public static class InputCommand extends NetworkCommand {
         public String shapeType;
         public double x, y;
+        // Tick do servidor em que o INPUT aconteceu (-1 = estimar pela latência ao executar)
+        public long tick = -1;
+        // Meio RTT do cliente que mandou (preenchido pelo Network ao receber)
+        public long latencyNanos;
+
+        private SpawnCommand spawned;
 
         public InputCommand(String shapeType, double x, double y) {
             super(Type.INPUT);
@@ -183,17 +280,50 @@ public abstract class NetworkCommand {
             this.shapeType = p[1];
             this.x = Double.parseDouble(p[2].replace(",", "."));
             this.y = Double.parseDouble(p[3].replace(",", "."));
+            if (p.length > 4)
+                this.tick = Long.parseLong(p[4]);
         }
 
         @Override
         public String serialize() {
-            return String.format(java.util.Locale.US, "INPUT:%s:%.2f:%.2f", shapeType, x, y);
+            // INPUT:TYPE:X:Y[:TICK]
+            String base = String.format(java.util.Locale.US, "INPUT:%s:%.2f:%.2f", shapeType, x, y);
+            return tick >= 0 ? base + ":" + tick : base;
         }
 
         @Override
         public void execute(Scene scene, boolean isServer, Network net) {
             if (!isServer) return; // Só o servidor processa INPUT
 
+            long present = scene.tick;
+            if (tick < 0)
+                tick = estimateTick(scene);
+
+            // Chegou atrasado: volta a cena até o tick do INPUT e ressimula até agora
+            if (scene.rollback != null && !scene.deterministic && tick < present) {
+                tick = scene.rollback.rewind(scene, tick, () -> spawn(scene));
+            } else {
+                tick = present;
+                spawn(scene);
+            }
+
+            // Gravado com o tick em que foi aplicado de fato (o Replay refaz o mesmo rollback)
+            if (scene.recorder != null) {
+                scene.recorder.record(present, this);
+                scene.recorder.record(tick, spawned);
+            }
+
+            // Broadcast: Manda o ID e também os VÉRTICES gerados
+            net.broadcast(spawned);
+        }
+
+        // Tick atual menos o tempo que o INPUT levou para chegar e esperou no buffer
+        private long estimateTick(Scene scene) {
+            long age = latencyNanos + (receivedNanos > 0 ? System.nanoTime() - receivedNanos : 0);
+            return scene.tick - Math.round(age / (scene.deltaTime * 1e9));
+        }
+
+        private void spawn(Scene scene) {
             RigidBody b;
             double size = 1.0;
             Vector2[] generatedVertices = null;
@@ -207,16 +337,17 @@ public abstract class NetworkCommand {
                 // LOGICA DE ALEATORIEDADE (Rodando apenas no Servidor)
                 PolygonShape poly = new PolygonShape();
                 
-                // Gera vértices aleatórios
-                int count = (int)(Math.random() * 3) + 3; // 3 a 5 vértices
+                // Gera vértices aleatórios (Random da cena: com semente no modo determinístico)
+                int count = scene.random.nextInt(3) + 3; // 3 a 5 vértices
                 generatedVertices = new Vector2[count];
                 
                 for(int i = 0; i < count; i++) {
-                    double angle = Math.random() * Math.PI * 2;
-                    double radius = Math.random() * 0.5 + 0.5;
+                    double angle = scene.random.nextDouble() * Math.PI * 2;
+                    double radius = scene.random.nextDouble() * 0.5 + 0.5;
+                    // Arredonda em 2 casas, igual ao SPAWN: o cliente monta exatamente a mesma forma
                     generatedVertices[i] = new Vector2(
-                        Math.cos(angle) * radius, 
-                        Math.sin(angle) * radius
+                        Math.round(StrictMath.cos(angle) * radius * 100) / 100.0,
+                        Math.round(StrictMath.sin(angle) * radius * 100) / 100.0
                     );
                 }
                 
@@ -237,9 +368,197 @@ public abstract class NetworkCommand {
 
             scene.addBodyServer(b);
 
-            // Broadcast: Manda o ID e também os VÉRTICES gerados
-            SpawnCommand spawnCmd = new SpawnCommand(b.id, shapeType, x, y, size, generatedVertices);
-            net.broadcast(spawnCmd);
+            spawned = new SpawnCommand(b.id, shapeType, x, y, size, generatedVertices).filterFrom(b);
+            if (scene.deterministic)
+                spawned.tick = scene.tick;
+        }
+    }
+
+    // ==========================================
+    // COMMAND: SNAPSHOT (Server streams the world to a late-joining client)
+    // ==========================================
+    public static class SnapshotCommand extends NetworkCommand {
+        public int chunk;
+        public int totalChunks;
+        public String payload; // Base64(Deflate(corpos em binário))
+
+        public SnapshotCommand(int chunk, int totalChunks, String payload) {
+            super(Type.SNAPSHOT);
+            this.chunk = chunk;
+            this.totalChunks = totalChunks;
+            this.payload = payload;
+        }
+
+        public SnapshotCommand(String[] p) {
+            super(Type.SNAPSHOT);
+            this.chunk = Integer.parseInt(p[1]);
+            this.totalChunks = Integer.parseInt(p[2]);
+            this.payload = p[3];
+        }
+
+        @Override
+        public String serialize() {
+            // SNAPSHOT:CHUNK:TOTAL:PAYLOAD (Base64 não usa ':')
+            return "SNAPSHOT:" + chunk + ":" + totalChunks + ":" + payload;
+        }
+
+        @Override
+        public void execute(Scene scene, boolean isServer, Network net) {
+            if (isServer)
+                return;
+
+            ByteBuffer buf = inflate(Base64.getDecoder().decode(payload));
+            int count = buf.getInt();
+
+            for (int i = 0; i < count; i++) {
+                RigidBody b = SnapshotCodec.readBody(buf);
+
+                // Pode já ter chegado por um SPAWN depois que entramos
+                if (scene.findBodyById(b.id) != null)
+                    continue;
+
+                // Cliente não simula: igual ao SPAWN, o corpo fica "travado" e segue o SYNC
+                if (!scene.deterministic) {
+                    b.invMass = 0;
+                    b.invInertia = 0;
+                }
+                scene.insertBody(b);
+            }
+
+            // Último chunk: o HASH que vem logo depois diz o tick deste mundo
+            if (chunk == totalChunks - 1)
+                scene.snapshotReceived = true;
+        }
+
+        private static ByteBuffer inflate(byte[] data) {
+            Inflater inflater = new Inflater();
+            inflater.setInput(data);
+            byte[] out = new byte[SnapshotStreamer.MAX_CHUNK_BYTES];
+            try {
+                int size = inflater.inflate(out);
+                return ByteBuffer.wrap(out, 0, size);
+            } catch (DataFormatException e) {
+                throw new IllegalArgumentException("SNAPSHOT corrompido: " + e.getMessage());
+            } finally {
+                inflater.end();
+            }
+        }
+    }
+
+    // ==========================================
+    // COMMAND: SETTINGS (Server tells a late-joining client how it solves)
+    // ==========================================
+    // Vai antes do primeiro chunk do SNAPSHOT: o que muda o resultado do step e não está nos
+    // corpos (os mesmos campos do cabeçalho do SceneSnapshot). Sem isso o cliente
+    // determinístico dependia de ter recebido as mesmas -Dsim.* que o servidor.
+    public static class SettingsCommand extends NetworkCommand {
+        public float iterations;
+        public int substeps;
+        public double ccdThreshold;
+        public Manifold.Backend narrowphase;
+
+        public SettingsCommand(Scene scene) {
+            super(Type.SETTINGS);
+            this.iterations = scene.iterations;
+            this.substeps = scene.substeps;
+            this.ccdThreshold = scene.ccdThreshold;
+            this.narrowphase = scene.narrowphase;
+        }
+
+        public SettingsCommand(String[] p) {
+            super(Type.SETTINGS);
+            this.iterations = Float.parseFloat(p[1]);
+            this.substeps = Integer.parseInt(p[2]);
+            this.ccdThreshold = Double.parseDouble(p[3]);
+            this.narrowphase = Manifold.Backend.valueOf(p[4]);
+        }
+
+        @Override
+        public String serialize() {
+            // SETTINGS:ITERATIONS:SUBSTEPS:CCD_THRESHOLD:NARROWPHASE
+            return "SETTINGS:" + iterations + ":" + substeps + ":" + ccdThreshold + ":" + narrowphase.name();
+        }
+
+        @Override
+        public void execute(Scene scene, boolean isServer, Network net) {
+            if (isServer)
+                return;
+
+            scene.iterations = iterations;
+            scene.substeps = substeps;
+            scene.ccdThreshold = ccdThreshold;
+            scene.narrowphase = narrowphase;
+        }
+    }
+
+    // ==========================================
+    // COMMAND: HASH (Deterministic mode: world hash at a tick)
+    // ==========================================
+    // Servidor -> clientes: todo tick (e logo depois do snapshot, marcando o tick dele).
+    // É o relógio do cliente: ele só simula até o tick que chegou. O hash vai a cada
+    // ServerLoop.hashInterval ticks; nos outros, só o tick (HASH:TICK).
+    // Cliente simula até o tick, compara e, se divergir, devolve o próprio hash ao servidor.
+    public static class HashCommand extends NetworkCommand {
+        public long tick;
+        public long hash;
+        public boolean hasHash;
+
+        public HashCommand(long tick, long hash) {
+            super(Type.HASH);
+            this.tick = tick;
+            this.hash = hash;
+            this.hasHash = true;
+        }
+
+        // Só o relógio
+        public HashCommand(long tick) {
+            super(Type.HASH);
+            this.tick = tick;
+        }
+
+        public HashCommand(String[] p) {
+            super(Type.HASH);
+            this.tick = Long.parseLong(p[1]);
+            this.hasHash = p.length > 2;
+            if (hasHash)
+                this.hash = Long.parseUnsignedLong(p[2], 16);
+        }
+
+        @Override
+        public String serialize() {
+            // HASH:TICK[:HEX]
+            return hasHash ? "HASH:" + tick + ":" + Long.toHexString(hash) : "HASH:" + tick;
+        }
+
+        @Override
+        public void execute(Scene scene, boolean isServer, Network net) {
+            if (!scene.deterministic)
+                return;
+
+            if (isServer) {
+                // Um cliente avisou que divergiu (contado no WorldHash, sai no /metrics)
+                if (hasHash && !scene.worldHash.check(tick, hash))
+                    net.log("DESYNC: cliente divergiu no tick " + tick);
+                return;
+            }
+
+            if (scene.baselineTick < 0) {
+                if (!scene.snapshotReceived)
+                    return; // HASH de antes do nosso snapshot
+
+                // Primeiro HASH depois do snapshot: a cena está neste tick
+                scene.baselineTick = tick;
+                scene.tick = tick;
+                scene.worldHash.compute(scene, tick);
+            } else {
+                scene.stepTo(tick);
+            }
+
+            if (hasHash && !scene.worldHash.check(tick, hash)) {
+                net.log("DESYNC: tick " + tick + " local=" + Long.toHexString(scene.worldHash.get(tick))
+                        + " servidor=" + Long.toHexString(hash));
+                net.sendTCP(new HashCommand(tick, scene.worldHash.get(tick)));
+            }
         }
     }
-}
\ No newline at end of file
+}
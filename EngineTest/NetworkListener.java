@@ -0,0 +1,13 @@
+package EngineTest;
+
+// Quem o Network avisa sobre o estado da conexão (a ConfigPanel, ou algo headless)
+public interface NetworkListener {
+
+    void log(String msg);
+
+    void onConnected();
+
+    void onConnectionFailed(String reason);
+
+    void onConnectionClosed();
+}
@@ -0,0 +1,131 @@
+package EngineTest;
+
+import java.util.Arrays;
+
+// Valor (int) por par de corpos que sobrevive de um step para o seguinte: o Scene lê o que
+// o par deixou no step anterior e grava o deste. Duas tabelas de endereçamento aberto
+// (anterior/atual) trocadas a cada step, então pares que sumiram caem sozinhos e não
+// há remoção nem alocação por par.
+//
+// Chave = RigidBody.uid dos dois corpos, na ordem em que o par foi testado.
+public class PairCache {
+
+    public static final int NONE = -1;
+
+    private static final long EMPTY = 0; // uid A == uid B == 0 nunca é um par
+
+    private long[] prevKeys, curKeys;
+    private int[] prevValues, curValues;
+    private int curSize = 0;
+
+    public PairCache() {
+        this(256);
+    }
+
+    public PairCache(int capacity) {
+        int cap = Integer.highestOneBit(Math.max(16, capacity - 1)) << 1;
+        prevKeys = new long[cap];
+        prevValues = new int[cap];
+        curKeys = new long[cap];
+        curValues = new int[cap];
+    }
+
+    // Início do step: o que foi gravado vira o "anterior"
+    public void swap() {
+        long[] k = prevKeys;
+        int[] v = prevValues;
+        prevKeys = curKeys;
+        prevValues = curValues;
+        curKeys = k;
+        curValues = v;
+
+        // A tabela atual acompanha o tamanho da que acabou de virar "anterior"
+        if (curKeys.length != prevKeys.length) {
+            curKeys = new long[prevKeys.length];
+            curValues = new int[prevKeys.length];
+        } else {
+            Arrays.fill(curKeys, EMPTY);
+        }
+        curSize = 0;
+    }
+
+    // Valor gravado para o par no step anterior, ou NONE
+    public int get(RigidBody a, RigidBody b) {
+        long key = key(a, b);
+        int mask = prevKeys.length - 1;
+        for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+            long k = prevKeys[i];
+            if (k == key)
+                return prevValues[i];
+            if (k == EMPTY)
+                return NONE;
+        }
+    }
+
+    // Valor já gravado para o par neste step, ou NONE
+    public int current(RigidBody a, RigidBody b) {
+        long key = key(a, b);
+        int mask = curKeys.length - 1;
+        for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+            long k = curKeys[i];
+            if (k == key)
+                return curValues[i];
+            if (k == EMPTY)
+                return NONE;
+        }
+    }
+
+    public void put(RigidBody a, RigidBody b, int value) {
+        if ((curSize + 1) * 2 > curKeys.length)
+            grow();
+
+        long key = key(a, b);
+        int mask = curKeys.length - 1;
+        for (int i = hash(key) & mask;; i = (i + 1) & mask) {
+            long k = curKeys[i];
+            if (k == EMPTY) {
+                curKeys[i] = key;
+                curValues[i] = value;
+                curSize++;
+                return;
+            }
+            if (k == key) {
+                curValues[i] = value;
+                return;
+            }
+        }
+    }
+
+    public int size() {
+        return curSize;
+    }
+
+    private void grow() {
+        long[] oldKeys = curKeys;
+        int[] oldValues = curValues;
+        curKeys = new long[oldKeys.length * 2];
+        curValues = new int[oldKeys.length * 2];
+
+        int mask = curKeys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == EMPTY)
+                continue;
+            int i = hash(oldKeys[j]) & mask;
+            while (curKeys[i] != EMPTY) {
+                i = (i + 1) & mask;
+            }
+            curKeys[i] = oldKeys[j];
+            curValues[i] = oldValues[j];
+        }
+    }
+
+    private static long key(RigidBody a, RigidBody b) {
+        return ((long) a.uid << 32) | (b.uid & 0xffffffffL);
+    }
+
+    // Mistura dos bits (os uids são sequenciais)
+    private static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+}
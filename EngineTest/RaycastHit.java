@@ -0,0 +1,10 @@
+package EngineTest;
+
+// Resultado de um raio (ver Scene.raycast): o corpo, o ponto e a normal (unitária, para fora
+// da forma) no mundo, e a distância da origem até o ponto.
+public class RaycastHit {
+    public RigidBody body;
+    public final Vector2 point = new Vector2();
+    public final Vector2 normal = new Vector2();
+    public double distance;
+}
@@ -0,0 +1,136 @@
+package EngineTest;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+
+// Refaz uma sessão gravada (-Dsim.record=pasta) sem janela e sem rede, o mais rápido possível:
+// carrega o snapshot do início, aplica cada INPUT no tick em que foi aplicado e roda o
+// Scene.step() entre eles. Confere se os SPAWN e o hash final batem com a gravação.
+// Resultado em JSON no stdout.
+//
+// Uso:
+// java EngineTest.Replay --dir sessao [--extra-ticks 600]
+// java EngineTest.Replay --snapshot start.snap --log inputs.log
+public class Replay {
+
+    public static final String SNAPSHOT_FILE = "start.snap";
+    public static final String LOG_FILE = "inputs.log";
+
+    public static void main(String[] args) throws Exception {
+        Path snapshot = null, log = null;
+        long extraTicks = 0;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--dir":
+                    snapshot = Paths.get(args[i + 1], SNAPSHOT_FILE);
+                    log = Paths.get(args[i + 1], LOG_FILE);
+                    break;
+                case "--snapshot":
+                    snapshot = Paths.get(args[i + 1]);
+                    break;
+                case "--log":
+                    log = Paths.get(args[i + 1]);
+                    break;
+                case "--extra-ticks":
+                    extraTicks = Long.parseLong(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Opção desconhecida: " + args[i]);
+            }
+        }
+        if (snapshot == null || log == null) {
+            System.err.println("Uso: Replay --dir pasta | --snapshot arquivo --log arquivo [--extra-ticks N]");
+            System.exit(2);
+        }
+
+        // Snapshots de antes da versão 5 não guardam o backend: passe o mesmo -Dsim.narrowphase
+        Scene scene = new Scene();
+        main.applyNarrowphase(scene);
+        SceneSnapshot.restore(scene, snapshot);
+        List<InputRecorder.Entry> entries = InputRecorder.read(log);
+        Network offline = new Network(new NetworkListener() {
+            @Override
+            public void log(String msg) {
+            }
+
+            @Override
+            public void onConnected() {
+            }
+
+            @Override
+            public void onConnectionFailed(String reason) {
+            }
+
+            @Override
+            public void onConnectionClosed() {
+            }
+        });
+
+        // INPUT que o servidor aplicou no passado (rollback): refaz do mesmo jeito, sem orçamento
+        long maxRewind = 0;
+        for (InputRecorder.Entry e : entries) {
+            NetworkCommand cmd = NetworkCommand.parse(e.line);
+            if (cmd instanceof NetworkCommand.InputCommand && ((NetworkCommand.InputCommand) cmd).tick >= 0)
+                maxRewind = Math.max(maxRewind, e.tick - ((NetworkCommand.InputCommand) cmd).tick);
+        }
+        if (maxRewind > 0)
+            scene.rollback = new RollbackBuffer((int) maxRewind + 2, Long.MAX_VALUE);
+
+        long startTick = scene.tick;
+        int inputs = 0, spawnMismatches = 0;
+        int hashChecks = 0, hashMismatches = 0;
+        long start = System.nanoTime();
+
+        for (InputRecorder.Entry e : entries) {
+            scene.stepTo(e.tick);
+            NetworkCommand cmd = NetworkCommand.parse(e.line);
+
+            if (cmd instanceof NetworkCommand.InputCommand) {
+                cmd.execute(scene, true, offline);
+                inputs++;
+            } else if (cmd instanceof NetworkCommand.SpawnCommand) {
+                // O INPUT logo antes tem que ter criado o mesmo corpo
+                if (!matches(scene, (NetworkCommand.SpawnCommand) cmd))
+                    spawnMismatches++;
+            } else if (cmd instanceof NetworkCommand.HashCommand) {
+                NetworkCommand.HashCommand hash = (NetworkCommand.HashCommand) cmd;
+                hashChecks++;
+                if (scene.worldHash.compute(scene, hash.tick) != hash.hash)
+                    hashMismatches++;
+            }
+        }
+
+        long lastTick = entries.isEmpty() ? startTick : entries.get(entries.size() - 1).tick;
+        scene.stepTo(lastTick + extraTicks);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long ticks = scene.tick - startTick;
+
+        RollingHistogram total = scene.profiler.getHistogram(StepProfiler.Phase.TOTAL);
+        System.out.println(String.format(Locale.US,
+                "{\"startTick\":%d,\"endTick\":%d,\"ticks\":%d,\"bodies\":%d,\"inputs\":%d,"
+                        + "\"spawnMismatches\":%d,\"hashChecks\":%d,\"hashMismatches\":%d,"
+                        + "\"wallSec\":%.3f,\"ticksPerSec\":%.1f,\"realtimeFactor\":%.1f,"
+                        + "\"stepMs\":{\"p50\":%.3f,\"p99\":%.3f,\"max\":%.3f}}",
+                startTick, scene.tick, ticks, scene.bodies.size(), inputs,
+                spawnMismatches, hashChecks, hashMismatches,
+                seconds, ticks / seconds, ticks * scene.deltaTime / seconds,
+                total.percentileMillis(50), total.percentileMillis(99), total.getMax() / 1e6));
+
+        System.exit(spawnMismatches == 0 && hashMismatches == 0 ? 0 : 1);
+    }
+
+    private static boolean matches(Scene scene, NetworkCommand.SpawnCommand spawn) {
+        RigidBody b = scene.findBodyById(spawn.id);
+        if (b == null)
+            return false;
+
+        if (spawn.vertices == null)
+            return b.shape.getType() == Shape.Type.CIRCLE;
+
+        return b.shape.getType() == Shape.Type.POLY
+                && ((PolygonShape) b.shape).m_vertexCount == spawn.vertices.length;
+    }
+}
@@ -0,0 +1,142 @@
+package EngineTest;
+
+import java.nio.ByteBuffer;
+
+// Pino: as duas âncoras ficam no mesmo ponto e os corpos giram livres em volta dele
+// (dobradiça de corrente, articulação de ragdoll). Com enableLimit o ângulo relativo
+// (ângulo de B - ângulo de A, a partir do da criação) fica entre lowerAngle e upperAngle.
+public class RevoluteJoint extends Joint {
+
+    public boolean enableLimit = false;
+    public double lowerAngle = 0, upperAngle = 0;
+
+    private final double referenceAngle;
+
+    // Do initialize(): inversa da massa efetiva 2x2 do ponto e bias
+    private double m11, m12, m22, biasX, biasY;
+    private double impulseX = 0, impulseY = 0;
+
+    // Limite: massa efetiva angular, bias e lado ativo (-1 em baixo, 1 em cima, 0 solto)
+    private double axialMass, limitBias;
+    private int limitState = 0;
+    private double limitImpulse = 0;
+
+    // Pino no ponto (x, y) do mundo
+    public RevoluteJoint(RigidBody a, RigidBody b, double x, double y) {
+        super(a, b, x, y, x, y);
+        referenceAngle = b.angle - a.angle;
+    }
+
+    RevoluteJoint(RigidBody a, RigidBody b, ByteBuffer buf) {
+        super(a, b, buf);
+        referenceAngle = buf.getDouble();
+        enableLimit = buf.get() != 0;
+        lowerAngle = buf.getDouble();
+        upperAngle = buf.getDouble();
+        impulseX = buf.getDouble();
+        impulseY = buf.getDouble();
+        limitImpulse = buf.getDouble();
+        limitState = buf.get();
+    }
+
+    @Override
+    void write(ByteBuffer buf) {
+        super.write(buf);
+        buf.putDouble(referenceAngle);
+        buf.put((byte) (enableLimit ? 1 : 0));
+        buf.putDouble(lowerAngle);
+        buf.putDouble(upperAngle);
+        buf.putDouble(impulseX);
+        buf.putDouble(impulseY);
+        buf.putDouble(limitImpulse);
+        buf.put((byte) limitState);
+    }
+
+    // O lado do limite vai junto: o initialize() zera o impulso do limite quando ele muda
+    @Override
+    public int stateSize() {
+        return 4;
+    }
+
+    @Override
+    public void saveState(double[] out, int offset) {
+        out[offset] = impulseX;
+        out[offset + 1] = impulseY;
+        out[offset + 2] = limitImpulse;
+        out[offset + 3] = limitState;
+    }
+
+    @Override
+    public void restoreState(double[] in, int offset) {
+        impulseX = in[offset];
+        impulseY = in[offset + 1];
+        limitImpulse = in[offset + 2];
+        limitState = (int) in[offset + 3];
+    }
+
+    public double getJointAngle() {
+        return b.angle - a.angle - referenceAngle;
+    }
+
+    @Override
+    public void initialize(double dt, double h) {
+        computeArms();
+
+        double mA = a.invMass, mB = b.invMass, iA = a.invInertia, iB = b.invInertia;
+        double k11 = mA + mB + iA * ray * ray + iB * rby * rby;
+        double k12 = -iA * rax * ray - iB * rbx * rby;
+        double k22 = mA + mB + iA * rax * rax + iB * rbx * rbx;
+        double det = k11 * k22 - k12 * k12;
+        if (det != 0)
+            det = 1.0 / det;
+        m11 = det * k22;
+        m12 = -det * k12;
+        m22 = det * k11;
+
+        biasX = BAUMGARTE * separationX() / dt;
+        biasY = BAUMGARTE * separationY() / dt;
+
+        int state = 0;
+        double angle = getJointAngle();
+        axialMass = iA + iB > 0 ? 1.0 / (iA + iB) : 0;
+        if (enableLimit && axialMass > 0) {
+            if (angle <= lowerAngle) {
+                state = -1;
+                limitBias = BAUMGARTE * (angle - lowerAngle) / dt;
+            } else if (angle >= upperAngle) {
+                state = 1;
+                limitBias = BAUMGARTE * (angle - upperAngle) / dt;
+            }
+        }
+        // Trocou de lado (ou soltou): o impulso guardado era do outro limite
+        if (state != limitState)
+            limitImpulse = 0;
+        limitState = state;
+
+        applyLinear(impulseX, impulseY);
+        a.applyAngularImpulse(-limitImpulse);
+        b.applyAngularImpulse(limitImpulse);
+    }
+
+    @Override
+    public void solve() {
+        // Limite primeiro: o pino tem a palavra final
+        if (limitState != 0) {
+            double cdot = b.angularVelocity - a.angularVelocity;
+            double lambda = -axialMass * (cdot + limitBias);
+            double old = limitImpulse;
+            // Só empurra para dentro: >= 0 no limite de baixo, <= 0 no de cima
+            limitImpulse = limitState < 0 ? Math.max(old + lambda, 0) : Math.min(old + lambda, 0);
+            lambda = limitImpulse - old;
+            a.applyAngularImpulse(-lambda);
+            b.applyAngularImpulse(lambda);
+        }
+
+        double vx = velocityX() + biasX, vy = velocityY() + biasY;
+        double px = -(m11 * vx + m12 * vy);
+        double py = -(m12 * vx + m22 * vy);
+        impulseX += px;
+        impulseY += py;
+        applyLinear(px, py);
+    }
+}
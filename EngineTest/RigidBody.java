@@ -1,7 +1,13 @@
 package EngineTest;
 
+import java.util.concurrent.atomic.AtomicInteger;
+
 class RigidBody {
+    private static final AtomicInteger UIDS = new AtomicInteger(1);
+
     public int id = -1;
+    // Identificador local, único no processo (caches por par; o 'id' é o da rede e pode ser -1)
+    final int uid = UIDS.getAndIncrement();
     Shape shape;
 
     // Linear Components
@@ -25,6 +31,27 @@ class RigidBody {
     float dynamicFriction;
     float restitution; // Bounciness
 
+    long lastContactTick = -1; // Último tick em que esteve num Manifold com contato
+
+    // Sempre passa pelo CCD, também contra corpos dinâmicos (ver Ccd)
+    boolean bullet = false;
+
+    // Camadas nas consultas do Scene (raycast, queryAABB, queryPoint): a consulta só vê o
+    // corpo se layer & mask != 0. Não muda a colisão.
+    int layer = 1;
+
+    // --- FILTRO DE COLISÃO ---
+    // O par só passa do broadphase se (categoryBits de um & maskBits do outro) != 0 nos dois
+    // sentidos. 'group' != 0 manda antes: mesmo grupo positivo sempre colide, mesmo grupo
+    // negativo nunca (ex: peças de um ragdoll). Padrão: categoria 1, colide com tudo.
+    int categoryBits = 1;
+    int maskBits = -1;
+    int group = 0;
+
+    // Sensor (trigger): a sobreposição sai nos eventos do Scene.contactListener, mas não vira
+    // contato nem impulso. Dois sensores não se detectam.
+    boolean sensor = false;
+
     public RigidBody(Shape shape, int x, int y) {
         this.shape = shape;
         this.position = new Vector2(x, y);
@@ -49,6 +76,32 @@ class RigidBody {
         angularVelocity += invInertia * Vector2.Cross(contactVector, impulse);
     }
 
+    // O mesmo, com o impulso e o braço em double: o solver chama isto por contato e iteração
+    void applyImpulse(double ix, double iy, double rx, double ry) {
+        if (invMass == 0)
+            return;
+
+        velocity.x += ix * invMass;
+        velocity.y += iy * invMass;
+        angularVelocity += invInertia * (rx * iy - ry * ix);
+    }
+
+    // Só angular (juntas que travam o giro)
+    void applyAngularImpulse(double l) {
+        if (invMass == 0)
+            return;
+
+        angularVelocity += invInertia * l;
+    }
+
+    static boolean shouldCollide(RigidBody a, RigidBody b) {
+        if (a.sensor && b.sensor)
+            return false;
+        if (a.group != 0 && a.group == b.group)
+            return a.group > 0;
+        return (a.categoryBits & b.maskBits) != 0 && (b.categoryBits & a.maskBits) != 0;
+    }
+
     void setAngle(float angle) {
         this.angle = angle;
         this.shape.setOrient(angle);
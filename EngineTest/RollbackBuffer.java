@@ -0,0 +1,265 @@
+package EngineTest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Anel com o estado dos últimos 'capacity' ticks da cena, para aplicar um INPUT atrasado
+// no tick em que ele realmente aconteceu e ressimular até o presente.
+//
+// Cada slot guarda o estado no INÍCIO do step daquele tick (corpos criados no tick já
+// incluídos), em arrays primitivos reaproveitados. Corpos só são adicionados no fim da
+// lista, então o índice na lista identifica o corpo e o contador de corpos do slot diz
+// quem já existia. Na volta, os corpos que nasceram depois saem da lista e são recolocados
+// no tick em que nasceram, com o estado daquele momento.
+//
+// Restrições (juntas) voltam com os impulsos acumulados do slot. Se o conjunto delas mudou
+// desde o tick alvo (alguma entrou ou saiu, por exemplo presa a um corpo que nasceu depois),
+// não dá para voltar: o INPUT é aplicado no presente, como um que passou do orçamento.
+//
+// Não combina com o modo determinístico: os clientes já simularam o passado sozinhos.
+public class RollbackBuffer {
+
+    private final int capacity;
+    private final long[] slotTick;
+    private final int[] slotCount;
+
+    // [slot][índice do corpo]
+    private final double[][] px, py, vx, vy;
+    private final float[][] angle, angularVelocity;
+
+    // Restrições da cena no slot (a identidade, para ver se o conjunto mudou) e o estado de
+    // cada uma em sequência (Constraint.saveState)
+    private final Constraint[][] slotConstraints;
+    private final int[] slotConstraintCount;
+    private final double[][] constraintState;
+
+    // Orçamento de ressimulação por INPUT (nanos); o INPUT é aplicado no máximo até onde cabe
+    public long budgetNanos;
+
+    // Corpos tirados da lista durante um rewind (reaproveitada)
+    private final List<RigidBody> removed = new ArrayList<>();
+    private boolean resimulating = false;
+
+    // --- ESTATÍSTICAS ---
+    private long rollbacks = 0;
+    private long resimulatedTicks = 0;
+    private long clampedInputs = 0;
+
+    public RollbackBuffer(int capacity, long budgetNanos) {
+        this.capacity = Math.max(2, capacity);
+        this.budgetNanos = budgetNanos;
+
+        slotTick = new long[this.capacity];
+        slotCount = new int[this.capacity];
+        java.util.Arrays.fill(slotTick, -1);
+
+        px = new double[this.capacity][64];
+        py = new double[this.capacity][64];
+        vx = new double[this.capacity][64];
+        vy = new double[this.capacity][64];
+        angle = new float[this.capacity][64];
+        angularVelocity = new float[this.capacity][64];
+
+        slotConstraints = new Constraint[this.capacity][0];
+        slotConstraintCount = new int[this.capacity];
+        constraintState = new double[this.capacity][0];
+    }
+
+    // Chamado pelo Scene.step() antes de simular o tick
+    void save(Scene scene) {
+        int slot = (int) (scene.tick % capacity);
+        int n = scene.bodies.size();
+        ensureSlot(slot, n);
+
+        double[] sx = px[slot], sy = py[slot], svx = vx[slot], svy = vy[slot];
+        float[] sa = angle[slot], sw = angularVelocity[slot];
+        for (int i = 0; i < n; i++) {
+            RigidBody b = scene.bodies.get(i);
+            sx[i] = b.position.x;
+            sy[i] = b.position.y;
+            svx[i] = b.velocity.x;
+            svy[i] = b.velocity.y;
+            sa[i] = b.angle;
+            sw[i] = b.angularVelocity;
+        }
+
+        saveConstraints(scene, slot);
+
+        slotTick[slot] = scene.tick;
+        slotCount[slot] = n;
+    }
+
+    private void saveConstraints(Scene scene, int slot) {
+        int n = scene.getConstraintCount();
+        if (slotConstraints[slot].length < n)
+            slotConstraints[slot] = new Constraint[Math.max(n, slotConstraints[slot].length * 2)];
+
+        Constraint[] refs = slotConstraints[slot];
+        int size = 0;
+        for (int i = 0; i < n; i++) {
+            refs[i] = scene.getConstraint(i);
+            size += refs[i].stateSize();
+        }
+        java.util.Arrays.fill(refs, n, refs.length, null); // Não segura restrições que já saíram
+        slotConstraintCount[slot] = n;
+
+        if (constraintState[slot].length < size)
+            constraintState[slot] = new double[Math.max(size, constraintState[slot].length * 2)];
+        double[] state = constraintState[slot];
+        int offset = 0;
+        for (int i = 0; i < n; i++) {
+            refs[i].saveState(state, offset);
+            offset += refs[i].stateSize();
+        }
+    }
+
+    // As mesmas restrições, na mesma ordem, que a cena tem agora?
+    private boolean sameConstraints(Scene scene, int slot) {
+        if (slotConstraintCount[slot] != scene.getConstraintCount())
+            return false;
+        for (int i = 0; i < slotConstraintCount[slot]; i++) {
+            if (slotConstraints[slot][i] != scene.getConstraint(i))
+                return false;
+        }
+        return true;
+    }
+
+    private void restoreConstraints(int slot) {
+        Constraint[] refs = slotConstraints[slot];
+        double[] state = constraintState[slot];
+        int offset = 0;
+        for (int i = 0; i < slotConstraintCount[slot]; i++) {
+            refs[i].restoreState(state, offset);
+            offset += refs[i].stateSize();
+        }
+    }
+
+    // Tick mais antigo para onde dá para voltar agora, dentro do anel e do orçamento
+    public long oldestReachableTick(Scene scene) {
+        long byCapacity = scene.tick - (capacity - 1);
+
+        long stepNanos = scene.profiler.getHistogram(StepProfiler.Phase.TOTAL).percentile(50);
+        long byBudget = stepNanos > 0 ? scene.tick - budgetNanos / stepNanos : byCapacity;
+
+        long oldest = Math.max(byCapacity, byBudget);
+        while (oldest < scene.tick && !has(oldest)) {
+            oldest++;
+        }
+        return oldest;
+    }
+
+    private boolean has(long tick) {
+        return tick >= 0 && slotTick[(int) (tick % capacity)] == tick;
+    }
+
+    // Volta a cena para 'tick' (ou o mais antigo possível), roda 'apply' e ressimula até o
+    // tick atual. Devolve o tick em que 'apply' rodou.
+    public long rewind(Scene scene, long tick, Runnable apply) {
+        long present = scene.tick;
+        long target = Math.max(tick, oldestReachableTick(scene));
+        if (target < present && !sameConstraints(scene, (int) (target % capacity)))
+            target = present;
+        if (target != tick)
+            clampedInputs++;
+
+        if (resimulating || target >= present) {
+            apply.run();
+            return present;
+        }
+
+        // 1. Estado do tick alvo; quem nasceu depois sai da lista (na ordem original)
+        int slot = (int) (target % capacity);
+        int count = slotCount[slot];
+        removed.clear();
+        for (int i = count; i < scene.bodies.size(); i++) {
+            removed.add(scene.bodies.get(i));
+        }
+        while (scene.bodies.size() > count) {
+            scene.bodies.remove(scene.bodies.size() - 1);
+        }
+        for (int i = 0; i < count; i++) {
+            restoreBody(scene.bodies.get(i), slot, i);
+        }
+        restoreConstraints(slot);
+        scene.tick = target;
+        scene.invalidateStatics(); // Mesmo tamanho de lista não quer dizer mesmos corpos
+
+        // 2. O INPUT atrasado
+        apply.run();
+
+        // 3. Ressimula: cada corpo removido volta no tick em que nasceu, com o estado daquele tick
+        boolean profiling = scene.profiler.enabled;
+        scene.profiler.enabled = false; // Os steps de ressimulação não entram nos histogramas
+        resimulating = true;
+        scene.beginResimulation(); // Eventos de contato ficam para o fim, só a diferença
+        int next = 0;
+        try {
+            while (scene.tick < present) {
+                if (scene.tick > target) {
+                    int s = (int) (scene.tick % capacity);
+                    int born = slotCount[s] - count; // Quantos dos removidos já existiam neste tick
+                    while (next < born && next < removed.size()) {
+                        RigidBody b = removed.get(next);
+                        scene.bodies.add(b);
+                        restoreBody(b, s, count + next); // Índice que ele tinha antes do rewind
+                        next++;
+                    }
+                }
+                scene.step();
+                resimulatedTicks++;
+            }
+        } finally {
+            scene.profiler.enabled = profiling;
+            resimulating = false;
+            scene.resimulating = false;
+        }
+
+        // Sobrou alguém (nasceu no tick atual, antes deste INPUT)
+        while (next < removed.size()) {
+            scene.bodies.add(removed.get(next++));
+        }
+        removed.clear();
+        scene.endResimulation();
+
+        rollbacks++;
+        return target;
+    }
+
+    private void restoreBody(RigidBody b, int slot, int index) {
+        b.position.set(px[slot][index], py[slot][index]);
+        b.velocity.set(vx[slot][index], vy[slot][index]);
+        b.angularVelocity = angularVelocity[slot][index];
+        b.setAngle(angle[slot][index]);
+        b.force.set(0, 0);
+        b.torque = 0;
+    }
+
+    private void ensureSlot(int slot, int n) {
+        if (px[slot].length >= n)
+            return;
+
+        int size = Math.max(n, px[slot].length * 2);
+        px[slot] = java.util.Arrays.copyOf(px[slot], size);
+        py[slot] = java.util.Arrays.copyOf(py[slot], size);
+        vx[slot] = java.util.Arrays.copyOf(vx[slot], size);
+        vy[slot] = java.util.Arrays.copyOf(vy[slot], size);
+        angle[slot] = java.util.Arrays.copyOf(angle[slot], size);
+        angularVelocity[slot] = java.util.Arrays.copyOf(angularVelocity[slot], size);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getRollbacks() {
+        return rollbacks;
+    }
+
+    public long getResimulatedTicks() {
+        return resimulatedTicks;
+    }
+
+    public long getClampedInputs() {
+        return clampedInputs;
+    }
+}
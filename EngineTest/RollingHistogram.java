@@ -0,0 +1,106 @@
+package EngineTest;
+
+// Histograma de tempos (nanos) no estilo HDR: buckets log-lineares, ~3% de erro relativo,
+// sem alocar nada no record(). "Rolling": guarda duas janelas (atual e anterior) e troca a
+// cada 'windowSize' amostras, então os percentis refletem só o passado recente.
+public class RollingHistogram {
+
+    // 2^SUB_BITS buckets lineares por potência de 2
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int MAX_EXPONENT = 40; // ~1100 segundos em nanos
+    private static final int BUCKETS = (MAX_EXPONENT + 1) * SUB_COUNT;
+
+    private long[] current = new long[BUCKETS];
+    private long[] previous = new long[BUCKETS];
+    private long currentCount = 0;
+    private long previousCount = 0;
+    private final long windowSize;
+
+    private long max = 0; // Maior valor da janela atual
+    private long totalCount = 0;
+    private long totalSum = 0;
+
+    public RollingHistogram(long windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    public synchronized void record(long value) {
+        if (value < 0)
+            value = 0;
+
+        if (currentCount == windowSize) {
+            // Troca as janelas (reaproveita o array antigo)
+            long[] tmp = previous;
+            previous = current;
+            current = tmp;
+            java.util.Arrays.fill(current, 0);
+            previousCount = currentCount;
+            currentCount = 0;
+            max = 0;
+        }
+
+        current[bucketOf(value)]++;
+        currentCount++;
+        totalCount++;
+        totalSum += value;
+        if (value > max)
+            max = value;
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_COUNT)
+            return (int) value;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value); // Posição do bit mais alto
+        if (exponent > MAX_EXPONENT)
+            return BUCKETS - 1;
+
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_COUNT - 1);
+        return (exponent - SUB_BITS + 1) * SUB_COUNT + sub;
+    }
+
+    // Limite superior do bucket (valor reportado nos percentis)
+    private static long valueOf(int bucket) {
+        if (bucket < SUB_COUNT)
+            return bucket;
+
+        int exponent = bucket / SUB_COUNT + SUB_BITS - 1;
+        int sub = bucket % SUB_COUNT;
+        long base = 1L << exponent;
+        return base + ((long) (sub + 1) << (exponent - SUB_BITS)) - 1;
+    }
+
+    // Percentil (0..100) das duas janelas juntas, em nanos
+    public synchronized long percentile(double p) {
+        long count = currentCount + previousCount;
+        if (count == 0)
+            return 0;
+
+        long target = Math.max(1, (long) Math.ceil(p / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += current[i] + previous[i];
+            if (seen >= target)
+                return valueOf(i);
+        }
+        return valueOf(BUCKETS - 1);
+    }
+
+    public double percentileMillis(double p) {
+        return percentile(p) / 1_000_000.0;
+    }
+
+    public synchronized long getMax() {
+        return max;
+    }
+
+    // Desde o início (não rola): usados por contadores tipo Prometheus
+    public synchronized long getTotalCount() {
+        return totalCount;
+    }
+
+    public synchronized long getTotalSum() {
+        return totalSum;
+    }
+}
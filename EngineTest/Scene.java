@@ -2,7 +2,12 @@
 package EngineTest;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
 import java.awt.Graphics2D; // Necessário para o render
 import java.awt.Color; // Necessário para cores de debug
 
@@ -11,12 +16,122 @@ public class Scene {
     List<RigidBody> bodies = new ArrayList<>();
     List<Manifold> contacts = new ArrayList<>();
 
+    // Índice ID -> corpo (só corpos com ID, registrados por addBodyServer/insertBody)
+    private final Map<Integer, RigidBody> bodiesById = new HashMap<>();
+
     float deltaTime;
     float iterations;
 
+    // Sub-stepping: > 1 divide o dt em 'substeps' passos com UMA iteração do solver cada,
+    // reaproveitando os contatos do início do step ('iterations' é ignorado) e com contato
+    // macio de impulso acumulado no lugar do PositionalCorrection (ver Manifold.beginSubsteps).
+    // 1 = modo clássico.
+    public int substeps = 1;
+
+    // O que o narrowphase guardou de cada par de polígonos no step anterior (ver Manifold.pairHint)
+    private final PairCache pairCache = new PairCache();
+
+    // Manifolds reaproveitados entre steps: 'contacts' aponta para os do pool
+    private final ManifoldPool manifolds = new ManifoldPool();
+
+    // Backend do narrowphase (-Dsim.narrowphase=gjk). Muda o resultado: vai no snapshot e no
+    // SETTINGS de quem entra, como o substeps
+    public Manifold.Backend narrowphase = Manifold.Backend.SAT;
+
+    // Pares círculo x círculo em lote (CircleBatch), só com o backend SAT. Mesmo resultado
+    // do par a par, bit a bit; OFF por padrão (-Dsim.circleBatch=scalar|vector)
+    CircleBatch.Mode circleBatch = CircleBatch.Mode.OFF;
+    private final CircleBatch circles = new CircleBatch();
+
+    // CCD: corpo que andar mais que ccdThreshold * o raio interno da forma num step é varrido
+    // contra os estáticos (bullets sempre, ver Ccd). <= 0 desliga para quem não é bullet:
+    // desligado por padrão, como antes do CCD (-Dsim.ccd=0.5 liga)
+    public double ccdThreshold = 0;
+    private final Ccd ccd = new Ccd();
+
+    // --- MUNDO ESTÁTICO ---
+    // Corpos com invMass 0 ficam numa BVH à parte, refeita só quando algum deles muda
+    // (entrou, saiu ou a AABB mexeu). Os dinâmicos descem nela em vez de testar cada estático.
+    // A separação estático/dinâmico só é refeita quando a lista muda (corpo entrou, saiu,
+    // snapshot, rollback) ou alguém avisa (invalidateStatics): fora disso o step não passa
+    // pelos estáticos.
+    final StaticBvh staticBvh = new StaticBvh();
+    private Shape[] staticShapes = new Shape[0]; // Estáticos na ordem da lista (o que a BVH viu)
+    private double[] staticBoxes = new double[0]; // AABB de cada um no último build
+    int[] staticIndex = new int[0]; // Índice do estático em 'bodies' neste step
+    private int staticCount = 0;
+    int[] dynamicIndex = new int[0];
+    int dynamicCount = 0;
+    private boolean staticsDirty = true;
+    private int classifiedBodies = -1; // Tamanho da lista na última separação
+    // AABBs dos dinâmicos (mesma ordem de dynamicIndex), ordenadas em x para o findPairs
+    private final SweepAndPrune sweep = new SweepAndPrune();
+
+    // Pares candidatos do step, (i << 32) | j com i < j, ordenados: a ordem do antigo laço i < j
+    private long[] pairs = new long[256];
+
+    // --- JUNTAS ---
+    // Restrições resolvidas junto com os contatos (ver Constraint), agrupadas por tipo: o
+    // laço do solver passa por todas as de uma classe seguidas
+    private Constraint[] constraints = new Constraint[16];
+    private int constraintCount = 0;
+
+    // --- EVENTOS DE CONTATO ---
+    // Recebe no fim de cada step os pares que começaram/pararam de se tocar (ver
+    // ContactListener). null = nada é acompanhado.
+    public ContactListener contactListener;
+    private final PairCache touching = new PairCache(); // Par se tocando -> 1 se sensor, 0 se não
+    private RigidBody[] touchPrev = new RigidBody[64], touchCur = new RigidBody[64]; // a0, b0, a1, b1...
+    private int touchPrevCount = 0, touchCurCount = 0;
+    private boolean tracked = false; // O step anterior acompanhou?
+    private final List<ContactEvent> contactEvents = new ArrayList<>();
+    // Rollback: os steps ressimulados não entregam eventos; o listener recebe no fim só a
+    // diferença entre os pares que ele viu (guardados aqui antes da volta) e os de agora
+    boolean resimulating = false;
+    private final PairCache touchSeen = new PairCache();
+    private RigidBody[] touchSeenPairs = new RigidBody[64];
+    private int touchSeenCount = 0;
+
+    // --- CONSULTAS (raio, caixa, ponto) ---
+    // 'mask' filtra pela RigidBody.layer; ALL_LAYERS vê todos
+    public static final int ALL_LAYERS = -1;
+    private final SceneQuery query = new SceneQuery(this);
+    // O mundo mudou desde a última sincronização das consultas? (ver prepareQueries)
+    private boolean queriesDirty = true;
+    private int queriedBodies = -1;
+    // AABB de cada dinâmico na sincronização (posição em dynamicIndex), ordenadas em x: a
+    // consulta não passa por corpo e forma de cada um, só pelos que tocam a faixa em x
+    final SweepAndPrune querySweep = new SweepAndPrune();
+    // Lote de raios: abaixo disso roda na thread de quem chamou; acima, em tarefas de
+    // RAYS_PER_TASK raios no ForkJoinPool comum
+    private static final int PARALLEL_RAYS = 256;
+    private static final int RAYS_PER_TASK = 64;
+
     // Contador Global de IDs (Só o Servidor usa isso)
     private int nextIdCounter = 0;
 
+    // Quantos steps já rodaram
+    public long tick = 0;
+
+    // Tempo por fase do step + contadores (ver StepProfiler)
+    public final StepProfiler profiler = new StepProfiler();
+
+    // Gravação dos INPUT/SPAWN aplicados (ver InputRecorder); null = desligada
+    public InputRecorder recorder;
+
+    // Estados recentes para aplicar INPUT atrasado no tick certo (ver RollbackBuffer); null = desligado
+    public RollbackBuffer rollback;
+
+    // --- MODO DETERMINÍSTICO ---
+    // Mesma semente + mesmos comandos nos mesmos ticks = mesmo mundo, bit a bit.
+    // O cliente simula junto e só compara o hash com o servidor (em vez de receber SYNC).
+    public boolean deterministic = false;
+    public SceneRandom random = new SceneRandom();
+    public final WorldHash worldHash = new WorldHash();
+    // Cliente: -1 até o mundo inteiro chegar; depois, o tick em que o servidor o tirou
+    long baselineTick = -1;
+    boolean snapshotReceived = false;
+
     // Acceleration
     // F = mA
     // => A = F * 1/m
@@ -29,19 +144,77 @@ public class Scene {
     // v += (1/m * F) * dt
     // x += v * dt
 
-    // Método para encontrar um corpo pelo ID (O(n) - simples para agora)
+    // Método para encontrar um corpo pelo ID
     public RigidBody findBodyById(int id) {
+        return bodiesById.get(id);
+    }
+
+    // Refaz o índice a partir da lista (ex: depois de restaurar um snapshot)
+    void rebuildIndex() {
+        queriesDirty = true;
+        staticsDirty = true;
+        bodiesById.clear();
         for (RigidBody b : bodies) {
-            if (b.id == id)
-                return b;
+            if (b.id != -1)
+                bodiesById.put(b.id, b);
+        }
+    }
+
+    // Corpos que o CCD parou num impacto, desde o início
+    public long getCcdHits() {
+        return ccd.getHits();
+    }
+
+    // Quantas vezes a BVH dos estáticos foi refeita, desde o início
+    public long getStaticRebuilds() {
+        return staticBvh.getBuilds();
+    }
+
+    int getNextIdCounter() {
+        return nextIdCounter;
+    }
+
+    void setNextIdCounter(int next) {
+        nextIdCounter = next;
+    }
+
+    public void setDeterministic(long seed) {
+        deterministic = true;
+        random = new SceneRandom(seed);
+    }
+
+    // Corpo vindo do servidor: no modo determinístico a lista fica ordenada por ID,
+    // a mesma ordem do servidor (o step resolve os pares nessa ordem)
+    public void insertBody(RigidBody b) {
+        if (b.id != -1)
+            bodiesById.put(b.id, b);
+        staticsDirty = true;
+
+        if (!deterministic) {
+            bodies.add(b);
+            return;
+        }
+
+        int i = bodies.size();
+        while (i > 0 && bodies.get(i - 1).id > b.id) {
+            i--;
+        }
+        bodies.add(i, b);
+    }
+
+    // Avança a simulação até a cena estar no tick pedido
+    public void stepTo(long target) {
+        while (tick < target) {
+            step();
         }
-        return null;
     }
 
     // Método para registrar um corpo novo (Servidor chama isso)
     public void addBodyServer(RigidBody b) {
         b.id = nextIdCounter++; // Atribui ID único
         bodies.add(b);
+        bodiesById.put(b.id, b);
+        staticsDirty = true;
     }
 
     void IntegrateForces(RigidBody b, double dt) {
@@ -74,73 +247,567 @@ public class Scene {
         IntegrateForces(b, dt);
     }
 
+    // Entra logo depois da última do mesmo tipo (a ordem dentro do tipo é a de chegada)
+    public void addConstraint(Constraint c) {
+        if (constraintCount == constraints.length)
+            constraints = Arrays.copyOf(constraints, constraintCount * 2);
+
+        int at = constraintCount;
+        for (int i = constraintCount - 1; i >= 0; i--) {
+            if (constraints[i].getClass() == c.getClass()) {
+                at = i + 1;
+                break;
+            }
+        }
+        System.arraycopy(constraints, at, constraints, at + 1, constraintCount - at);
+        constraints[at] = c;
+        constraintCount++;
+    }
+
+    public boolean removeConstraint(Constraint c) {
+        for (int i = 0; i < constraintCount; i++) {
+            if (constraints[i] == c) {
+                System.arraycopy(constraints, i + 1, constraints, i, constraintCount - i - 1);
+                constraints[--constraintCount] = null;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void clearConstraints() {
+        Arrays.fill(constraints, 0, constraintCount, null);
+        constraintCount = 0;
+    }
+
+    public int getConstraintCount() {
+        return constraintCount;
+    }
+
+    public Constraint getConstraint(int i) {
+        return constraints[i];
+    }
+
     public void step() {
+        StepProfiler prof = profiler.enabled ? profiler : null;
+        long t = (prof != null) ? prof.begin() : 0;
+        int pairTests = 0;
+
+        // JFR: desligado, o begin/shouldCommit é praticamente de graça
+        SimulationEvents.SimulationTick event = new SimulationEvents.SimulationTick();
+        event.begin();
+
+        if (rollback != null && !deterministic)
+            rollback.save(this);
+
         contacts.clear();
+        manifolds.reset();
+
+        pairCache.swap();
+
+        // Contatos do step anterior viram os "de antes"; voltando a acompanhar depois de um
+        // tempo sem listener, começa do zero
+        boolean tracking = contactListener != null;
+        if (tracking) {
+            if (!tracked) {
+                touching.swap();
+                touchCurCount = 0;
+            }
+            touching.swap();
+            RigidBody[] swap = touchPrev;
+            touchPrev = touchCur;
+            touchCur = swap;
+            touchPrevCount = touchCurCount;
+            touchCurCount = 0;
+        }
+        tracked = tracking;
+
+        // AABB + vértices no mundo de cada corpo, uma vez por step (o narrowphase e o
+        // render leem do cache em vez de transformar a cada par). Estático parado já está
+        // em dia desde a última separação.
+        updateStaticWorld();
+        for (int d = 0; d < dynamicCount; d++) {
+            bodies.get(dynamicIndex[d]).shape.updateWorld();
+        }
+
+        // Poses do início do step, para o CCD varrer o caminho no fim
+        ccd.begin(this);
 
         // Manifold Generation
-        // Bruteforce Collision Detection O(n^2)
-        for (int i = 0; i < bodies.size(); i++) {
-            RigidBody A = bodies.get(i);
+        // Broadphase: dinâmico x dinâmico por sort and sweep (SweepAndPrune), dinâmico x
+        // estático pela BVH
+        int pairCount = findPairs();
+        int batched = 0, next = 0;
+        if (circleBatch != CircleBatch.Mode.OFF && narrowphase == Manifold.Backend.SAT) {
+            batched = circles.collect(pairs, pairCount, bodies);
+            circles.run(circleBatch);
+        }
+        for (int p = 0; p < pairCount; p++) {
+            RigidBody A = bodies.get((int) (pairs[p] >>> 32));
+            RigidBody B = bodies.get((int) pairs[p]);
+
+            Manifold m = manifolds.acquire(A, B);
+            pairTests++;
+
+            boolean polys = A.shape.getType() == Shape.Type.POLY && B.shape.getType() == Shape.Type.POLY;
+            if (polys)
+                m.pairHint = pairCache.get(A, B);
+
+            // Par do lote: o resultado já está calculado, só vai para o Manifold
+            if (next < batched && circles.pair[next] == p)
+                circles.write(next++, m);
+            else
+                m.Solve(narrowphase);
+
+            if (polys && m.pairResult != PairCache.NONE)
+                pairCache.put(A, B, m.pairResult);
+
+            if (m.contactCount > 0) {
+                boolean sensor = A.sensor || B.sensor;
+                if (tracking)
+                    touch(A, B, sensor);
+                if (sensor)
+                    continue; // Só o evento: sem contato, sem impulso
+
+                manifolds.keep();
+                contacts.add(m);
+                A.lastContactTick = tick;
+                B.lastContactTick = tick;
+            }
+        }
 
-            for (int j = i + 1; j < bodies.size(); j++) {
-                RigidBody B = bodies.get(j);
+        // Pares que se tocavam e não se tocam mais (ou cujo corpo saiu da cena)
+        if (tracking) {
+            for (int k = 0; k < touchPrevCount; k += 2) {
+                RigidBody a = touchPrev[k], b = touchPrev[k + 1];
+                if (touching.current(a, b) == PairCache.NONE)
+                    contactEvents.add(new ContactEvent(a, b, false, touching.get(a, b) == 1));
+            }
+            Arrays.fill(touchPrev, 0, touchPrevCount, null);
+        }
+        if (prof != null)
+            t = prof.mark(StepProfiler.Phase.MANIFOLDS, t);
+
+        // Broadphase/manifolds uma vez por step; com sub-stepping os mesmos contatos valem
+        // para todos os sub-passos (os corpos andam pouco em dt/n)
+        int n = substeps > 1 ? substeps : 1;
+        float passes = n > 1 ? 1 : iterations;
+        double h = deltaTime / n;
+
+        for (int s = 0; s < n; s++) {
+            // Integrate Forces
+            for (int d = 0; d < dynamicCount; d++) {
+                IntegrateForces(bodies.get(dynamicIndex[d]), h);
+            }
+            if (prof != null)
+                t = prof.accumulate(StepProfiler.Phase.INTEGRATE_FORCES, t);
 
-                if (A.invMass == 0 && B.invMass == 0)
-                    continue;
+            // Initialize collisions (e as juntas: braços, massas efetivas e bias do step)
+            if (s == 0) {
+                for (int i = 0; i < constraintCount; i++) {
+                    constraints[i].initialize(deltaTime, h);
+                }
+                for (int i = 0; i < contacts.size(); i++) {
+                    Manifold m = contacts.get(i);
 
-                Manifold m = new Manifold(A, B);
+                    m.Initialize();
+                    if (n > 1)
+                        m.beginSubsteps();
+                }
+                if (prof != null)
+                    t = prof.accumulate(StepProfiler.Phase.INITIALIZE, t);
+            }
 
-                m.Solve();
+            // Sub-passo: reaplica o impulso acumulado dos contatos (ver Manifold.warmStart)
+            if (n > 1) {
+                for (int i = 0; i < contacts.size(); i++) {
+                    contacts.get(i).warmStart();
+                }
+            }
 
-                if (m.contactCount > 0) {
-                    contacts.add(m);
+            // Solve collisions (juntas primeiro, na mesma iteração)
+            for (int i = 0; i < passes; i++) {
+                for (int j = 0; j < constraintCount; j++) {
+                    constraints[j].solve();
+                }
+                for (int j = 0; j < contacts.size(); j++) {
+                    Manifold m = contacts.get(j);
+                    if (n > 1)
+                        m.solveSubstep(h, true);
+                    else
+                        m.ApplyImpulse();
                 }
             }
-        }
+            if (prof != null)
+                t = prof.accumulate(StepProfiler.Phase.SOLVE, t);
+
+            // Integrate Velocities
+            for (int d = 0; d < dynamicCount; d++) {
+                IntegrateVelocity(bodies.get(dynamicIndex[d]), h);
+            }
+            if (prof != null)
+                t = prof.accumulate(StepProfiler.Phase.INTEGRATE_VELOCITY, t);
 
-        // Integrate Forces
-        for (int i = 0; i < bodies.size(); i++) {
-            IntegrateForces(bodies.get(i), deltaTime);
+            // Sub-passo: relax, sem o bias da penetração (que já virou posição)
+            if (n > 1) {
+                for (int i = 0; i < contacts.size(); i++) {
+                    contacts.get(i).solveSubstep(h, false);
+                }
+                if (prof != null)
+                    t = prof.accumulate(StepProfiler.Phase.SOLVE, t);
+            }
         }
 
-        // Initialize collisions
+        // Correct Positions (com sub-stepping o contato macio já desfez a penetração; só
+        // falta a restituição)
         for (int i = 0; i < contacts.size(); i++) {
             Manifold m = contacts.get(i);
+            if (n > 1)
+                m.applyRestitution();
+            else
+                m.PositionalCorrection();
+        }
+        if (prof != null)
+            t = prof.accumulate(StepProfiler.Phase.CORRECT_POSITIONS, t);
+
+        // Continuous collision: quem andou demais volta para o ponto de impacto
+        ccd.solve(this);
+        if (prof != null)
+            t = prof.mark(StepProfiler.Phase.CONTINUOUS, t);
+
+        // Clear all forces (e monta o hash do estado no mesmo laço: o hash passa por todos
+        // os corpos, na ordem da lista; sem ele, só os dinâmicos, que são quem integra força)
+        if (deterministic) {
+            worldHash.begin();
+            for (int i = 0; i < bodies.size(); i++) {
+                RigidBody b = bodies.get(i);
+                b.force.set(0, 0);
+                b.torque = 0;
+                worldHash.add(b);
+            }
+        } else {
+            for (int d = 0; d < dynamicCount; d++) {
+                RigidBody b = bodies.get(dynamicIndex[d]);
+                b.force.set(0, 0);
+                b.torque = 0;
+            }
+        }
+        if (prof != null) {
+            prof.mark(StepProfiler.Phase.CLEAR_FORCES, t);
+            prof.end(pairTests, contacts.size(), (int) passes * n);
+        }
 
-            m.Initialize();
+        event.end();
+        if (event.shouldCommit()) {
+            event.tick = tick;
+            event.bodies = bodies.size();
+            event.contacts = contacts.size();
+            event.pairTests = pairTests;
+            if (prof != null) {
+                event.manifolds = prof.getLastNanos(StepProfiler.Phase.MANIFOLDS);
+                event.integrateForces = prof.getLastNanos(StepProfiler.Phase.INTEGRATE_FORCES);
+                event.initialize = prof.getLastNanos(StepProfiler.Phase.INITIALIZE);
+                event.solve = prof.getLastNanos(StepProfiler.Phase.SOLVE);
+                event.integrateVelocity = prof.getLastNanos(StepProfiler.Phase.INTEGRATE_VELOCITY);
+                event.correctPositions = prof.getLastNanos(StepProfiler.Phase.CORRECT_POSITIONS);
+                event.continuous = prof.getLastNanos(StepProfiler.Phase.CONTINUOUS);
+                event.clearForces = prof.getLastNanos(StepProfiler.Phase.CLEAR_FORCES);
+            }
+            event.commit();
         }
 
-        // Solve collisions
-        for (int i = 0; i < iterations; i++) {
-            for (int j = 0; j < contacts.size(); j++) {
-                Manifold m = contacts.get(j);
-                m.ApplyImpulse();
+        tick++;
+        if (deterministic)
+            worldHash.end(tick);
+        queriesDirty = true;
+
+        // Eventos do step, em lote, com o step já fechado (ressimulando: ver endResimulation)
+        if (resimulating)
+            contactEvents.clear();
+        else if (tracking && !contactEvents.isEmpty()) {
+            try {
+                contactListener.onContacts(this, contactEvents);
+            } finally {
+                contactEvents.clear();
             }
         }
+    }
+
+    // Chamado pelo RollbackBuffer antes de ressimular: guarda os pares que o listener já viu
+    void beginResimulation() {
+        resimulating = true;
+        touchSeenCount = 0;
+        if (contactListener == null || !tracked)
+            return;
 
-        // Integrate Velocities
-        for (int i = 0; i < bodies.size(); i++) {
-            IntegrateVelocity(bodies.get(i), deltaTime);
+        touchSeen.swap();
+        if (touchSeenPairs.length < touchCurCount)
+            touchSeenPairs = new RigidBody[touchCur.length];
+        for (int k = 0; k < touchCurCount; k += 2) {
+            RigidBody a = touchCur[k], b = touchCur[k + 1];
+            touchSeen.put(a, b, touching.current(a, b));
+            touchSeenPairs[k] = a;
+            touchSeenPairs[k + 1] = b;
         }
+        touchSeenCount = touchCurCount;
+    }
 
-        // Correct Positions
-        for (int i = 0; i < contacts.size(); i++) {
-            Manifold m = contacts.get(i);
-            m.PositionalCorrection();
+    // Fim da ressimulação: entrega de uma vez o que mudou para o listener (pares que
+    // começaram e que pararam de se tocar), como se fosse um step só
+    void endResimulation() {
+        resimulating = false;
+        if (contactListener != null && tracked) {
+            for (int k = 0; k < touchSeenCount; k += 2) {
+                RigidBody a = touchSeenPairs[k], b = touchSeenPairs[k + 1];
+                if (touching.current(a, b) == PairCache.NONE)
+                    contactEvents.add(new ContactEvent(a, b, false, touchSeen.current(a, b) == 1));
+            }
+            for (int k = 0; k < touchCurCount; k += 2) {
+                RigidBody a = touchCur[k], b = touchCur[k + 1];
+                if (touchSeen.current(a, b) == PairCache.NONE)
+                    contactEvents.add(new ContactEvent(a, b, true, touching.current(a, b) == 1));
+            }
+        }
+        Arrays.fill(touchSeenPairs, 0, touchSeenCount, null);
+        touchSeenCount = 0;
+
+        if (contactListener != null && !contactEvents.isEmpty()) {
+            try {
+                contactListener.onContacts(this, contactEvents);
+            } finally {
+                contactEvents.clear();
+            }
         }
+    }
 
-        // Clear all forces
-        for (int i = 0; i < bodies.size(); i++) {
+    // Par se tocando neste step; início se não se tocava no anterior. Menor uid primeiro,
+    // para o par ter a mesma chave mesmo se a ordem da lista mudar.
+    private void touch(RigidBody A, RigidBody B, boolean sensor) {
+        RigidBody a = (A.uid < B.uid) ? A : B;
+        RigidBody b = (a == A) ? B : A;
+        touching.put(a, b, sensor ? 1 : 0);
+        if (touchCurCount + 2 > touchCur.length)
+            touchCur = Arrays.copyOf(touchCur, touchCur.length * 2);
+        touchCur[touchCurCount++] = a;
+        touchCur[touchCurCount++] = b;
+
+        if (touching.get(a, b) == PairCache.NONE)
+            contactEvents.add(new ContactEvent(a, b, true, sensor));
+    }
+
+    // Separa estáticos e dinâmicos (com updateWorld dos estáticos) e refaz a BVH se algum
+    // estático entrou, saiu ou mexeu desde o último build. Só quando a lista mudou ou alguém
+    // chamou invalidateStatics; senão a separação do step anterior vale.
+    private void updateStaticWorld() {
+        int n = bodies.size();
+        if (!staticsDirty && classifiedBodies == n)
+            return;
+        if (dynamicIndex.length < n)
+            dynamicIndex = new int[Math.max(n, dynamicIndex.length * 2)];
+
+        int statics = 0, dynamics = 0;
+        boolean dirty = false;
+        for (int i = 0; i < n; i++) {
             RigidBody b = bodies.get(i);
-            b.force = new Vector2(0, 0);
-            b.torque = 0;
+            if (b.invMass != 0) {
+                dynamicIndex[dynamics++] = i;
+                continue;
+            }
+
+            if (statics == staticShapes.length) {
+                int cap = Math.max(16, statics * 2);
+                staticShapes = Arrays.copyOf(staticShapes, cap);
+                staticBoxes = Arrays.copyOf(staticBoxes, cap * 4);
+                staticIndex = Arrays.copyOf(staticIndex, cap);
+            }
+            Shape s = b.shape;
+            s.updateWorld();
+            int k = statics * 4;
+            if (statics >= staticCount || staticShapes[statics] != s || staticBoxes[k] != s.minX
+                    || staticBoxes[k + 1] != s.minY || staticBoxes[k + 2] != s.maxX || staticBoxes[k + 3] != s.maxY) {
+                dirty = true;
+                staticShapes[statics] = s;
+                staticBoxes[k] = s.minX;
+                staticBoxes[k + 1] = s.minY;
+                staticBoxes[k + 2] = s.maxX;
+                staticBoxes[k + 3] = s.maxY;
+            }
+            staticIndex[statics++] = i;
         }
+        dynamicCount = dynamics;
 
-        String estadoCena = "SCENE:";
-        for (RigidBody b : bodies) {
-            estadoCena += "BODY:" + b.position.x + ":" + b.position.y + ";";
+        if (dirty || statics != staticCount) {
+            // Solta as referências que sobraram de um build maior
+            Arrays.fill(staticShapes, statics, staticShapes.length, null);
+            staticCount = statics;
+            staticBvh.build(staticShapes, statics);
+        }
+        staticsDirty = false;
+        classifiedBodies = n;
+    }
+
+    // Pares cujas AABBs se tocam (ao menos um dinâmico) e que o filtro de colisão deixa
+    // passar (RigidBody.shouldCollide), em 'pairs'. Devolve quantos.
+    private int findPairs() {
+        sweep.resize(dynamicCount);
+        for (int a = 0; a < dynamicCount; a++) {
+            sweep.set(a, bodies.get(dynamicIndex[a]).shape);
+        }
+
+        // dynamicIndex é crescente: a < b na varredura dá i < j nos corpos
+        int count = 0;
+        int touching = sweep.find();
+        for (int h = 0; h < touching; h++) {
+            int i = dynamicIndex[(int) (sweep.pairs[h] >>> 32)];
+            int j = dynamicIndex[(int) sweep.pairs[h]];
+            if (!RigidBody.shouldCollide(bodies.get(i), bodies.get(j)))
+                continue;
+            if (count == pairs.length)
+                pairs = Arrays.copyOf(pairs, count * 2);
+            pairs[count++] = ((long) i << 32) | j;
+        }
+
+        for (int a = 0; a < dynamicCount; a++) {
+            int i = dynamicIndex[a];
+            RigidBody body = bodies.get(i);
+            Shape A = body.shape;
+
+            int hits = staticBvh.query(A.minX, A.minY, A.maxX, A.maxY);
+            for (int h = 0; h < hits; h++) {
+                int j = staticIndex[staticBvh.hit(h)];
+                if (!RigidBody.shouldCollide(body, bodies.get(j)))
+                    continue;
+                if (count == pairs.length)
+                    pairs = Arrays.copyOf(pairs, count * 2);
+                pairs[count++] = (i < j) ? ((long) i << 32) | j : ((long) j << 32) | i;
+            }
+        }
+
+        // Mesma ordem do laço i < j antigo: o solver percorre os contatos nessa ordem
+        Arrays.sort(pairs, 0, count);
+        return count;
+    }
+
+    // Estáticos cujas AABBs tocam a caixa (BVH do step atual). Devolve quantos; o índice
+    // em 'bodies' de cada um sai em staticHit(0..n), válido até a próxima busca.
+    int queryStatic(double x0, double y0, double x1, double y1) {
+        return staticBvh.query(x0, y0, x1, y1);
+    }
+
+    int staticHit(int i) {
+        return staticIndex[staticBvh.hit(i)];
+    }
+
+    // Quem mexe em posição ou ângulo de um dinâmico fora do step (teleporte, SYNC) chama
+    // isto para as consultas verem a mudança (estático ou massa: invalidateStatics). Step,
+    // corpo entrando/saindo da lista e snapshot restaurado já contam sozinhos.
+    public void invalidateQueries() {
+        queriesDirty = true;
+    }
+
+    // Corpo que virou estático ou dinâmico (invMass mudou) ou estático movido fora do step:
+    // o step não passa mais pelos estáticos, então quem muda isso avisa aqui. Corpo entrando
+    // pelos métodos da cena, snapshot e rollback já contam sozinhos, assim como mudar o
+    // tamanho de 'bodies' direto.
+    public void invalidateStatics() {
+        staticsDirty = true;
+        queriesDirty = true;
+    }
+
+    // Deixa AABBs, vértices no mundo e a BVH dos estáticos iguais ao estado atual dos corpos
+    // (o mesmo que o começo do step). Só roda se algo mudou desde a última vez: percorrer
+    // todos os corpos custaria mais que a consulta.
+    private void prepareQueries() {
+        if (!queriesDirty && queriedBodies == bodies.size())
+            return;
+        updateStaticWorld();
+        for (int d = 0; d < dynamicCount; d++) {
+            bodies.get(dynamicIndex[d]).shape.updateWorld();
+        }
+
+        // Insertion sort a partir da ordem da última sincronização (os corpos andaram pouco)
+        querySweep.resize(dynamicCount);
+        for (int d = 0; d < dynamicCount; d++) {
+            querySweep.set(d, bodies.get(dynamicIndex[d]).shape);
         }
+        querySweep.sortForQueries();
+        queriesDirty = false;
+        queriedBodies = bodies.size();
+    }
 
+    // Primeiro corpo que o raio origem + t * (dx, dy) acerta com t em [0, maxDistance]
+    // (t em metros; a direção não precisa ser unitária), ou null
+    public RaycastHit raycast(double ox, double oy, double dx, double dy, double maxDistance, int mask) {
+        double len = Math.sqrt(dx * dx + dy * dy);
+        if (len == 0)
+            return null;
+        prepareQueries();
+        RaycastHit hit = new RaycastHit();
+        return query.raycast(ox, oy, dx / len, dy / len, maxDistance, mask, hit) ? hit : null;
+    }
+
+    // Todos os corpos que o raio acerta, do mais perto ao mais longe, no fim de 'out'.
+    // Devolve quantos.
+    public int raycastAll(double ox, double oy, double dx, double dy, double maxDistance, int mask,
+            List<RaycastHit> out) {
+        double len = Math.sqrt(dx * dx + dy * dy);
+        if (len == 0)
+            return 0;
+        prepareQueries();
+        return query.raycastAll(ox, oy, dx / len, dy / len, maxDistance, mask, out);
+    }
+
+    // Vários raios de uma vez (visão de IA, sensores): raio k em rays[5k..5k+5) = origem x,
+    // y, direção x, y, distância máxima; hits[k] = o mais perto ou null. Uma sincronização
+    // para o lote todo e, com PARALLEL_RAYS ou mais, os raios divididos entre as threads.
+    // Devolve quantos acertaram.
+    public int raycastBatch(double[] rays, int count, int mask, RaycastHit[] hits) {
+        prepareQueries();
+        if (count < PARALLEL_RAYS) {
+            castRays(query, rays, 0, count, mask, hits);
+        } else {
+            int tasks = (count + RAYS_PER_TASK - 1) / RAYS_PER_TASK;
+            IntStream.range(0, tasks).parallel().forEach(task -> {
+                int from = task * RAYS_PER_TASK;
+                castRays(new SceneQuery(this), rays, from, Math.min(count, from + RAYS_PER_TASK), mask, hits);
+            });
+        }
+
+        int found = 0;
+        for (int k = 0; k < count; k++) {
+            if (hits[k] != null)
+                found++;
+        }
+        return found;
+    }
+
+    private static void castRays(SceneQuery q, double[] rays, int from, int to, int mask, RaycastHit[] hits) {
+        RaycastHit hit = null;
+        for (int k = from; k < to; k++) {
+            int r = k * 5;
+            double dx = rays[r + 2], dy = rays[r + 3];
+            double len = Math.sqrt(dx * dx + dy * dy);
+            if (hit == null)
+                hit = new RaycastHit();
+            if (len > 0 && q.raycast(rays[r], rays[r + 1], dx / len, dy / len, rays[r + 4], mask, hit)) {
+                hits[k] = hit;
+                hit = null;
+            } else {
+                hits[k] = null;
+            }
+        }
+    }
+
+    // Corpos cuja forma toca a caixa, no fim de 'out' (ordem da lista). Devolve quantos.
+    public int queryAABB(double x0, double y0, double x1, double y1, int mask, List<RigidBody> out) {
+        prepareQueries();
+        return query.queryAABB(Math.min(x0, x1), Math.min(y0, y1), Math.max(x0, x1), Math.max(y0, y1), mask, out);
+    }
+
+    // Corpos que contêm o ponto, no fim de 'out' (ordem da lista). Devolve quantos.
+    public int queryPoint(double x, double y, int mask, List<RigidBody> out) {
+        prepareQueries();
+        return query.queryPoint(x, y, mask, out);
     }
 
     public void render(Graphics2D g, double scale, int screenHeight) {
@@ -154,6 +821,11 @@ public class Scene {
             }
         }
 
+        // Juntas: linha entre as âncoras
+        for (int i = 0; i < constraintCount; i++) {
+            constraints[i].draw(g, scale, screenHeight);
+        }
+
         // 2. Desenhar Informações de Colisão (Debug Draw)
         // Isso é útil para ver onde os contatos estão acontecendo
         for (Manifold m : contacts) {
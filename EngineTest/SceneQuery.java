@@ -0,0 +1,239 @@
+package EngineTest;
+
+import java.util.Arrays;
+import java.util.List;
+
+// Consultas espaciais do Scene (raio, caixa, ponto). Candidatos pelo broadphase do step
+// (BVH dos estáticos + AABBs dos dinâmicos ordenadas em x na sincronização), depois o
+// teste exato em Circle/PolygonShape.
+//
+// Uma instância por thread: a BVH e os caches de mundo das formas só são lidos aqui, o
+// rascunho (cursor, lista de candidatos) é de cada instância. Quem chama garante que o
+// Scene.prepareQueries() rodou depois da última mudança no mundo.
+final class SceneQuery {
+
+    private final Scene scene;
+    private final StaticBvh.Cursor cursor = new StaticBvh.Cursor();
+    private int[] candidates = new int[64];
+    private int candidateCount;
+    private final RaycastHit scratch = new RaycastHit();
+
+    SceneQuery(Scene scene) {
+        this.scene = scene;
+    }
+
+    // --- RAIO ---
+
+    // Mais perto em [0, maxDistance] ao longo de (dx, dy) unitário; grava em 'out'
+    boolean raycast(double ox, double oy, double dx, double dy, double maxDistance, int mask, RaycastHit out) {
+        rayCandidates(ox, oy, dx, dy, maxDistance, mask);
+
+        // Em ordem de índice: no empate de distância fica o primeiro corpo da lista
+        boolean hit = false;
+        for (int c = 0; c < candidateCount; c++) {
+            RigidBody b = scene.bodies.get(candidates[c]);
+            if (rayShape(b, ox, oy, dx, dy, hit ? out.distance : maxDistance, scratch)
+                    && (!hit || scratch.distance < out.distance)) {
+                out.body = scratch.body;
+                out.distance = scratch.distance;
+                out.point.set(scratch.point);
+                out.normal.set(scratch.normal);
+                hit = true;
+            }
+        }
+        return hit;
+    }
+
+    // Todos os corpos que o raio acerta, por distância (empate: ordem da lista)
+    int raycastAll(double ox, double oy, double dx, double dy, double maxDistance, int mask, List<RaycastHit> out) {
+        rayCandidates(ox, oy, dx, dy, maxDistance, mask);
+
+        int from = out.size();
+        RaycastHit h = new RaycastHit();
+        for (int c = 0; c < candidateCount; c++) {
+            RigidBody b = scene.bodies.get(candidates[c]);
+            if (rayShape(b, ox, oy, dx, dy, maxDistance, h)) {
+                out.add(h);
+                h = new RaycastHit();
+            }
+        }
+        // Sort estável: os empates continuam na ordem dos índices
+        out.subList(from, out.size()).sort((a, b) -> Double.compare(a.distance, b.distance));
+        return out.size() - from;
+    }
+
+    private void rayCandidates(double ox, double oy, double dx, double dy, double maxDistance, int mask) {
+        candidateCount = 0;
+        int n = scene.staticBvh.raycast(cursor, ox, oy, dx, dy, maxDistance);
+        for (int h = 0; h < n; h++)
+            addCandidate(scene.staticIndex[cursor.hit(h)], mask);
+
+        double ix = 1.0 / dx, iy = 1.0 / dy;
+        double ex = ox + dx * maxDistance, ey = oy + dy * maxDistance;
+        double x0 = Math.min(ox, ex), y0 = Math.min(oy, ey), x1 = Math.max(ox, ex), y1 = Math.max(oy, ey);
+        SweepAndPrune sweep = scene.querySweep;
+        for (int k = sweep.from(x0), end = sweep.to(x1); k < end; k++) {
+            int d = sweep.at(k);
+            if (sweep.overlaps(d, x0, y0, x1, y1) && sweep.slabs(d, ox, oy, ix, iy, maxDistance))
+                addCandidate(scene.dynamicIndex[d], mask);
+        }
+        Arrays.sort(candidates, 0, candidateCount);
+    }
+
+    // Raio x forma exata. Raio que começa dentro da forma não a acerta (como no Box2D):
+    // para "o que está aqui" existe o queryPoint.
+    static boolean rayShape(RigidBody b, double ox, double oy, double dx, double dy, double maxDistance,
+            RaycastHit out) {
+        Shape s = b.shape;
+        if (s.getType() == Shape.Type.CIRCLE) {
+            double r = s.radius;
+            double sx = ox - b.position.x, sy = oy - b.position.y;
+            double c = sx * sx + sy * sy - r * r;
+            if (c < 0)
+                return false;
+            double bb = sx * dx + sy * dy;
+            double disc = bb * bb - c;
+            if (disc < 0)
+                return false;
+            double t = -bb - Math.sqrt(disc);
+            if (t < 0 || t > maxDistance)
+                return false;
+
+            out.body = b;
+            out.distance = t;
+            out.point.set(ox + dx * t, oy + dy * t);
+            out.normal.set((out.point.x - b.position.x) / r, (out.point.y - b.position.y) / r);
+            return true;
+        }
+
+        // Polígono: recorta o segmento pelos semiplanos das faces (Cyrus-Beck). As normais
+        // do PolygonShape não são unitárias, mas a razão num / den não depende do tamanho.
+        PolygonShape p = (PolygonShape) s;
+        Vector2[] v = p.getWorldVertices();
+        Vector2[] n = p.getWorldNormals();
+        double lower = 0, upper = maxDistance;
+        int face = -1;
+        for (int i = 0; i < p.m_vertexCount; i++) {
+            double num = n[i].x * (v[i].x - ox) + n[i].y * (v[i].y - oy);
+            double den = n[i].x * dx + n[i].y * dy;
+            if (den == 0) {
+                if (num < 0)
+                    return false; // Paralelo à face e do lado de fora
+            } else if (den < 0 && num < lower * den) {
+                lower = num / den; // Entrando por esta face
+                face = i;
+            } else if (den > 0 && num < upper * den) {
+                upper = num / den; // Saindo por esta face
+            }
+            if (upper < lower)
+                return false;
+        }
+        if (face < 0)
+            return false; // Origem dentro
+
+        double len = Math.sqrt(n[face].x * n[face].x + n[face].y * n[face].y);
+        out.body = b;
+        out.distance = lower;
+        out.point.set(ox + dx * lower, oy + dy * lower);
+        out.normal.set(n[face].x / len, n[face].y / len);
+        return true;
+    }
+
+    // --- CAIXA / PONTO ---
+
+    // Corpos cuja forma toca a caixa, em ordem de índice
+    int queryAABB(double x0, double y0, double x1, double y1, int mask, List<RigidBody> out) {
+        boxCandidates(x0, y0, x1, y1, mask);
+
+        double cx = (x0 + x1) * 0.5, cy = (y0 + y1) * 0.5;
+        double hx = (x1 - x0) * 0.5, hy = (y1 - y0) * 0.5;
+        int found = 0;
+        for (int c = 0; c < candidateCount; c++) {
+            RigidBody b = scene.bodies.get(candidates[c]);
+            if (boxShape(b, cx, cy, hx, hy)) {
+                out.add(b);
+                found++;
+            }
+        }
+        return found;
+    }
+
+    // Corpos que contêm o ponto (borda conta), em ordem de índice
+    int queryPoint(double x, double y, int mask, List<RigidBody> out) {
+        boxCandidates(x, y, x, y, mask);
+
+        int found = 0;
+        for (int c = 0; c < candidateCount; c++) {
+            RigidBody b = scene.bodies.get(candidates[c]);
+            if (containsPoint(b, x, y)) {
+                out.add(b);
+                found++;
+            }
+        }
+        return found;
+    }
+
+    private void boxCandidates(double x0, double y0, double x1, double y1, int mask) {
+        candidateCount = 0;
+        int n = scene.staticBvh.query(cursor, x0, y0, x1, y1);
+        for (int h = 0; h < n; h++)
+            addCandidate(scene.staticIndex[cursor.hit(h)], mask);
+
+        SweepAndPrune sweep = scene.querySweep;
+        for (int k = sweep.from(x0), end = sweep.to(x1); k < end; k++) {
+            int d = sweep.at(k);
+            if (sweep.overlaps(d, x0, y0, x1, y1))
+                addCandidate(scene.dynamicIndex[d], mask);
+        }
+        Arrays.sort(candidates, 0, candidateCount);
+    }
+
+    // Caixa (centro, meia largura/altura) x forma exata. A AABB da forma já toca a caixa.
+    static boolean boxShape(RigidBody b, double cx, double cy, double hx, double hy) {
+        Shape s = b.shape;
+        if (s.getType() == Shape.Type.CIRCLE) {
+            // Ponto da caixa mais perto do centro
+            double px = Math.max(cx - hx, Math.min(b.position.x, cx + hx));
+            double py = Math.max(cy - hy, Math.min(b.position.y, cy + hy));
+            double ex = b.position.x - px, ey = b.position.y - py;
+            return ex * ex + ey * ey <= s.radius * s.radius;
+        }
+
+        // SAT: os eixos da caixa já passaram (AABBs); falta a normal de cada face. A caixa
+        // fica toda do lado de fora da face se até o canto mais "para dentro" está fora.
+        PolygonShape p = (PolygonShape) s;
+        Vector2[] v = p.getWorldVertices();
+        Vector2[] n = p.getWorldNormals();
+        for (int i = 0; i < p.m_vertexCount; i++) {
+            double d = n[i].x * (cx - v[i].x) + n[i].y * (cy - v[i].y);
+            if (d - (Math.abs(n[i].x) * hx + Math.abs(n[i].y) * hy) > 0)
+                return false;
+        }
+        return true;
+    }
+
+    static boolean containsPoint(RigidBody b, double x, double y) {
+        Shape s = b.shape;
+        if (s.getType() == Shape.Type.CIRCLE) {
+            double ex = x - b.position.x, ey = y - b.position.y;
+            return ex * ex + ey * ey <= s.radius * s.radius;
+        }
+
+        PolygonShape p = (PolygonShape) s;
+        Vector2[] v = p.getWorldVertices();
+        Vector2[] n = p.getWorldNormals();
+        for (int i = 0; i < p.m_vertexCount; i++) {
+            if (n[i].x * (x - v[i].x) + n[i].y * (y - v[i].y) > 0)
+                return false;
+        }
+        return true;
+    }
+
+    private void addCandidate(int i, int mask) {
+        if ((scene.bodies.get(i).layer & mask) == 0)
+            return;
+        if (candidateCount == candidates.length)
+            candidates = Arrays.copyOf(candidates, candidateCount * 2);
+        candidates[candidateCount++] = i;
+    }
+}
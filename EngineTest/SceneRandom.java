@@ -0,0 +1,74 @@
+package EngineTest;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+// O java.util.Random da Scene, com o estado à mostra para o SceneSnapshot gravar e
+// restaurar sem a serialização do Java. Mesmo gerador (congruencial de 48 bits) e mesmo
+// nextGaussian do Random: a sequência é igual à de um Random com a mesma semente.
+public class SceneRandom extends Random {
+
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    // Sem inicializador: o construtor do Random chama setSeed() antes dos campos daqui
+    private long seed;
+    private double nextNextGaussian;
+    private boolean haveNextNextGaussian;
+
+    public SceneRandom() {
+        super();
+    }
+
+    public SceneRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        this.seed = (seed ^ MULTIPLIER) & MASK;
+        haveNextNextGaussian = false;
+    }
+
+    @Override
+    protected synchronized int next(int bits) {
+        seed = (seed * MULTIPLIER + ADDEND) & MASK;
+        return (int) (seed >>> (48 - bits));
+    }
+
+    @Override
+    public synchronized double nextGaussian() {
+        if (haveNextNextGaussian) {
+            haveNextNextGaussian = false;
+            return nextNextGaussian;
+        }
+        double v1, v2, s;
+        do {
+            v1 = 2 * nextDouble() - 1;
+            v2 = 2 * nextDouble() - 1;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1 || s == 0);
+        double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+        nextNextGaussian = v2 * multiplier;
+        haveNextNextGaussian = true;
+        return v1 * multiplier;
+    }
+
+    // --- ESTADO (SceneSnapshot) ---
+
+    // SEED(long, 48 bits já embaralhados) NEXT_GAUSSIAN(double) HAS_GAUSSIAN(byte)
+    public static final int STATE_BYTES = 8 + 8 + 1;
+
+    synchronized void writeState(ByteBuffer buf) {
+        buf.putLong(seed);
+        buf.putDouble(nextNextGaussian);
+        buf.put((byte) (haveNextNextGaussian ? 1 : 0));
+    }
+
+    synchronized void readState(ByteBuffer buf) {
+        seed = buf.getLong() & MASK;
+        nextNextGaussian = buf.getDouble();
+        haveNextNextGaussian = buf.get() != 0;
+    }
+}
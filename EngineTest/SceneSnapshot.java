@@ -0,0 +1,293 @@
+package EngineTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+
+// Checkpoint da Scene inteira num arquivo binário versionado.
+// Corpos usam o mesmo formato do late-join (SnapshotCodec), sem compressão.
+//
+// Formato (big-endian):
+// MAGIC(int) VERSION(int) TICK(long) NEXT_ID(int) DT(float) ITERATIONS(float) SUBSTEPS(int, v2+)
+// CCD_THRESHOLD(double, v3+) NARROWPHASE(byte, v5+: ordinal de Manifold.Backend)
+// DETERMINISTIC(byte) RANDOM BODY_COUNT(int) BODY* CONSTRAINT_COUNT(int, v4+) CONSTRAINT*
+//
+// RANDOM = o estado do SceneRandom (ver SceneRandom.writeState). Até a versão 5 era
+// RANDOM_LEN(int) + o java.util.Random serializado pelo Java: esses ainda são lidos, com
+// filtro (só aceita um Random), e só o estado sai de lá.
+//
+// CONSTRAINT = TYPE(byte) BODY_A(int) [BODY_B(int)] + os campos da junta (ver Joint.write),
+// com os corpos pelo índice na lista de corpos acima
+public class SceneSnapshot {
+
+    public static final int MAGIC = 0x494D5057; // "IMPW"
+    // 2: SUBSTEPS, 3: CCD_THRESHOLD, 4: CONSTRAINTS, 5: NARROWPHASE, 6: RANDOM sem serialização
+    public static final int VERSION = 6;
+
+    private static final byte CONSTRAINT_DISTANCE = 0;
+    private static final byte CONSTRAINT_REVOLUTE = 1;
+    private static final byte CONSTRAINT_WELD = 2;
+    private static final byte CONSTRAINT_MOUSE = 3;
+    // Pior caso de uma restrição (o RevoluteJoint)
+    private static final int MAX_CONSTRAINT_BYTES = 128;
+
+    // Escrita em blocos: o buffer vai para o disco sempre que não cabe mais um corpo
+    private static final int WRITE_BUFFER = 256 * 1024;
+
+    // Salva a cena; escreve num .tmp e troca no fim (um crash no meio não estraga o anterior).
+    // Retorna o tamanho do arquivo.
+    public static long save(Scene scene, Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        ByteBuffer buf = ByteBuffer.allocateDirect(WRITE_BUFFER);
+        long written = 0;
+
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeHeader(buf, scene);
+
+            for (int i = 0; i < scene.bodies.size(); i++) {
+                if (buf.remaining() < SnapshotCodec.MAX_BODY_BYTES)
+                    written += flush(ch, buf);
+                SnapshotCodec.writeBody(buf, scene.bodies.get(i));
+            }
+
+            Map<RigidBody, Integer> index = bodyIndex(scene);
+            if (buf.remaining() < 4)
+                written += flush(ch, buf);
+            buf.putInt(scene.getConstraintCount());
+            for (int i = 0; i < scene.getConstraintCount(); i++) {
+                if (buf.remaining() < MAX_CONSTRAINT_BYTES)
+                    written += flush(ch, buf);
+                writeConstraint(buf, scene.getConstraint(i), index);
+            }
+            written += flush(ch, buf);
+            ch.force(false);
+        }
+
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return written;
+    }
+
+    // Substitui o conteúdo da cena pelo do arquivo (lido via mmap)
+    public static void restore(Scene scene, Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            read(scene, buf);
+        }
+    }
+
+    public static Scene load(Path file) throws IOException {
+        Scene scene = new Scene();
+        restore(scene, file);
+        return scene;
+    }
+
+    // --- EM MEMÓRIA (rollback, testes) ---
+
+    public static int maxBytes(Scene scene) {
+        return 64 + 256 + scene.bodies.size() * SnapshotCodec.MAX_BODY_BYTES + 4
+                + scene.getConstraintCount() * MAX_CONSTRAINT_BYTES;
+    }
+
+    public static void write(Scene scene, ByteBuffer buf) {
+        writeHeader(buf, scene);
+        for (int i = 0; i < scene.bodies.size(); i++) {
+            SnapshotCodec.writeBody(buf, scene.bodies.get(i));
+        }
+
+        Map<RigidBody, Integer> index = bodyIndex(scene);
+        buf.putInt(scene.getConstraintCount());
+        for (int i = 0; i < scene.getConstraintCount(); i++) {
+            writeConstraint(buf, scene.getConstraint(i), index);
+        }
+    }
+
+    public static void read(Scene scene, ByteBuffer buf) {
+        int magic = buf.getInt();
+        if (magic != MAGIC)
+            throw new IllegalArgumentException("Não é um snapshot de cena (magic " + Integer.toHexString(magic) + ")");
+
+        int version = buf.getInt();
+        if (version < 1 || version > VERSION)
+            throw new IllegalArgumentException("Versão de snapshot não suportada: " + version);
+
+        long tick = buf.getLong();
+        int nextId = buf.getInt();
+        float dt = buf.getFloat();
+        float iterations = buf.getFloat();
+        int substeps = version >= 2 ? buf.getInt() : 1;
+        double ccdThreshold = version >= 3 ? buf.getDouble() : 0; // Antes do CCD: desligado
+        // Antes da versão 5 o arquivo não diz: fica o que a cena já tinha (-Dsim.narrowphase)
+        Manifold.Backend narrowphase = version >= 5 ? Manifold.Backend.values()[buf.get()] : scene.narrowphase;
+        boolean deterministic = buf.get() != 0;
+        SceneRandom random = new SceneRandom();
+        if (version >= 6)
+            random.readState(buf);
+        else
+            readLegacyRandom(buf, random);
+
+        int count = buf.getInt();
+        scene.bodies.clear();
+        scene.contacts.clear();
+        scene.clearConstraints(); // As antigas apontariam para os corpos antigos
+        for (int i = 0; i < count; i++) {
+            scene.bodies.add(SnapshotCodec.readBody(buf));
+        }
+        int constraints = version >= 4 ? buf.getInt() : 0;
+        for (int i = 0; i < constraints; i++) {
+            scene.addConstraint(readConstraint(buf, scene));
+        }
+
+        scene.tick = tick;
+        scene.setNextIdCounter(nextId);
+        scene.deltaTime = dt;
+        scene.iterations = iterations;
+        scene.substeps = substeps;
+        scene.ccdThreshold = ccdThreshold;
+        scene.narrowphase = narrowphase;
+        scene.deterministic = deterministic;
+        scene.random = random;
+        scene.rebuildIndex();
+
+        if (deterministic)
+            scene.worldHash.compute(scene, tick);
+    }
+
+    private static void writeHeader(ByteBuffer buf, Scene scene) {
+        buf.putInt(MAGIC);
+        buf.putInt(VERSION);
+        buf.putLong(scene.tick);
+        buf.putInt(scene.getNextIdCounter());
+        buf.putFloat(scene.deltaTime);
+        buf.putFloat(scene.iterations);
+        buf.putInt(scene.substeps);
+        buf.putDouble(scene.ccdThreshold);
+        buf.put((byte) scene.narrowphase.ordinal());
+        buf.put((byte) (scene.deterministic ? 1 : 0));
+
+        // Estado do Random junto: depois do restore sai a mesma sequência de formas
+        scene.random.writeState(buf);
+
+        buf.putInt(scene.bodies.size());
+    }
+
+    // --- RESTRIÇÕES ---
+
+    // Corpo -> posição na lista (o snapshot refere os corpos das juntas por ela)
+    private static Map<RigidBody, Integer> bodyIndex(Scene scene) {
+        Map<RigidBody, Integer> index = new IdentityHashMap<>();
+        if (scene.getConstraintCount() > 0) {
+            for (int i = 0; i < scene.bodies.size(); i++) {
+                index.put(scene.bodies.get(i), i);
+            }
+        }
+        return index;
+    }
+
+    private static int indexOf(Map<RigidBody, Integer> index, RigidBody b) {
+        Integer i = index.get(b);
+        if (i == null)
+            throw new IllegalStateException("Restrição presa a um corpo que não está na cena");
+        return i;
+    }
+
+    private static void writeConstraint(ByteBuffer buf, Constraint c, Map<RigidBody, Integer> index) {
+        if (c instanceof MouseJoint) {
+            MouseJoint m = (MouseJoint) c;
+            buf.put(CONSTRAINT_MOUSE);
+            buf.putInt(indexOf(index, m.body));
+            m.write(buf);
+            return;
+        }
+
+        byte type;
+        if (c instanceof DistanceJoint)
+            type = CONSTRAINT_DISTANCE;
+        else if (c instanceof RevoluteJoint)
+            type = CONSTRAINT_REVOLUTE;
+        else if (c instanceof WeldJoint)
+            type = CONSTRAINT_WELD;
+        else
+            throw new IllegalStateException("Restrição sem formato no snapshot: " + c.getClass().getName());
+
+        Joint j = (Joint) c;
+        buf.put(type);
+        buf.putInt(indexOf(index, j.a));
+        buf.putInt(indexOf(index, j.b));
+        j.write(buf);
+    }
+
+    private static Constraint readConstraint(ByteBuffer buf, Scene scene) {
+        byte type = buf.get();
+        RigidBody a = scene.bodies.get(buf.getInt());
+        switch (type) {
+            case CONSTRAINT_MOUSE:
+                return new MouseJoint(a, buf);
+            case CONSTRAINT_DISTANCE:
+                return new DistanceJoint(a, scene.bodies.get(buf.getInt()), buf);
+            case CONSTRAINT_REVOLUTE:
+                return new RevoluteJoint(a, scene.bodies.get(buf.getInt()), buf);
+            case CONSTRAINT_WELD:
+                return new WeldJoint(a, scene.bodies.get(buf.getInt()), buf);
+            default:
+                throw new IllegalArgumentException("Tipo de restrição desconhecido: " + type);
+        }
+    }
+
+    private static long flush(FileChannel ch, ByteBuffer buf) throws IOException {
+        buf.flip();
+        long n = 0;
+        while (buf.hasRemaining()) {
+            n += ch.write(buf);
+        }
+        buf.clear();
+        return n;
+    }
+
+    // Versões 1 a 5: java.util.Random serializado. O arquivo vem de quem chamou, então o
+    // ObjectInputStream só aceita um Random (nada de outras classes, referências ou
+    // tamanhos fora do normal) e serve só para validar; o estado sai dos últimos bytes: os
+    // campos primitivos da forma serializada do Random, em ordem de nome
+    // (haveNextNextGaussian, nextNextGaussian, seed), seguidos do TC_ENDBLOCKDATA.
+    private static final ObjectInputFilter LEGACY_RANDOM_FILTER = ObjectInputFilter.Config
+            .createFilter("maxdepth=1;maxrefs=4;maxbytes=256;java.util.Random;!*");
+    private static final int LEGACY_RANDOM_TAIL = 1 + 8 + 8 + 1;
+
+    private static void readLegacyRandom(ByteBuffer buf, SceneRandom random) {
+        int length = buf.getInt();
+        if (length < LEGACY_RANDOM_TAIL || length > 256)
+            throw new IllegalArgumentException("Estado do Random corrompido: " + length + " bytes");
+        byte[] data = new byte[length];
+        buf.get(data);
+
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            in.setObjectInputFilter(LEGACY_RANDOM_FILTER);
+            if (in.readObject().getClass() != Random.class || in.available() > 0)
+                throw new IllegalArgumentException("Estado do Random corrompido");
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalArgumentException("Estado do Random corrompido: " + e.getMessage());
+        }
+
+        ByteBuffer tail = ByteBuffer.wrap(data, length - LEGACY_RANDOM_TAIL, LEGACY_RANDOM_TAIL);
+        boolean haveNextNextGaussian = tail.get() != 0;
+        double nextNextGaussian = tail.getDouble();
+        long seed = tail.getLong();
+        if (tail.get() != 0x78) // TC_ENDBLOCKDATA
+            throw new IllegalArgumentException("Estado do Random corrompido");
+
+        ByteBuffer state = ByteBuffer.allocate(SceneRandom.STATE_BYTES);
+        state.putLong(seed).putDouble(nextNextGaussian).put((byte) (haveNextNextGaussian ? 1 : 0)).flip();
+        random.readState(state);
+    }
+}
@@ -0,0 +1,169 @@
+package EngineTest;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Decide, a cada tick, quais corpos mandar para cada cliente via SYNC.
+// Cada cliente tem um orçamento de banda (bytes/s) que encolhe quando há perda ou RTT alto.
+// Cada corpo acumula prioridade todo tick (acumulador); os de maior prioridade vão primeiro
+// até o orçamento do tick acabar, e quem foi enviado volta a zero.
+public class SendScheduler {
+
+    // --- PESOS DA IMPORTÂNCIA ---
+    private static final float BASE_WEIGHT = 1.0f;
+    private static final float DISTANCE_WEIGHT = 4.0f; // Perto do foco do cliente vale mais
+    private static final float VELOCITY_WEIGHT = 0.5f; // Por m/s
+    private static final float STALENESS_WEIGHT = 0.05f; // Por tick sem ser enviado
+    private static final float CONTACT_WEIGHT = 2.0f; // Esteve em contato recentemente
+    private static final int RECENT_CONTACT_TICKS = 30;
+
+    // --- ADAPTAÇÃO DO ORÇAMENTO (AIMD) ---
+    private static final double LOSS_THRESHOLD = 0.05;
+    private static final double RTT_THRESHOLD_MS = 250.0;
+    private static final double DECREASE_FACTOR = 0.9;
+    private static final double INCREASE_STEP = 0.01;
+    private static final double MIN_SCALE = 0.1;
+
+    // Cabeçalho IP + UDP (conta no orçamento)
+    private static final int PACKET_OVERHEAD = 28;
+
+    private final int budgetBytesPerSecond;
+
+    // Estado por cliente
+    private static class ClientState {
+        float[] accumulator = new float[64]; // Indexado pelo id do corpo
+        long[] lastSentTick = new long[64];
+        double budgetScale = 1.0;
+        double bytesCarry = 0; // Orçamento não usado (ou estourado) passa pro próximo tick
+
+        void ensureCapacity(int id) {
+            if (id < accumulator.length)
+                return;
+            int size = Math.max(id + 1, accumulator.length * 2);
+            accumulator = Arrays.copyOf(accumulator, size);
+            lastSentTick = Arrays.copyOf(lastSentTick, size);
+        }
+    }
+
+    private final Map<Network.ClientConnection, ClientState> states = new HashMap<>();
+
+    // Reaproveitados entre ticks
+    private long[] order = new long[64]; // (bits da prioridade << 32) | índice do corpo
+    private final StringBuilder datagram = new StringBuilder(Network.MAX_DATAGRAM);
+
+    public SendScheduler(int budgetBytesPerSecond) {
+        this.budgetBytesPerSecond = budgetBytesPerSecond;
+    }
+
+    public int getBudgetBytesPerSecond() {
+        return budgetBytesPerSecond;
+    }
+
+    // Substitui o broadcast de SYNC de todos os corpos
+    public void sendUpdates(Scene scene, Network net, double dt) {
+        List<Network.ClientConnection> clients = net.getClients();
+        states.keySet().retainAll(clients);
+
+        for (Network.ClientConnection client : clients) {
+            if (!client.hasUDP())
+                continue;
+
+            ClientState state = states.computeIfAbsent(client, c -> new ClientState());
+            adaptBudget(client, state);
+
+            double budget = budgetBytesPerSecond * state.budgetScale * dt + state.bytesCarry;
+            state.bytesCarry = sendForClient(scene, net, client, state, budget);
+        }
+    }
+
+    // AIMD: perda ou RTT alto corta o orçamento, link saudável recupera aos poucos
+    private void adaptBudget(Network.ClientConnection client, ClientState state) {
+        if (client.stats.getLossRate() > LOSS_THRESHOLD || client.stats.getRttMillis() > RTT_THRESHOLD_MS) {
+            state.budgetScale = Math.max(MIN_SCALE, state.budgetScale * DECREASE_FACTOR);
+        } else {
+            state.budgetScale = Math.min(1.0, state.budgetScale + INCREASE_STEP);
+        }
+    }
+
+    // Retorna o saldo do orçamento (negativo se estourou)
+    private double sendForClient(Scene scene, Network net, Network.ClientConnection client, ClientState state,
+            double budget) {
+        List<RigidBody> bodies = scene.bodies;
+        if (order.length < bodies.size())
+            order = new long[Math.max(bodies.size(), order.length * 2)];
+
+        // 1. Acumula prioridade dos corpos dinâmicos
+        int count = 0;
+        for (int i = 0; i < bodies.size(); i++) {
+            RigidBody b = bodies.get(i);
+            if (b.invMass == 0 || b.id == -1)
+                continue;
+
+            state.ensureCapacity(b.id);
+            state.accumulator[b.id] += importance(b, client, state, scene.tick);
+
+            // Float positivo mantém a ordem quando comparado pelos bits
+            order[count++] = ((long) Float.floatToIntBits(state.accumulator[b.id]) << 32) | i;
+        }
+
+        // 2. Maior prioridade primeiro
+        Arrays.sort(order, 0, count);
+
+        // 3. Enche datagramas até acabar o orçamento. Cada corpo é formatado uma vez, direto
+        // no datagrama, com a sequência dele ("SYNC:SEQ:" + corpo, uma linha por corpo)
+        datagram.setLength(0);
+        int lines = 0, seq = 0;
+        for (int k = count - 1; k >= 0 && budget > 0; k--) {
+            RigidBody b = bodies.get((int) order[k]);
+            String body = new NetworkCommand.SyncCommand(b.id, b.position.x, b.position.y, b.angle).serializeBody();
+
+            if (lines > 0 && datagram.length() + 1 + lineLength(seq, body) > Network.MAX_DATAGRAM) {
+                budget -= net.sendSyncDatagram(client, seq, datagram, lines) + PACKET_OVERHEAD;
+                datagram.setLength(0);
+                lines = 0;
+                if (budget <= 0)
+                    break;
+            }
+
+            if (lines == 0)
+                seq = net.nextSyncSeq(client);
+            else
+                datagram.append('\n');
+            datagram.append("SYNC:").append(seq).append(':').append(body);
+            lines++;
+            state.accumulator[b.id] = 0;
+            state.lastSentTick[b.id] = scene.tick;
+        }
+
+        if (lines > 0) {
+            budget -= net.sendSyncDatagram(client, seq, datagram, lines) + PACKET_OVERHEAD;
+            datagram.setLength(0);
+        }
+
+        // Não deixa acumular orçamento infinito quando o mundo está parado
+        return Math.min(budget, 0);
+    }
+
+    // Tamanho de "SYNC:SEQ:" + corpo
+    private static int lineLength(int seq, String body) {
+        return 5 + Integer.toString(seq).length() + 1 + body.length();
+    }
+
+    private float importance(RigidBody b, Network.ClientConnection client, ClientState state, long tick) {
+        double dx = b.position.x - client.focusX;
+        double dy = b.position.y - client.focusY;
+        double dist = Math.sqrt(dx * dx + dy * dy);
+
+        double speed = Math.sqrt(b.velocity.LengthSquared());
+        long sinceSent = tick - state.lastSentTick[b.id];
+        boolean recentContact = b.lastContactTick >= 0 && tick - b.lastContactTick <= RECENT_CONTACT_TICKS;
+
+        return (float) (BASE_WEIGHT
+                + DISTANCE_WEIGHT / (1.0 + dist)
+                + VELOCITY_WEIGHT * speed
+                + STALENESS_WEIGHT * sinceSent
+                + (recentContact ? CONTACT_WEIGHT : 0));
+    }
+}
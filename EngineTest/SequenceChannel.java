@@ -0,0 +1,127 @@
+package EngineTest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+// Canal de números de sequência (16 bits, com wrap-around) para pacotes de estado via UDP.
+// O lado que envia carimba cada datagrama com next(); o lado que recebe chama receive() uma
+// vez por datagrama (ACK, contadores) e accept() para cada corpo dele, para descartar estado
+// duplicado ou mais velho que o último já aplicado ao corpo.
+public class SequenceChannel {
+
+    public static final int SEQ_MODULO = 1 << 16;
+    private static final int HALF = SEQ_MODULO / 2;
+
+    // --- ENVIO ---
+    private int nextSeq = 0;
+
+    // --- RECEBIMENTO ---
+    private boolean hasReceived = false;
+    private int highestReceived = 0;
+    // highestReceived sem o wrap-around (conta as voltas). Cada corpo guarda a sequência do
+    // último pacote aplicado nessa escala: um corpo que ficou mais de meia volta (32768
+    // pacotes) sem atualização ainda compara certo, o que com 16 bits daria "mais novo"
+    private long highestExtended = 0;
+    private final Map<Integer, Long> lastSeqByBody = new HashMap<>();
+
+    // ACK: bit (i-1) ligado = recebemos (highestReceived - i). Cobre os 32 anteriores.
+    private int ackBits = 0;
+    private boolean ackPending = false;
+
+    // Contadores (lidos pela UI / métricas)
+    private volatile long receivedPackets = 0;
+    private volatile long reorderedPackets = 0; // Chegaram depois de um pacote mais novo
+    private volatile long droppedPackets = 0; // Descartados (duplicados ou velhos)
+
+    // true se 's1' é mais novo que 's2', considerando o wrap-around de 16 bits
+    public static boolean sequenceGreaterThan(int s1, int s2) {
+        return ((s1 > s2) && (s1 - s2 <= HALF)) || ((s1 < s2) && (s2 - s1 > HALF));
+    }
+
+    // Quantos passos 'newer' está à frente de 'older' (mod 2^16)
+    public static int distance(int newer, int older) {
+        return (newer - older + SEQ_MODULO) % SEQ_MODULO;
+    }
+
+    public synchronized int next() {
+        int seq = nextSeq;
+        nextSeq = (nextSeq + 1) % SEQ_MODULO;
+        return seq;
+    }
+
+    // Chegou um datagrama com a sequência 'seq' (uma vez por datagrama, antes das linhas)
+    public synchronized void receive(int seq) {
+        receivedPackets++;
+        ackPending = true;
+
+        if (!hasReceived) {
+            hasReceived = true;
+            highestReceived = seq;
+            highestExtended = seq;
+            ackBits = 0;
+        } else if (sequenceGreaterThan(seq, highestReceived)) {
+            int diff = distance(seq, highestReceived);
+            highestExtended += diff;
+            if (diff > 32)
+                ackBits = 0;
+            else if (diff == 32)
+                ackBits = 1 << 31; // (<< 32 em Java não faz nada)
+            else
+                ackBits = (ackBits << diff) | (1 << (diff - 1));
+            highestReceived = seq;
+        } else if (seq != highestReceived) {
+            reorderedPackets++;
+            int diff = distance(highestReceived, seq);
+            if (diff <= 32)
+                ackBits |= 1 << (diff - 1);
+        }
+    }
+
+    // Corpo de um datagrama já passado ao receive(). Retorna false se o estado deve ser
+    // descartado antes de chegar no commandBuffer.
+    public synchronized boolean accept(int bodyId, int seq) {
+        long extended = highestExtended - distance(highestReceived, seq);
+        Long last = lastSeqByBody.get(bodyId);
+        if (last != null && extended <= last) {
+            droppedPackets++; // Duplicado (seq == last) ou fora de ordem
+            return false;
+        }
+
+        lastSeqByBody.put(bodyId, extended);
+        return true;
+    }
+
+    // Monta "ACK:SEQ:BITS:REORDERED:STALE" se chegou algo desde o último ACK (senão null).
+    // Os dois contadores vão junto porque só quem recebe vê a reordenação (LinkStats)
+    public synchronized String pollAck() {
+        if (!ackPending)
+            return null;
+        ackPending = false;
+        return "ACK:" + highestReceived + ":" + ackBits + ":" + reorderedPackets + ":" + droppedPackets;
+    }
+
+    public synchronized void reset() {
+        nextSeq = 0;
+        hasReceived = false;
+        highestReceived = 0;
+        highestExtended = 0;
+        lastSeqByBody.clear();
+        ackBits = 0;
+        ackPending = false;
+        receivedPackets = 0;
+        reorderedPackets = 0;
+        droppedPackets = 0;
+    }
+
+    public long getReceivedPackets() {
+        return receivedPackets;
+    }
+
+    public long getReorderedPackets() {
+        return reorderedPackets;
+    }
+
+    public long getDroppedPackets() {
+        return droppedPackets;
+    }
+}
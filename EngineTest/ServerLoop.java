@@ -0,0 +1,152 @@
+package EngineTest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+// Um tick do servidor: comandos da rede -> late-join -> step -> snapshots -> SYNC.
+// Usado pelo Timer da janela (main) e pelo servidor headless dos testes de carga.
+public class ServerLoop {
+
+    private final Scene scene;
+    private final Network network;
+    private final SendScheduler scheduler;
+
+    // Foco usado para ordenar o snapshot de quem acabou de entrar (centro da tela)
+    private final double focusX, focusY;
+
+    // Late-join: um streamer por cliente que ainda está recebendo o mundo
+    private final List<SnapshotStreamer> streamers = new ArrayList<>();
+
+    // Modo determinístico: a cada quantos ticks o HASH leva o hash (nos outros, só o tick)
+    public int hashInterval = 1;
+
+    // Checkpoint periódico da cena (recuperação de crash); null = desligado
+    private Path checkpointFile;
+    private int checkpointInterval;
+
+    // Duração do último tick (processCommands até o último SYNC)
+    private volatile long lastTickNanos = 0;
+    private final RollingHistogram tickHistogram = new RollingHistogram(600);
+
+    public ServerLoop(Scene scene, Network network, SendScheduler scheduler, double focusX, double focusY) {
+        this.scene = scene;
+        this.network = network;
+        this.scheduler = scheduler;
+        this.focusX = focusX;
+        this.focusY = focusY;
+    }
+
+    public void tick() {
+        long start = System.nanoTime();
+        SimulationEvents.ServerTick event = new SimulationEvents.ServerTick();
+        event.begin();
+
+        network.processCommands(scene);
+
+        // Novos clientes: prioriza os corpos perto do foco
+        Network.ClientConnection joined;
+        while ((joined = network.pollJoinedClient()) != null) {
+            streamers.add(new SnapshotStreamer(joined, scene, focusX, focusY));
+        }
+
+        scene.step();
+
+        // Um chunk por cliente por tick (determinístico: tudo de uma vez, o mundo tem que ser
+        // de um tick só, seguido do HASH que diz ao cliente em que tick ele está)
+        for (int i = streamers.size() - 1; i >= 0; i--) {
+            SnapshotStreamer s = streamers.get(i);
+            s.sendNext(network);
+            while (scene.deterministic && !s.isDone() && !s.isAborted()) {
+                s.sendNext(network);
+            }
+
+            if (s.isAborted()) {
+                s.dispose();
+                streamers.remove(i);
+            } else if (s.isDone()) {
+                if (scene.deterministic)
+                    network.sendTCP(s.getClient(), new NetworkCommand.HashCommand(scene.tick, scene.worldHash.get(scene.tick)));
+                s.dispose();
+                streamers.remove(i);
+            }
+        }
+
+        if (scene.deterministic) {
+            // Cliente simula sozinho: só o tick (o relógio dele) e, de tempos em tempos, o hash
+            if (scene.tick % hashInterval == 0)
+                network.sendTCP(new NetworkCommand.HashCommand(scene.tick, scene.worldHash.get(scene.tick)));
+            else
+                network.sendTCP(new NetworkCommand.HashCommand(scene.tick));
+        } else {
+            // SYNC: cada cliente recebe os corpos mais importantes que cabem no orçamento
+            scheduler.sendUpdates(scene, network, scene.deltaTime);
+        }
+
+        if (checkpointFile != null && scene.tick % checkpointInterval == 0)
+            saveCheckpoint();
+
+        lastTickNanos = System.nanoTime() - start;
+        tickHistogram.record(lastTickNanos);
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.tick = scene.tick;
+            event.clients = network.getClients().size();
+            event.streamers = streamers.size();
+            event.commit();
+        }
+    }
+
+    // Liga o checkpoint a cada 'interval' ticks. Se o arquivo já existe (servidor caiu),
+    // a cena volta de onde parou. Retorna true se restaurou.
+    public boolean enableCheckpoints(Path file, int interval) throws IOException {
+        checkpointFile = file;
+        checkpointInterval = Math.max(1, interval);
+
+        if (!Files.exists(file))
+            return false;
+        SceneSnapshot.restore(scene, file);
+        return true;
+    }
+
+    private void saveCheckpoint() {
+        try {
+            SceneSnapshot.save(scene, checkpointFile);
+        } catch (IOException e) {
+            System.out.println("Erro no checkpoint: " + e.getMessage());
+        }
+    }
+
+    // Gravação para o Replay: snapshot do início + log dos INPUT/SPAWN aplicados daqui em diante
+    public void startRecording(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        SceneSnapshot.save(scene, dir.resolve(Replay.SNAPSHOT_FILE));
+        scene.recorder = new InputRecorder(dir.resolve(Replay.LOG_FILE));
+    }
+
+    public void stopRecording() throws IOException {
+        if (scene.recorder == null)
+            return;
+        scene.recorder.close(scene);
+        scene.recorder = null;
+    }
+
+    public long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    public RollingHistogram getTickHistogram() {
+        return tickHistogram;
+    }
+
+    public Network getNetwork() {
+        return network;
+    }
+
+    public Scene getScene() {
+        return scene;
+    }
+}
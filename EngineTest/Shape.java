@@ -9,15 +9,35 @@ public abstract class Shape {
     }
 
     public RigidBody body;
-    public float radius; // Para círculos
+    public float radius; // Para círculos (no GJK: casca em volta do núcleo do support())
     public Mat2 u = new Mat2(); // Matriz de Orientação (para Polígonos)
 
     // Configurações para Polígonos
     public static final int MAX_POLY_VERTEX_COUNT = 64;
 
+    // AABB no mundo, válida depois de updateWorld()
+    public double minX, minY, maxX, maxY;
+
     public Shape() {
     }
 
+    // Atualiza o que depende da posição/orientação do corpo (AABB e, nos polígonos, o
+    // cache de vértices no mundo). Barato se nada mudou.
+    public abstract void updateWorld();
+
+    // Função de suporte no mundo: grava em 'out' o ponto do núcleo da forma mais longe na
+    // direção (dx, dy). A forma é esse núcleo convexo inflado por 'radius' (círculo = ponto
+    // + raio, polígono = núcleo com raio 0; cápsula seria segmento + raio). É tudo o que o
+    // GJK/EPA precisa saber de uma forma. 'start' é um palpite de por onde começar (índice
+    // de vértice nos polígonos); devolve o índice usado, para servir de palpite na próxima.
+    public abstract int support(double dx, double dy, int start, Vector2 out);
+
+    // Broadphase: as AABBs se tocam? (encostar conta, o narrowphase decide)
+    public boolean overlaps(Shape other) {
+        return minX <= other.maxX && other.minX <= maxX
+                && minY <= other.maxY && other.minY <= maxY;
+    }
+
     public abstract Shape clone();
 
     public abstract void initialize();
@@ -62,6 +82,21 @@ class Circle extends Shape {
         // mas o body guarda a orientação.
     }
 
+    @Override
+    public int support(double dx, double dy, int start, Vector2 out) {
+        // Núcleo = o centro; o raio entra como casca no GJK
+        out.set(body.position);
+        return 0;
+    }
+
+    @Override
+    public void updateWorld() {
+        minX = body.position.x - radius;
+        minY = body.position.y - radius;
+        maxX = body.position.x + radius;
+        maxY = body.position.y + radius;
+    }
+
     @Override
     public Type getType() {
         return Type.CIRCLE;
@@ -103,6 +138,15 @@ class PolygonShape extends Shape {
     public Vector2[] m_vertices = new Vector2[MAX_POLY_VERTEX_COUNT];
     public Vector2[] m_normals = new Vector2[MAX_POLY_VERTEX_COUNT];
 
+    // --- CACHE NO MUNDO ---
+    // Vértices (u * v + posição) e normais (u * n) já transformados, usados pelo narrowphase,
+    // pela broadphase (AABB) e pelo draw. Refeito só quando a posição ou a orientação mudou
+    // desde o último cálculo; quem mexe nos vértices locais chama invalidate().
+    private Vector2[] worldVertices = new Vector2[0];
+    private Vector2[] worldNormals = new Vector2[0];
+    private boolean worldValid = false;
+    private double cachedX, cachedY, cachedM00, cachedM10;
+
     public PolygonShape() {
         // Inicializa arrays para evitar NullPointerException
         for (int i = 0; i < MAX_POLY_VERTEX_COUNT; i++) {
@@ -161,6 +205,7 @@ class PolygonShape extends Shape {
         for (int i = 0; i < m_vertexCount; ++i) {
             m_vertices[i].subI(c);
         }
+        invalidate();
 
         body.mass = density * (float) area;
         body.invMass = (body.mass != 0.0f) ? 1.0f / body.mass : 0.0f;
@@ -173,6 +218,73 @@ class PolygonShape extends Shape {
         u.set(radians);
     }
 
+    // Vértices/normais locais mudaram
+    public void invalidate() {
+        worldValid = false;
+    }
+
+    @Override
+    public void updateWorld() {
+        double px = body.position.x;
+        double py = body.position.y;
+        if (worldValid && px == cachedX && py == cachedY && u.m00 == cachedM00 && u.m10 == cachedM10)
+            return;
+
+        if (worldVertices.length != m_vertexCount) {
+            worldVertices = new Vector2[m_vertexCount];
+            worldNormals = new Vector2[m_vertexCount];
+            for (int i = 0; i < m_vertexCount; i++) {
+                worldVertices[i] = new Vector2();
+                worldNormals[i] = new Vector2();
+            }
+        }
+
+        double x0 = Double.MAX_VALUE, y0 = Double.MAX_VALUE;
+        double x1 = -Double.MAX_VALUE, y1 = -Double.MAX_VALUE;
+        for (int i = 0; i < m_vertexCount; i++) {
+            // Mesma ordem de operações do u.mul(v).add(position)
+            Vector2 v = m_vertices[i];
+            double wx = (u.m00 * v.x + u.m01 * v.y) + px;
+            double wy = (u.m10 * v.x + u.m11 * v.y) + py;
+            worldVertices[i].set(wx, wy);
+
+            Vector2 n = m_normals[i];
+            worldNormals[i].set(u.m00 * n.x + u.m01 * n.y, u.m10 * n.x + u.m11 * n.y);
+
+            x0 = Math.min(x0, wx);
+            y0 = Math.min(y0, wy);
+            x1 = Math.max(x1, wx);
+            y1 = Math.max(y1, wy);
+        }
+        minX = x0;
+        minY = y0;
+        maxX = x1;
+        maxY = y1;
+
+        cachedX = px;
+        cachedY = py;
+        cachedM00 = u.m00;
+        cachedM10 = u.m10;
+        worldValid = true;
+    }
+
+    public Vector2[] getWorldVertices() {
+        updateWorld();
+        return worldVertices;
+    }
+
+    @Override
+    public int support(double dx, double dy, int start, Vector2 out) {
+        int i = supportIndex(getWorldVertices(), m_vertexCount, dx, dy, start);
+        out.set(worldVertices[i]);
+        return i;
+    }
+
+    public Vector2[] getWorldNormals() {
+        updateWorld();
+        return worldNormals;
+    }
+
     @Override
     public Type getType() {
         return Type.POLY;
@@ -190,6 +302,7 @@ class PolygonShape extends Shape {
         m_normals[1].set(1.0f, 0.0f);
         m_normals[2].set(0.0f, 1.0f);
         m_normals[3].set(-1.0f, 0.0f);
+        invalidate();
     }
 
     // ALGORITMO CONVEX HULL (Jarvis March / Gift Wrapping)
@@ -266,23 +379,61 @@ class PolygonShape extends Shape {
             m_normals[i1].set(face.y, -face.x); // Normal ortogonal
             m_normals[i1].normalize();
         }
+        invalidate();
     }
 
+    // A partir de quantos vértices o suporte sobe pelos vizinhos em vez de varrer todos
+    // (medido no SupportBenchmark; abaixo disso a varredura linear ganha)
+    static int hillClimbMinVertices = 8;
+
     // Suporte para GJK (colisão avançada)
     public Vector2 getSupport(Vector2 dir) {
-        double bestProjection = -Double.MAX_VALUE;
-        Vector2 bestVertex = null;
+        return m_vertices[supportIndex(m_vertices, m_vertexCount, dir.x, dir.y, 0)];
+    }
 
-        for (int i = 0; i < m_vertexCount; ++i) {
-            Vector2 v = m_vertices[i];
-            double projection = v.dot(dir);
+    // Índice do vértice com a MAIOR projeção em (dx, dy). Polígonos grandes sobem pelos
+    // vizinhos a partir de 'start' (num polígono convexo a projeção ao longo do contorno
+    // tem um pico só), então um 'start' perto da resposta custa poucos passos.
+    static int supportIndex(Vector2[] v, int count, double dx, double dy, int start) {
+        if (count < hillClimbMinVertices) {
+            int best = 0;
+            double bestProjection = -Double.MAX_VALUE;
+            for (int i = 0; i < count; ++i) {
+                double projection = dx * v[i].x + dy * v[i].y;
+                if (projection > bestProjection) {
+                    bestProjection = projection;
+                    best = i;
+                }
+            }
+            return best;
+        }
+
+        int best = (start >= 0 && start < count) ? start : 0;
+        double bestProjection = dx * v[best].x + dy * v[best].y;
 
-            if (projection > bestProjection) {
-                bestVertex = v;
+        // Sentido anti-horário enquanto subir
+        int from = best;
+        while (true) {
+            int next = (best + 1 < count) ? best + 1 : 0;
+            double projection = dx * v[next].x + dy * v[next].y;
+            if (projection <= bestProjection)
+                break;
+            best = next;
+            bestProjection = projection;
+        }
+
+        // Não andou: o pico está para o outro lado (ou já estamos nele)
+        if (best == from) {
+            while (true) {
+                int prev = (best > 0) ? best - 1 : count - 1;
+                double projection = dx * v[prev].x + dy * v[prev].y;
+                if (projection <= bestProjection)
+                    break;
+                best = prev;
                 bestProjection = projection;
             }
         }
-        return bestVertex;
+        return best;
     }
 
     @Override
@@ -292,15 +443,11 @@ class PolygonShape extends Shape {
         // Polígono do Java Swing (path)
         Polygon poly = new Polygon();
 
+        Vector2[] world = getWorldVertices();
         for (int i = 0; i < m_vertexCount; i++) {
-            // Transformação: Local -> Mundo
-            // v = position + (Orientacao * vertexLocal)
-            Vector2 vLocal = m_vertices[i];
-            Vector2 vWorld = body.position.add(u.mul(vLocal));
-
-            // Transformação: Mundo -> Tela
-            int x = (int) (vWorld.x * scale);
-            int y = (int) (screenHeight - (vWorld.y * scale));
+            // Transformação: Mundo -> Tela (Local -> Mundo já está no cache)
+            int x = (int) (world[i].x * scale);
+            int y = (int) (screenHeight - (world[i].y * scale));
 
             poly.addPoint(x, y);
         }
@@ -344,9 +491,10 @@ class Mat2 {
     }
 
     // Define a matriz baseada num ângulo (Rotação 2D padrão)
+    // StrictMath: mesmo resultado em qualquer JVM/CPU (o modo determinístico depende disso)
     public void set(double radians) {
-        double c = Math.cos(radians);
-        double s = Math.sin(radians);
+        double c = StrictMath.cos(radians);
+        double s = StrictMath.sin(radians);
 
         m00 = c;
         m01 = -s;
@@ -0,0 +1,147 @@
+package EngineTest;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Eventos JFR próprios da engine e da rede, para cruzar picos de tick com GC/locks no
+// JDK Mission Control. Desligados (padrão) custam só um teste de flag em cada ponto.
+//
+// Gravar:
+// java -XX:StartFlightRecording=filename=rec.jfr,settings=profile EngineTest.main
+// jfr print --events EngineTest.SimulationTick rec.jfr
+public final class SimulationEvents {
+
+    private SimulationEvents() {
+    }
+
+    // Um Scene.step() (fases vêm do StepProfiler; zero se ele estiver desligado)
+    @Name("EngineTest.SimulationTick")
+    @Label("Simulation Tick")
+    @Category({ "EngineTest", "Física" })
+    @StackTrace(false)
+    public static class SimulationTick extends Event {
+        @Label("Tick")
+        public long tick;
+
+        @Label("Corpos")
+        public int bodies;
+
+        @Label("Contatos")
+        public int contacts;
+
+        @Label("Pares testados")
+        public int pairTests;
+
+        @Label("Manifolds")
+        @Timespan
+        public long manifolds;
+
+        @Label("Integrar forças")
+        @Timespan
+        public long integrateForces;
+
+        @Label("Initialize")
+        @Timespan
+        public long initialize;
+
+        @Label("Solver")
+        @Timespan
+        public long solve;
+
+        @Label("Integrar velocidades")
+        @Timespan
+        public long integrateVelocity;
+
+        @Label("Correção de posição")
+        @Timespan
+        public long correctPositions;
+
+        @Label("Colisão contínua")
+        @Timespan
+        public long continuous;
+
+        @Label("Limpar forças")
+        @Timespan
+        public long clearForces;
+    }
+
+    // Um tick inteiro do servidor (ServerLoop): comandos + step + snapshots + SYNC
+    @Name("EngineTest.ServerTick")
+    @Label("Server Tick")
+    @Category({ "EngineTest", "Rede" })
+    @StackTrace(false)
+    public static class ServerTick extends Event {
+        @Label("Tick")
+        public long tick;
+
+        @Label("Clientes")
+        public int clients;
+
+        @Label("Streamers ativos")
+        @Description("Clientes ainda recebendo o snapshot de late-join")
+        public int streamers;
+    }
+
+    // Estado mandado para clientes: lote de SYNC, chunk de SNAPSHOT ou broadcast TCP
+    @Name("EngineTest.SnapshotSent")
+    @Label("Snapshot Sent")
+    @Category({ "EngineTest", "Rede" })
+    @StackTrace(false)
+    public static class SnapshotSent extends Event {
+        @Label("Tipo")
+        public String kind;
+
+        @Label("Cliente")
+        @Description("-1 = todos os clientes")
+        public int client;
+
+        @Label("Corpos")
+        public int bodies;
+
+        @Label("Bytes")
+        @DataAmount
+        public int bytes;
+    }
+
+    // Um comando executado pelo Network.processCommands (duração = execute())
+    @Name("EngineTest.CommandProcessed")
+    @Label("Command Processed")
+    @Category({ "EngineTest", "Rede" })
+    @StackTrace(false)
+    public static class CommandProcessed extends Event {
+        @Label("Tipo")
+        public String type;
+
+        @Label("Tempo na fila")
+        @Description("Do recebimento até o processCommands")
+        @Timespan
+        public long queueLatency;
+    }
+
+    // Datagrama UDP ou linha TCP que chegou (depois do emulador de rede, se ligado)
+    @Name("EngineTest.PacketReceived")
+    @Label("Packet Received")
+    @Category({ "EngineTest", "Rede" })
+    @StackTrace(false)
+    public static class PacketReceived extends Event {
+        @Label("Protocolo")
+        public String protocol;
+
+        @Label("Cliente")
+        @Description("-1 = desconhecido / lado cliente")
+        public int client;
+
+        @Label("Bytes")
+        @DataAmount
+        public int bytes;
+
+        @Label("Linhas")
+        public int lines;
+    }
+}
@@ -0,0 +1,118 @@
+package EngineTest;
+
+import java.nio.ByteBuffer;
+
+// Codificação binária de um RigidBody (forma, vértices, massa, estado).
+// Usada no streaming de late-join; cabe num ByteBuffer para ser comprimida depois.
+public class SnapshotCodec {
+
+    private static final byte SHAPE_CIRCLE = 0;
+    private static final byte SHAPE_POLY = 1;
+    // Bits livres do byte da forma: flags do corpo (arquivos antigos têm tudo 0)
+    private static final int SHAPE_MASK = 0x0F;
+    private static final int FLAG_BULLET = 0x40;
+    private static final int FLAG_SENSOR = 0x20;
+    private static final int FLAG_FILTER = 0x10; // Filtro/camada fora do padrão: 4 ints no fim do corpo
+
+    // Pior caso de um corpo: cabeçalho + estado + polígono com MAX_POLY_VERTEX_COUNT vértices e normais
+    public static final int MAX_BODY_BYTES = 4 + 1 + 8 * 4 + 4 * 9 + 4 + Shape.MAX_POLY_VERTEX_COUNT * 32 + 4 * 4;
+
+    public static void writeBody(ByteBuffer buf, RigidBody b) {
+        buf.putInt(b.id);
+
+        // --- Forma ---
+        boolean filter = b.categoryBits != 1 || b.maskBits != -1 || b.group != 0 || b.layer != 1;
+        int flags = (b.bullet ? FLAG_BULLET : 0) | (b.sensor ? FLAG_SENSOR : 0) | (filter ? FLAG_FILTER : 0);
+        if (b.shape.getType() == Shape.Type.CIRCLE) {
+            buf.put((byte) (SHAPE_CIRCLE | flags));
+            buf.putFloat(b.shape.radius);
+        } else {
+            PolygonShape poly = (PolygonShape) b.shape;
+            buf.put((byte) (SHAPE_POLY | flags));
+            buf.putInt(poly.m_vertexCount);
+            for (int i = 0; i < poly.m_vertexCount; i++) {
+                buf.putDouble(poly.m_vertices[i].x);
+                buf.putDouble(poly.m_vertices[i].y);
+            }
+            // Normais vão junto: recalculadas a partir dos vértices já centralizados,
+            // podiam sair diferentes no último bit das do servidor
+            for (int i = 0; i < poly.m_vertexCount; i++) {
+                buf.putDouble(poly.m_normals[i].x);
+                buf.putDouble(poly.m_normals[i].y);
+            }
+        }
+
+        // --- Estado ---
+        buf.putDouble(b.position.x);
+        buf.putDouble(b.position.y);
+        buf.putFloat(b.angle);
+        buf.putDouble(b.velocity.x); // Double: o modo determinístico precisa do valor exato
+        buf.putDouble(b.velocity.y);
+        buf.putFloat(b.angularVelocity);
+
+        // --- Massa e Material ---
+        buf.putFloat(b.mass);
+        buf.putFloat(b.invMass);
+        buf.putFloat(b.inertia);
+        buf.putFloat(b.invInertia);
+        buf.putFloat(b.staticFriction);
+        buf.putFloat(b.dynamicFriction);
+        buf.putFloat(b.restitution);
+
+        if (filter) {
+            buf.putInt(b.categoryBits);
+            buf.putInt(b.maskBits);
+            buf.putInt(b.group);
+            buf.putInt(b.layer);
+        }
+    }
+
+    public static RigidBody readBody(ByteBuffer buf) {
+        int id = buf.getInt();
+        int tag = buf.get();
+        int shapeType = tag & SHAPE_MASK;
+
+        Shape shape;
+        if (shapeType == SHAPE_CIRCLE) {
+            shape = new Circle(buf.getFloat());
+        } else {
+            int count = buf.getInt();
+            PolygonShape poly = new PolygonShape();
+            // Copia direto, sem o set(): o Convex Hull começaria de outro vértice (ex: caixas do
+            // setBox) e a ordem dos vértices muda o resultado do SAT
+            poly.m_vertexCount = count;
+            for (int i = 0; i < count; i++) {
+                poly.m_vertices[i].set(buf.getDouble(), buf.getDouble());
+            }
+            for (int i = 0; i < count; i++) {
+                poly.m_normals[i].set(buf.getDouble(), buf.getDouble());
+            }
+            shape = poly;
+        }
+
+        RigidBody b = new RigidBody(shape, 0, 0);
+        b.id = id;
+        b.bullet = (tag & FLAG_BULLET) != 0;
+        b.sensor = (tag & FLAG_SENSOR) != 0;
+        b.position.set(buf.getDouble(), buf.getDouble());
+        b.setAngle(buf.getFloat());
+        b.velocity.set(buf.getDouble(), buf.getDouble());
+        b.angularVelocity = buf.getFloat();
+
+        b.mass = buf.getFloat();
+        b.invMass = buf.getFloat();
+        b.inertia = buf.getFloat();
+        b.invInertia = buf.getFloat();
+        b.staticFriction = buf.getFloat();
+        b.dynamicFriction = buf.getFloat();
+        b.restitution = buf.getFloat();
+
+        if ((tag & FLAG_FILTER) != 0) {
+            b.categoryBits = buf.getInt();
+            b.maskBits = buf.getInt();
+            b.group = buf.getInt();
+            b.layer = buf.getInt();
+        }
+        return b;
+    }
+}
@@ -0,0 +1,124 @@
+package EngineTest;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.Deflater;
+
+// Manda o mundo inteiro para um cliente que entrou atrasado (late-join).
+// O envio é dividido em pedaços (chunks) pequenos, um por tick, para não travar a simulação.
+// Os corpos mais perto do foco (centro da tela do cliente) vão primeiro.
+public class SnapshotStreamer {
+
+    public static final int BODIES_PER_CHUNK = 16;
+
+    private final Network.ClientConnection client;
+    private final Scene scene;
+    private final List<Integer> pendingIds = new ArrayList<>();
+    private final int totalChunks;
+    private int nextChunk = 0;
+
+    // Pior caso de um chunk: contador + BODIES_PER_CHUNK corpos no tamanho máximo
+    static final int MAX_CHUNK_BYTES = Integer.BYTES + BODIES_PER_CHUNK * SnapshotCodec.MAX_BODY_BYTES;
+
+    // Reaproveitados entre chunks
+    private final ByteBuffer buffer = ByteBuffer.allocate(MAX_CHUNK_BYTES);
+    private byte[] compressed = new byte[MAX_CHUNK_BYTES + 64];
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+    public SnapshotStreamer(Network.ClientConnection client, Scene scene, double focusX, double focusY) {
+        this.client = client;
+        this.scene = scene;
+
+        // Só corpos registrados pelo servidor (o chão do initDemo é criado localmente nos dois lados)
+        List<RigidBody> ordered = new ArrayList<>();
+        for (RigidBody b : scene.bodies) {
+            if (b.id != -1)
+                ordered.add(b);
+        }
+
+        // Prioridade: distância ao foco (mais perto primeiro)
+        ordered.sort((a, b) -> Double.compare(distSqr(a, focusX, focusY), distSqr(b, focusX, focusY)));
+        for (RigidBody b : ordered) {
+            pendingIds.add(b.id);
+        }
+
+        // Sempre pelo menos um chunk (mesmo vazio): o último chunk avisa que o mundo chegou
+        totalChunks = Math.max(1, (pendingIds.size() + BODIES_PER_CHUNK - 1) / BODIES_PER_CHUNK);
+    }
+
+    private static double distSqr(RigidBody b, double x, double y) {
+        double dx = b.position.x - x;
+        double dy = b.position.y - y;
+        return dx * dx + dy * dy;
+    }
+
+    public Network.ClientConnection getClient() {
+        return client;
+    }
+
+    public boolean isDone() {
+        return nextChunk >= totalChunks;
+    }
+
+    // O cliente desconectou no meio do envio: o resto não tem para onde ir
+    public boolean isAborted() {
+        return client.isClosed();
+    }
+
+    // Chamado uma vez por tick: manda o próximo chunk (estado atual dos corpos)
+    public void sendNext(Network net) {
+        if (isDone() || isAborted())
+            return;
+
+        // Antes do mundo, como ele é simulado (ver SettingsCommand)
+        if (nextChunk == 0)
+            net.sendTCP(client, new NetworkCommand.SettingsCommand(scene));
+
+        buffer.clear();
+        int start = nextChunk * BODIES_PER_CHUNK;
+        int end = Math.min(start + BODIES_PER_CHUNK, pendingIds.size());
+        int count = 0;
+
+        buffer.putInt(0); // Placeholder do contador
+        for (int i = start; i < end; i++) {
+            RigidBody b = scene.findBodyById(pendingIds.get(i));
+            if (b == null)
+                continue;
+            SnapshotCodec.writeBody(buffer, b);
+            count++;
+        }
+        buffer.putInt(0, count);
+
+        // Comprime (deflate) e codifica em Base64 para caber no protocolo de texto
+        deflater.reset();
+        deflater.setInput(buffer.array(), 0, buffer.position());
+        deflater.finish();
+        int size = 0;
+        while (!deflater.finished()) {
+            if (size == compressed.length)
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            size += deflater.deflate(compressed, size, compressed.length - size);
+        }
+        String payload = Base64.getEncoder().encodeToString(Arrays.copyOf(compressed, size));
+
+        NetworkCommand.SnapshotCommand cmd = new NetworkCommand.SnapshotCommand(nextChunk, totalChunks, payload);
+        net.sendTCP(client, cmd);
+        nextChunk++;
+
+        SimulationEvents.SnapshotSent event = new SimulationEvents.SnapshotSent();
+        if (event.shouldCommit()) {
+            event.kind = "SNAPSHOT";
+            event.client = client.id;
+            event.bodies = count;
+            event.bytes = cmd.serialize().length() + 1; // + '\n'
+            event.commit();
+        }
+    }
+
+    public void dispose() {
+        deflater.end();
+    }
+}
@@ -0,0 +1,264 @@
+package EngineTest;
+
+import java.util.Arrays;
+
+// Árvore de AABBs (BVH) só dos corpos estáticos, montada de uma vez e imutável até o próximo
+// build(). O Scene só refaz quando algum estático muda (entrou, saiu, mexeu), então o
+// cenário fixo inteiro custa uma descida na árvore por corpo dinâmico e nada quando não
+// tem ninguém perto.
+//
+// Montagem de cima para baixo: divide pelo meio (mediana dos centros) no eixo mais comprido
+// até sobrar LEAF_SIZE corpos. Nós em arrays paralelos, filhos de um nó interno sempre em
+// i + 1 e right[i]; folha = faixa [first, first + count) de 'items'.
+public class StaticBvh {
+
+    private static final int LEAF_SIZE = 4;
+
+    // Corpos na ordem das folhas (o índice guardado é o "slot" do estático no Scene) e a
+    // AABB de cada um, copiada no build
+    private int[] items = new int[0];
+    private double[] boxMinX = new double[0], boxMinY = new double[0], boxMaxX = new double[0], boxMaxY = new double[0];
+
+    // Nós
+    private double[] minX = new double[0], minY = new double[0], maxX = new double[0], maxY = new double[0];
+    private int[] right = new int[0]; // -1 = folha
+    private int[] first = new int[0], count = new int[0];
+    private int nodeCount = 0;
+
+    // Rascunho do build (centros)
+    private double[] centerX = new double[0], centerY = new double[0];
+
+    // Pilha e resultado de uma busca. A árvore só é lida nas buscas: cada thread com o seu
+    // Cursor pode buscar ao mesmo tempo (o Scene usa o próprio no step).
+    public static final class Cursor {
+        private int[] stack = new int[64];
+        private int[] hits = new int[64];
+        private int count = 0;
+
+        // Resultado da última busca: índices do build em hit(0..count())
+        public int count() {
+            return count;
+        }
+
+        public int hit(int i) {
+            return hits[i];
+        }
+
+        private void add(int k) {
+            if (count == hits.length)
+                hits = Arrays.copyOf(hits, count * 2);
+            hits[count++] = k;
+        }
+    }
+
+    private final Cursor cursor = new Cursor();
+
+    private long builds = 0;
+
+    // Monta a árvore sobre os shapes[0..n) (updateWorld() já chamado). O resultado das
+    // buscas são os índices nesse array.
+    public void build(Shape[] shapes, int n) {
+        builds++;
+        if (items.length < n) {
+            int cap = Math.max(n, items.length * 2);
+            items = new int[cap];
+            centerX = new double[cap];
+            centerY = new double[cap];
+            boxMinX = new double[cap];
+            boxMinY = new double[cap];
+            boxMaxX = new double[cap];
+            boxMaxY = new double[cap];
+            int nodes = 2 * cap; // Árvore binária com folhas de >= 1 corpo
+            minX = new double[nodes];
+            minY = new double[nodes];
+            maxX = new double[nodes];
+            maxY = new double[nodes];
+            right = new int[nodes];
+            first = new int[nodes];
+            count = new int[nodes];
+        }
+        for (int i = 0; i < n; i++) {
+            Shape s = shapes[i];
+            items[i] = i;
+            boxMinX[i] = s.minX;
+            boxMinY[i] = s.minY;
+            boxMaxX[i] = s.maxX;
+            boxMaxY[i] = s.maxY;
+            centerX[i] = (s.minX + s.maxX) * 0.5;
+            centerY[i] = (s.minY + s.maxY) * 0.5;
+        }
+
+        nodeCount = 0;
+        if (n > 0)
+            buildNode(0, n);
+    }
+
+    private int buildNode(int from, int to) {
+        int node = nodeCount++;
+
+        // Caixa do nó e extensão dos centros (para escolher o eixo)
+        double bx0 = Double.MAX_VALUE, by0 = Double.MAX_VALUE, bx1 = -Double.MAX_VALUE, by1 = -Double.MAX_VALUE;
+        double cx0 = Double.MAX_VALUE, cy0 = Double.MAX_VALUE, cx1 = -Double.MAX_VALUE, cy1 = -Double.MAX_VALUE;
+        for (int i = from; i < to; i++) {
+            int k = items[i];
+            bx0 = Math.min(bx0, boxMinX[k]);
+            by0 = Math.min(by0, boxMinY[k]);
+            bx1 = Math.max(bx1, boxMaxX[k]);
+            by1 = Math.max(by1, boxMaxY[k]);
+            cx0 = Math.min(cx0, centerX[k]);
+            cy0 = Math.min(cy0, centerY[k]);
+            cx1 = Math.max(cx1, centerX[k]);
+            cy1 = Math.max(cy1, centerY[k]);
+        }
+        minX[node] = bx0;
+        minY[node] = by0;
+        maxX[node] = bx1;
+        maxY[node] = by1;
+
+        if (to - from <= LEAF_SIZE) {
+            right[node] = -1;
+            first[node] = from;
+            count[node] = to - from;
+            return node;
+        }
+
+        // Mediana no eixo mais comprido: metade de cada lado, árvore sempre balanceada
+        int mid = (from + to) >>> 1;
+        select(from, to - 1, mid, (cx1 - cx0) >= (cy1 - cy0) ? centerX : centerY);
+
+        buildNode(from, mid);
+        right[node] = buildNode(mid, to);
+        return node;
+    }
+
+    // Quickselect: items[k] fica no lugar certo, menores (pela chave) antes e maiores depois.
+    // Empate desempata pelo índice: o resultado não depende da ordem de chegada.
+    private void select(int lo, int hi, int k, double[] key) {
+        while (lo < hi) {
+            int pivot = items[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (less(items[i], pivot, key))
+                    i++;
+                while (less(pivot, items[j], key))
+                    j--;
+                if (i <= j) {
+                    int t = items[i];
+                    items[i] = items[j];
+                    items[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j)
+                hi = j;
+            else if (k >= i)
+                lo = i;
+            else
+                return;
+        }
+    }
+
+    private static boolean less(int a, int b, double[] key) {
+        return key[a] < key[b] || (key[a] == key[b] && a < b);
+    }
+
+    // Índices (do build) cujas AABBs tocam a caixa (encostar conta, como Shape.overlaps).
+    // Devolve quantos; os índices ficam em hit(0..n), válidos até a próxima query.
+    public int query(double x0, double y0, double x1, double y1) {
+        return query(cursor, x0, y0, x1, y1);
+    }
+
+    public int hit(int i) {
+        return cursor.hits[i];
+    }
+
+    // Igual, com resultado no cursor (thread-safe com um cursor por thread)
+    public int query(Cursor c, double x0, double y0, double x1, double y1) {
+        c.count = 0;
+        if (nodeCount == 0)
+            return 0;
+
+        int top = 0;
+        int[] stack = c.stack;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (minX[node] > x1 || maxX[node] < x0 || minY[node] > y1 || maxY[node] < y0)
+                continue;
+
+            if (right[node] < 0) {
+                for (int i = first[node], end = first[node] + count[node]; i < end; i++) {
+                    int k = items[i];
+                    if (boxMinX[k] > x1 || boxMaxX[k] < x0 || boxMinY[k] > y1 || boxMaxY[k] < y0)
+                        continue;
+                    c.add(k);
+                }
+                continue;
+            }
+
+            if (top + 2 > stack.length)
+                stack = c.stack = Arrays.copyOf(stack, stack.length * 2);
+            stack[top++] = right[node];
+            stack[top++] = node + 1;
+        }
+        return c.count;
+    }
+
+    // Índices cujas AABBs o segmento origem + t * (dx, dy), t em [0, maxT], atravessa
+    // (teste de slabs em cada nó). Só a caixa: o teste exato na forma fica com quem chamou.
+    public int raycast(Cursor c, double ox, double oy, double dx, double dy, double maxT) {
+        c.count = 0;
+        if (nodeCount == 0)
+            return 0;
+
+        // 1/0 = infinito: o slab do eixo parado vira "dentro ou fora" sozinho
+        double ix = 1.0 / dx, iy = 1.0 / dy;
+        // AABB do segmento: descarta a maioria das caixas com 4 comparações antes dos slabs
+        double ex = ox + dx * maxT, ey = oy + dy * maxT;
+        double sx0 = Math.min(ox, ex), sy0 = Math.min(oy, ey), sx1 = Math.max(ox, ex), sy1 = Math.max(oy, ey);
+
+        int top = 0;
+        int[] stack = c.stack;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            if (minX[node] > sx1 || maxX[node] < sx0 || minY[node] > sy1 || maxY[node] < sy0
+                    || !slabs(minX[node], minY[node], maxX[node], maxY[node], ox, oy, ix, iy, maxT))
+                continue;
+
+            if (right[node] < 0) {
+                for (int i = first[node], end = first[node] + count[node]; i < end; i++) {
+                    int k = items[i];
+                    if (boxMinX[k] > sx1 || boxMaxX[k] < sx0 || boxMinY[k] > sy1 || boxMaxY[k] < sy0)
+                        continue;
+                    if (slabs(boxMinX[k], boxMinY[k], boxMaxX[k], boxMaxY[k], ox, oy, ix, iy, maxT))
+                        c.add(k);
+                }
+                continue;
+            }
+
+            if (top + 2 > stack.length)
+                stack = c.stack = Arrays.copyOf(stack, stack.length * 2);
+            stack[top++] = right[node];
+            stack[top++] = node + 1;
+        }
+        return c.count;
+    }
+
+    // O segmento [0, maxT] entra na caixa? (ix, iy = 1 / direção)
+    static boolean slabs(double x0, double y0, double x1, double y1, double ox, double oy, double ix,
+            double iy, double maxT) {
+        double tx0 = (x0 - ox) * ix, tx1 = (x1 - ox) * ix;
+        double ty0 = (y0 - oy) * iy, ty1 = (y1 - oy) * iy;
+        // Origem em cima do plano com direção 0 dá 0 * inf = NaN, que passa no teste:
+        // candidato a mais, o teste exato descarta
+        double near = Math.max(Math.max(Math.min(tx0, tx1), Math.min(ty0, ty1)), 0);
+        double far = Math.min(Math.min(Math.max(tx0, tx1), Math.max(ty0, ty1)), maxT);
+        return !(near > far);
+    }
+
+    public long getBuilds() {
+        return builds;
+    }
+}
@@ -0,0 +1,159 @@
+package EngineTest;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Instrumentação do Scene.step(): tempo de cada fase (System.nanoTime) em histogramas
+// rolantes, mais contadores de pares testados, contatos, iterações do solver e bytes alocados.
+//
+// Escrito só pela thread da simulação e lido por outras (overlay no EDT, MetricsServer na
+// thread do HTTP): os histogramas são synchronized e os contadores, volatile.
+public class StepProfiler {
+
+    public enum Phase {
+        MANIFOLDS("Manifolds"),
+        INTEGRATE_FORCES("Forças"),
+        INITIALIZE("Initialize"),
+        SOLVE("Solver"),
+        INTEGRATE_VELOCITY("Velocidade"),
+        CORRECT_POSITIONS("Correção"),
+        CONTINUOUS("CCD"),
+        CLEAR_FORCES("Limpar forças"),
+        TOTAL("Total");
+
+        public final String label;
+
+        Phase(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final int WINDOW = 600; // ~10s de steps a 60Hz
+
+    public volatile boolean enabled = true;
+    // Medir alocação chama o ThreadMXBean duas vezes por step: desligado por padrão, ligado
+    // enquanto o overlay (F3) está na tela ou com -Dsim.profileAllocations=true
+    public volatile boolean trackAllocations = false;
+
+    private final RollingHistogram[] histograms = new RollingHistogram[Phase.values().length];
+    private final AtomicLongArray lastNanos = new AtomicLongArray(Phase.values().length);
+    // Somas das fases marcadas com accumulate() ainda não registradas
+    private final long[] pendingNanos = new long[Phase.values().length];
+    private final boolean[] pending = new boolean[Phase.values().length];
+
+    // --- CONTADORES (último step / acumulado) ---
+    private volatile long lastPairTests, lastContacts, lastSolverIterations, lastAllocatedBytes;
+    private volatile long totalPairTests, totalContacts, totalSolverIterations, totalAllocatedBytes;
+    private volatile long steps;
+
+    private final com.sun.management.ThreadMXBean threadBean;
+    private long stepStartNanos;
+    private long stepStartAllocated = -1; // -1: o begin() deste step não mediu
+
+    public StepProfiler() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new RollingHistogram(WINDOW);
+        }
+
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        threadBean = (bean instanceof com.sun.management.ThreadMXBean) ? (com.sun.management.ThreadMXBean) bean : null;
+    }
+
+    // Início do step: devolve o "agora" para ser passado ao primeiro mark()
+    long begin() {
+        stepStartNanos = System.nanoTime();
+        stepStartAllocated = trackAllocations && threadBean != null ? threadBean.getCurrentThreadAllocatedBytes() : -1;
+        return stepStartNanos;
+    }
+
+    // Fecha a fase que começou em 'start' e devolve o início da próxima
+    long mark(Phase phase, long start) {
+        long now = System.nanoTime();
+        long elapsed = now - start;
+        lastNanos.set(phase.ordinal(), elapsed);
+        histograms[phase.ordinal()].record(elapsed);
+        return now;
+    }
+
+    // Como o mark(), mas soma: com sub-stepping a mesma fase roda várias vezes no step.
+    // A soma entra no histograma uma vez só, no end().
+    long accumulate(Phase phase, long start) {
+        long now = System.nanoTime();
+        pendingNanos[phase.ordinal()] += now - start;
+        pending[phase.ordinal()] = true;
+        return now;
+    }
+
+    void end(int pairTests, int contacts, int solverIterations) {
+        for (int i = 0; i < pending.length; i++) {
+            if (!pending[i])
+                continue;
+            lastNanos.set(i, pendingNanos[i]);
+            histograms[i].record(pendingNanos[i]);
+            pendingNanos[i] = 0;
+            pending[i] = false;
+        }
+        mark(Phase.TOTAL, stepStartNanos);
+
+        lastPairTests = pairTests;
+        lastContacts = contacts;
+        lastSolverIterations = solverIterations;
+        totalPairTests += pairTests;
+        totalContacts += contacts;
+        totalSolverIterations += solverIterations;
+
+        // Só se o begin() também mediu (o overlay pode ter ligado no meio do step)
+        if (stepStartAllocated >= 0) {
+            long allocated = threadBean.getCurrentThreadAllocatedBytes() - stepStartAllocated;
+            lastAllocatedBytes = allocated;
+            totalAllocatedBytes += allocated;
+        }
+        steps++;
+    }
+
+    // --- API DE MÉTRICAS ---
+    public RollingHistogram getHistogram(Phase phase) {
+        return histograms[phase.ordinal()];
+    }
+
+    public long getLastNanos(Phase phase) {
+        return lastNanos.get(phase.ordinal());
+    }
+
+    public long getLastPairTests() {
+        return lastPairTests;
+    }
+
+    public long getLastContacts() {
+        return lastContacts;
+    }
+
+    public long getLastSolverIterations() {
+        return lastSolverIterations;
+    }
+
+    public long getLastAllocatedBytes() {
+        return lastAllocatedBytes;
+    }
+
+    public long getTotalPairTests() {
+        return totalPairTests;
+    }
+
+    public long getTotalContacts() {
+        return totalContacts;
+    }
+
+    public long getTotalSolverIterations() {
+        return totalSolverIterations;
+    }
+
+    public long getTotalAllocatedBytes() {
+        return totalAllocatedBytes;
+    }
+
+    public long getSteps() {
+        return steps;
+    }
+}
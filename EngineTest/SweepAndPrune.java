@@ -0,0 +1,161 @@
+package EngineTest;
+
+import java.util.Arrays;
+
+// Broadphase dinâmico x dinâmico por ordenação e varredura (sort and sweep) no eixo x: as
+// caixas ficam ordenadas pelo minX e cada uma só é testada contra as seguintes até a
+// primeira que começa depois do seu maxX. Em vez de n^2 / 2 testes, n mais os pares que
+// se sobrepõem em x.
+//
+// A ordem sobrevive de um step para o outro: os corpos andam pouco por step, então a
+// insertion sort da ordem anterior é quase linear. Corpos que entraram vão para o fim e
+// descem até o lugar certo; se a lista encolheu, os índices que sobraram são descartados.
+//
+// As consultas do Scene usam outra instância, ordenada na sincronização (sortForQueries):
+// busca binária no minX e varredura até o fim da caixa procurada. A faixa começa a
+// 'maxWidth' antes dela, então um dinâmico muito largo deixa todas as consultas mais longas.
+final class SweepAndPrune {
+
+    // Caixa de cada dinâmico (posição em Scene.dynamicIndex)
+    private double[] minX = new double[64], minY = new double[64], maxX = new double[64], maxY = new double[64];
+
+    // Dinâmicos em ordem crescente de minX
+    private int[] order = new int[64];
+    private int count = 0;
+
+    // Pares do último find(): (a << 32) | b com a < b, posições em Scene.dynamicIndex
+    long[] pairs = new long[256];
+
+    // Consultas: minX na ordem (para a busca binária) e a maior largura, do sortForQueries()
+    private double[] sortedMinX = new double[64];
+    private double maxWidth = 0;
+
+    // Prepara para n caixas (a ordem do step anterior é mantida)
+    void resize(int n) {
+        if (minX.length < n) {
+            int cap = Math.max(n, minX.length * 2);
+            minX = Arrays.copyOf(minX, cap);
+            minY = Arrays.copyOf(minY, cap);
+            maxX = Arrays.copyOf(maxX, cap);
+            maxY = Arrays.copyOf(maxY, cap);
+            order = Arrays.copyOf(order, cap);
+        }
+
+        if (n < count) {
+            // Saiu alguém: fica só quem ainda existe, na mesma ordem relativa
+            int kept = 0;
+            for (int k = 0; k < count; k++) {
+                if (order[k] < n)
+                    order[kept++] = order[k];
+            }
+        } else {
+            for (int k = count; k < n; k++) {
+                order[k] = k;
+            }
+        }
+        count = n;
+    }
+
+    void set(int k, Shape s) {
+        minX[k] = s.minX;
+        minY[k] = s.minY;
+        maxX[k] = s.maxX;
+        maxY[k] = s.maxY;
+    }
+
+    // Ordena pelo minX e acha todos os pares que se tocam (encostar conta, como
+    // Shape.overlaps). Devolve quantos; a ordem dos pares é a da varredura.
+    int find() {
+        sort();
+
+        int found = 0;
+        for (int k = 0; k < count; k++) {
+            int a = order[k];
+            double x1 = maxX[a], y0 = minY[a], y1 = maxY[a];
+            for (int m = k + 1; m < count; m++) {
+                int b = order[m];
+                if (minX[b] > x1)
+                    break; // Daqui em diante todas começam depois do fim de a
+                if (y0 <= maxY[b] && minY[b] <= y1) {
+                    if (found == pairs.length)
+                        pairs = Arrays.copyOf(pairs, found * 2);
+                    pairs[found++] = a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+                }
+            }
+        }
+        return found;
+    }
+
+    // --- CONSULTAS ---
+    // Só leem: várias threads podem consultar ao mesmo tempo depois do sortForQueries()
+
+    // Ordena sem procurar pares
+    void sortForQueries() {
+        sort();
+        if (sortedMinX.length < count)
+            sortedMinX = new double[minX.length];
+        double width = 0;
+        for (int k = 0; k < count; k++) {
+            int a = order[k];
+            sortedMinX[k] = minX[a];
+            width = Math.max(width, maxX[a] - minX[a]);
+        }
+        maxWidth = width;
+    }
+
+    // Faixa [from(x0), to(x1)) da ordem com as caixas que podem tocar [x0, x1] em x: quem
+    // começa antes de x0 - maxWidth termina antes de x0
+    int from(double x0) {
+        double v = x0 - maxWidth;
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedMinX[mid] < v)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    int to(double x1) {
+        int lo = 0, hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sortedMinX[mid] <= x1)
+                lo = mid + 1;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    // Posição em Scene.dynamicIndex do k-ésimo na ordem
+    int at(int k) {
+        return order[k];
+    }
+
+    // A caixa 'a' toca [x0, x1] x [y0, y1] (encostar conta)
+    boolean overlaps(int a, double x0, double y0, double x1, double y1) {
+        return minX[a] <= x1 && x0 <= maxX[a] && minY[a] <= y1 && y0 <= maxY[a];
+    }
+
+    // O segmento [0, maxT] entra na caixa 'a'? (ix, iy = 1 / direção; ver StaticBvh.slabs)
+    boolean slabs(int a, double ox, double oy, double ix, double iy, double maxT) {
+        return StaticBvh.slabs(minX[a], minY[a], maxX[a], maxY[a], ox, oy, ix, iy, maxT);
+    }
+
+    // Insertion sort a partir da ordem anterior
+    private void sort() {
+        for (int k = 1; k < count; k++) {
+            int v = order[k];
+            double key = minX[v];
+            int m = k - 1;
+            while (m >= 0 && minX[order[m]] > key) {
+                order[m + 1] = order[m];
+                m--;
+            }
+            order[m + 1] = v;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package EngineTest;
+
+import java.nio.ByteBuffer;
+
+// Solda: âncoras no mesmo ponto e o ângulo relativo preso no da criação, os dois corpos
+// se movem como um só. Uma restrição 3x3 (ponto + ângulo) resolvida de uma vez, que
+// converge melhor que um pino e uma trava de ângulo separados.
+public class WeldJoint extends Joint {
+
+    private final double referenceAngle;
+
+    // Do initialize(): inversa da massa efetiva 3x3 (simétrica) e bias
+    private double m11, m12, m13, m22, m23, m33, biasX, biasY, biasAngle;
+    private double impulseX = 0, impulseY = 0, impulseAngle = 0;
+
+    // Solda no ponto (x, y) do mundo
+    public WeldJoint(RigidBody a, RigidBody b, double x, double y) {
+        super(a, b, x, y, x, y);
+        referenceAngle = b.angle - a.angle;
+    }
+
+    WeldJoint(RigidBody a, RigidBody b, ByteBuffer buf) {
+        super(a, b, buf);
+        referenceAngle = buf.getDouble();
+        impulseX = buf.getDouble();
+        impulseY = buf.getDouble();
+        impulseAngle = buf.getDouble();
+    }
+
+    @Override
+    void write(ByteBuffer buf) {
+        super.write(buf);
+        buf.putDouble(referenceAngle);
+        buf.putDouble(impulseX);
+        buf.putDouble(impulseY);
+        buf.putDouble(impulseAngle);
+    }
+
+    @Override
+    public int stateSize() {
+        return 3;
+    }
+
+    @Override
+    public void saveState(double[] out, int offset) {
+        out[offset] = impulseX;
+        out[offset + 1] = impulseY;
+        out[offset + 2] = impulseAngle;
+    }
+
+    @Override
+    public void restoreState(double[] in, int offset) {
+        impulseX = in[offset];
+        impulseY = in[offset + 1];
+        impulseAngle = in[offset + 2];
+    }
+
+    @Override
+    public void initialize(double dt, double h) {
+        computeArms();
+
+        double mA = a.invMass, mB = b.invMass, iA = a.invInertia, iB = b.invInertia;
+        double k11 = mA + mB + iA * ray * ray + iB * rby * rby;
+        double k12 = -iA * rax * ray - iB * rbx * rby;
+        double k13 = -iA * ray - iB * rby;
+        double k22 = mA + mB + iA * rax * rax + iB * rbx * rbx;
+        double k23 = iA * rax + iB * rbx;
+        double k33 = iA + iB;
+
+        if (k33 == 0) {
+            // Nenhum dos dois gira: só o ponto (a parte angular seria singular)
+            double det = k11 * k22 - k12 * k12;
+            if (det != 0)
+                det = 1.0 / det;
+            m11 = det * k22;
+            m12 = -det * k12;
+            m22 = det * k11;
+            m13 = m23 = m33 = 0;
+        } else {
+            double det = k11 * (k22 * k33 - k23 * k23) + k12 * (k23 * k13 - k12 * k33)
+                    + k13 * (k12 * k23 - k22 * k13);
+            if (det != 0)
+                det = 1.0 / det;
+            m11 = det * (k22 * k33 - k23 * k23);
+            m12 = det * (k13 * k23 - k12 * k33);
+            m13 = det * (k12 * k23 - k13 * k22);
+            m22 = det * (k11 * k33 - k13 * k13);
+            m23 = det * (k13 * k12 - k11 * k23);
+            m33 = det * (k11 * k22 - k12 * k12);
+        }
+
+        biasX = BAUMGARTE * separationX() / dt;
+        biasY = BAUMGARTE * separationY() / dt;
+        biasAngle = BAUMGARTE * (b.angle - a.angle - referenceAngle) / dt;
+
+        applyLinear(impulseX, impulseY);
+        a.applyAngularImpulse(-impulseAngle);
+        b.applyAngularImpulse(impulseAngle);
+    }
+
+    @Override
+    public void solve() {
+        double vx = velocityX() + biasX, vy = velocityY() + biasY;
+        double w = (b.angularVelocity - a.angularVelocity) + biasAngle;
+
+        double px = -(m11 * vx + m12 * vy + m13 * w);
+        double py = -(m12 * vx + m22 * vy + m23 * w);
+        double l = -(m13 * vx + m23 * vy + m33 * w);
+        impulseX += px;
+        impulseY += py;
+        impulseAngle += l;
+
+        applyLinear(px, py);
+        a.applyAngularImpulse(-l);
+        b.applyAngularImpulse(l);
+    }
+}
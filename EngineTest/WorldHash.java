@@ -0,0 +1,102 @@
+package EngineTest;
+
+// Hash de 64 bits do estado do mundo, montado corpo a corpo dentro do próprio Scene.step()
+// (no laço que já zera as forças, sem passar pelos corpos de novo).
+// Usa os bits exatos dos doubles/floats: qualquer diferença, até no último bit, muda o hash.
+// Guarda os últimos HISTORY ticks para comparar com o hash que chega do outro lado.
+public class WorldHash {
+
+    public static final int HISTORY = 256;
+
+    private static final long SEED = 0x9E3779B97F4A7C15L;
+
+    private final long[] ticks = new long[HISTORY];
+    private final long[] hashes = new long[HISTORY];
+
+    private long current;
+
+    // --- DESSINCRONIZAÇÃO ---
+    private volatile long checks = 0;
+    private volatile long desyncs = 0;
+    private volatile long lastDesyncTick = -1;
+
+    public WorldHash() {
+        java.util.Arrays.fill(ticks, -1);
+    }
+
+    void begin() {
+        current = SEED;
+    }
+
+    void add(RigidBody b) {
+        long h = current;
+        h = mix(h, b.id);
+        h = mix(h, Double.doubleToLongBits(b.position.x));
+        h = mix(h, Double.doubleToLongBits(b.position.y));
+        h = mix(h, Double.doubleToLongBits(b.velocity.x));
+        h = mix(h, Double.doubleToLongBits(b.velocity.y));
+        h = mix(h, Float.floatToIntBits(b.angle));
+        h = mix(h, Float.floatToIntBits(b.angularVelocity));
+        current = h;
+    }
+
+    // Fecha o hash do tick e guarda no histórico
+    long end(long tick) {
+        long h = current ^ tick;
+        int slot = (int) (tick % HISTORY);
+        ticks[slot] = tick;
+        hashes[slot] = h;
+        return h;
+    }
+
+    // Hash do mundo inteiro de uma vez (estado que não veio de um step, ex: depois do snapshot)
+    long compute(Scene scene, long tick) {
+        begin();
+        for (int i = 0; i < scene.bodies.size(); i++) {
+            add(scene.bodies.get(i));
+        }
+        return end(tick);
+    }
+
+    public boolean has(long tick) {
+        return tick >= 0 && ticks[(int) (tick % HISTORY)] == tick;
+    }
+
+    public long get(long tick) {
+        return hashes[(int) (tick % HISTORY)];
+    }
+
+    // Compara com o hash do outro lado; false = divergiu (ou o tick já saiu do histórico)
+    public boolean check(long tick, long remote) {
+        if (!has(tick))
+            return true; // Não dá para saber
+
+        checks++;
+        if (get(tick) == remote)
+            return true;
+
+        desyncs++;
+        lastDesyncTick = tick;
+        return false;
+    }
+
+    // Passo do SplitMix64 (espalha bem os bits de cada campo)
+    private static long mix(long h, long v) {
+        h ^= v;
+        h *= 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 31;
+        return h;
+    }
+
+    public long getChecks() {
+        return checks;
+    }
+
+    public long getDesyncs() {
+        return desyncs;
+    }
+
+    public long getLastDesyncTick() {
+        return lastDesyncTick;
+    }
+}
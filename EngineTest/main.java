@@ -14,6 +14,9 @@ public class main extends JPanel {
 
     Network network;
 
+    // Overlay do profiler (liga/desliga no F3)
+    private boolean showProfiler = false;
+
     public main() {
         // 1. Configuração Inicial da Cena
         scene = new Scene();
@@ -21,12 +24,23 @@ public class main extends JPanel {
         scene.iterations = 10; // Precisão da resolução de colisão
 
         // 2. Criar Objetos (Chão e Caixas)
-        initDemo();
+        initDemo(scene);
 
         // 3. Configurar Janela e Inputs
         setPreferredSize(new Dimension(WIDTH, HEIGHT));
         setBackground(Color.BLACK);
 
+        // F3: mostra/esconde o tempo de cada fase do step
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke("F3"), "toggleProfiler");
+        getActionMap().put("toggleProfiler", new AbstractAction() {
+            @Override
+            public void actionPerformed(java.awt.event.ActionEvent e) {
+                showProfiler = !showProfiler;
+                // "Alocado/step" do overlay: mede só enquanto aparece (ver applyProfiler)
+                scene.profiler.trackAllocations = showProfiler || Boolean.getBoolean("sim.profileAllocations");
+            }
+        });
+
         // Clique do mouse para criar caixas na posição do cursor
         addMouseListener(new MouseAdapter() {
             @Override
@@ -63,7 +77,7 @@ public class main extends JPanel {
         });
     }
 
-    private void initDemo() {
+    static void initDemo(Scene scene) {
         // --- Chão (Estático) ---
         RigidBody floor = createBox(scene, 10, 1, 20, 1); // x, y, w, h
         floor.invMass = 0; // Massa infinita (não se move)
@@ -71,14 +85,127 @@ public class main extends JPanel {
         floor.restitution = 0.2f; // Chão pouco elástico
     }
 
-    private RigidBody createRandomPoly(Scene scene, double x, double y) {
+    // -Dsim.deterministic=true [-Dsim.seed=42]: servidor e clientes precisam usar o mesmo modo
+    static void applyDeterminism(Scene scene) {
+        if (Boolean.getBoolean("sim.deterministic"))
+            scene.setDeterministic(Long.getLong("sim.seed", 42L));
+    }
+
+    // -Dsim.substeps=N: sub-stepping no lugar das 10 iterações (servidor e clientes iguais no modo determinístico)
+    static void applySubsteps(Scene scene) {
+        scene.substeps = Math.max(1, Integer.getInteger("sim.substeps", 1));
+    }
+
+    // -Dsim.ccd=X: CCD para quem andar mais que X * o próprio raio interno num step (0, o
+    // padrão, desliga; bullets sempre). Quem entra recebe o do servidor (SETTINGS).
+    static void applyCcd(Scene scene) {
+        String value = System.getProperty("sim.ccd");
+        if (value == null)
+            return;
+
+        try {
+            scene.ccdThreshold = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            System.err.println("sim.ccd inválido: " + value);
+        }
+    }
+
+    // -Dsim.narrowphase=sat|gjk: algoritmo de colisão (quem entra recebe o do servidor)
+    static void applyNarrowphase(Scene scene) {
+        String name = System.getProperty("sim.narrowphase");
+        if (name == null)
+            return;
+
+        try {
+            scene.narrowphase = Manifold.Backend.valueOf(name.toUpperCase(java.util.Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            System.err.println("sim.narrowphase desconhecido: " + name + " (use sat ou gjk)");
+        }
+    }
+
+    // -Dsim.profileAllocations=true: bytes alocados por step no profiler o tempo todo (para o
+    // /metrics); sem isso só enquanto o overlay (F3) está na tela
+    static void applyProfiler(Scene scene) {
+        scene.profiler.trackAllocations = Boolean.getBoolean("sim.profileAllocations");
+    }
+
+    // -Dsim.circleBatch=off|scalar|vector: círculo x círculo em lote (ver CircleBatch).
+    // vector precisa do build com -Pvector e de --add-modules jdk.incubator.vector na JVM.
+    static void applyCircleBatch(Scene scene) {
+        String name = System.getProperty("sim.circleBatch");
+        if (name == null)
+            return;
+
+        try {
+            CircleBatch.Mode mode = CircleBatch.Mode.valueOf(name.toUpperCase(java.util.Locale.ROOT));
+            if (mode == CircleBatch.Mode.VECTOR && !CircleBatch.vectorAvailable()) {
+                System.err.println("sim.circleBatch=vector precisa do build -Pvector e de --add-modules jdk.incubator.vector; usando scalar");
+                mode = CircleBatch.Mode.SCALAR;
+            }
+            scene.circleBatch = mode;
+        } catch (IllegalArgumentException e) {
+            System.err.println("sim.circleBatch desconhecido: " + name + " (use off, scalar ou vector)");
+        }
+    }
+
+    // -Dsim.checkpoint=arquivo [-Dsim.checkpointInterval=600]: salva a cena periodicamente
+    // e, se o arquivo já existir, o servidor continua dele
+    static void applyCheckpoint(ServerLoop loop) {
+        String file = System.getProperty("sim.checkpoint");
+        if (file == null)
+            return;
+
+        try {
+            if (loop.enableCheckpoints(java.nio.file.Paths.get(file), Integer.getInteger("sim.checkpointInterval", 600)))
+                System.err.println("Cena restaurada de " + file + " (tick " + loop.getScene().tick + ")");
+        } catch (java.io.IOException | IllegalArgumentException e) {
+            System.err.println("Erro ao restaurar " + file + ": " + e.getMessage());
+        }
+    }
+
+    // -Dsim.rollback=ticks [-Dsim.rollbackBudgetMs=4]: INPUT atrasado volta até o tick em que
+    // aconteceu (no máximo 'ticks' atrás e o que couber no orçamento de ressimulação)
+    static void applyRollback(Scene scene) {
+        int ticks = Integer.getInteger("sim.rollback", 0);
+        if (ticks <= 0 || scene.deterministic)
+            return;
+
+        long budget = (long) (Double.parseDouble(System.getProperty("sim.rollbackBudgetMs", "4")) * 1_000_000);
+        scene.rollback = new RollbackBuffer(ticks + 1, budget);
+    }
+
+    // -Dsim.record=pasta: grava a sessão (snapshot + INPUTs) para o Replay
+    static void applyRecording(ServerLoop loop) {
+        String dir = System.getProperty("sim.record");
+        if (dir == null)
+            return;
+
+        try {
+            loop.startRecording(java.nio.file.Paths.get(dir));
+            System.err.println("Gravando sessão em " + dir);
+        } catch (java.io.IOException e) {
+            System.err.println("Erro ao iniciar a gravação: " + e.getMessage());
+            return;
+        }
+
+        // Fecha o log na saída (o System.exit roda no EDT, então o Timer já parou)
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                loop.stopRecording();
+            } catch (java.io.IOException e) {
+                System.err.println("Erro ao fechar a gravação: " + e.getMessage());
+            }
+        }));
+    }
+
+    static RigidBody createRandomPoly(Scene scene, double x, double y) {
         PolygonShape poly = new PolygonShape();
-        int vertexCount = 3 + (int) (Math.random() * 5); // Entre 3 e 7 vértices
+        int vertexCount = 3 + scene.random.nextInt(5); // Entre 3 e 7 vértices
         Vector2[] vertices = new Vector2[vertexCount];
         for (int i = 0; i < vertexCount; i++) {
             double angle = i * 2 * Math.PI / vertexCount;
-            double radius = 0.5 + Math.random() * 0.5; // Raio entre 0.5 e 1.0
-            vertices[i] = new Vector2(radius * Math.cos(angle), radius * Math.sin(angle));
+            double radius = 0.5 + scene.random.nextDouble() * 0.5; // Raio entre 0.5 e 1.0
+            vertices[i] = new Vector2(radius * StrictMath.cos(angle), radius * StrictMath.sin(angle));
         }
         poly.set(vertices, vertexCount);
 
@@ -90,7 +217,7 @@ public class main extends JPanel {
     }
 
     // Helper para criar Caixas
-    private RigidBody createBox(Scene scene, double x, double y, double w, double h) {
+    static RigidBody createBox(Scene scene, double x, double y, double w, double h) {
         PolygonShape poly = new PolygonShape();
         poly.setBox(w / 2.0, h / 2.0); // setBox usa half-width (metade da largura)
 
@@ -102,7 +229,7 @@ public class main extends JPanel {
     }
 
     // Helper para criar Círculos
-    private RigidBody createCircle(Scene scene, double x, double y, double r) {
+    static RigidBody createCircle(Scene scene, double x, double y, double r) {
         Circle circle = new Circle((float) r);
 
         RigidBody body = new RigidBody(circle, (int) x, (int) y);
@@ -127,6 +254,29 @@ public class main extends JPanel {
         g2d.setColor(Color.WHITE);
         g2d.drawString("Clique para criar objetos", 10, 20);
         g2d.drawString("Corpos: " + scene.bodies.size(), 10, 40);
+
+        if (showProfiler)
+            drawProfiler(g2d, 10, 60);
+    }
+
+    // Overlay: p50 / p99 / último de cada fase (ms) e contadores do último step
+    private void drawProfiler(Graphics2D g2d, int x, int y) {
+        StepProfiler prof = scene.profiler;
+        g2d.setColor(Color.YELLOW);
+        g2d.drawString("Fase            p50     p99    último (ms)", x, y);
+
+        for (StepProfiler.Phase phase : StepProfiler.Phase.values()) {
+            y += 15;
+            RollingHistogram h = prof.getHistogram(phase);
+            g2d.drawString(String.format(java.util.Locale.US, "%-14s %6.3f  %6.3f  %6.3f", phase.label,
+                    h.percentileMillis(50), h.percentileMillis(99), prof.getLastNanos(phase) / 1_000_000.0), x, y);
+        }
+
+        y += 20;
+        g2d.drawString("Pares: " + prof.getLastPairTests() + "  Contatos: " + prof.getLastContacts()
+                + "  Iterações: " + prof.getLastSolverIterations(), x, y);
+        y += 15;
+        g2d.drawString("Alocado/step: " + (prof.getLastAllocatedBytes() / 1024) + " KB", x, y);
     }
 
     public static void openConfigWindow() {
@@ -156,24 +306,42 @@ public class main extends JPanel {
         frame.setVisible(true);
 
         simulation.network = network;
+        applyDeterminism(simulation.scene);
+        applySubsteps(simulation.scene);
+        applyCcd(simulation.scene);
+        applyNarrowphase(simulation.scene);
+        applyCircleBatch(simulation.scene);
+        applyProfiler(simulation.scene);
+
+        // Orçamento de banda por cliente (bytes/s), configurável com -Dnet.budget=...
+        SendScheduler scheduler = new SendScheduler(Integer.getInteger("net.budget", 32 * 1024));
+        ServerLoop serverLoop = new ServerLoop(simulation.scene, network, scheduler,
+                WIDTH / 2.0 / SCALE, HEIGHT / 2.0 / SCALE);
+        serverLoop.hashInterval = Math.max(1, Integer.getInteger("sim.hashInterval", 1));
+        if (network != null && network.isServer) {
+            applyRollback(simulation.scene);
+            applyCheckpoint(serverLoop);
+            applyRecording(serverLoop);
+        }
+
+        // Métricas Prometheus opcionais (-Dmetrics.port=9100)
+        if (network != null && network.isServer) {
+            try {
+                MetricsServer metrics = MetricsServer.fromSystemProperties(serverLoop);
+                if (metrics != null)
+                    System.out.println("Métricas em http://127.0.0.1:" + metrics.getPort() + "/metrics");
+            } catch (java.io.IOException ex) {
+                System.out.println("Erro ao abrir o endpoint de métricas: " + ex.getMessage());
+            }
+        }
 
         Timer timer = new Timer(16, e -> {
             if (network != null) {
-
-                network.processCommands(simulation.scene);
-
                 if (network.isServer) {
-                    simulation.scene.step();
-
-                    for (RigidBody b : simulation.scene.bodies) {
-                        if (b.invMass != 0 && b.id != -1) {
-                            NetworkCommand sync = new NetworkCommand.SyncCommand(
-                                    b.id, b.position.x, b.position.y, b.angle);
-                            network.broadcast(sync);
-                        }
-                    }
+                    serverLoop.tick();
+                } else {
+                    network.processCommands(simulation.scene);
                 }
-
             }
 
             simulation.repaint();
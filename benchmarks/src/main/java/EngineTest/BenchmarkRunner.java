@@ -0,0 +1,21 @@
+package EngineTest;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Entrada do benchmarks.jar: mesmas opções do JMH, sempre com o profiler de GC
+// (alocação por operação e coletas aparecem junto com o tempo).
+//
+// java -jar benchmarks/target/benchmarks.jar SceneStep -p bodies=1000
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cmd = new CommandLineOptions(args);
+        new Runner(new OptionsBuilder()
+                .parent(cmd)
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
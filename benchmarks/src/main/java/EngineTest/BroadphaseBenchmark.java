@@ -0,0 +1,80 @@
+package EngineTest;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Broadphase dos dinâmicos: o laço O(n^2) antigo (Shape.overlaps de cada corpo contra
+// todos os seguintes) contra o SweepAndPrune. GRID = bolinhas na ordem da grade (como uma
+// pilha criada em ordem); RANDOM = sorteadas no mesmo quadrado, sem ordem.
+//
+// O SWEEP alterna entre duas poses, a segunda com cada bolinha deslocada até 5 cm (o que
+// elas andam num step), então cada operação paga a reordenação, não só a varredura.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadphaseBenchmark {
+
+    // OBJECTS = laço antigo (bodies.get(j).shape.overlaps)
+    @Param({ "OBJECTS", "SWEEP" })
+    public String mode;
+
+    @Param({ "1000", "5000" })
+    public int bodies;
+
+    @Param({ "GRID", "RANDOM" })
+    public String layout;
+
+    private final SweepAndPrune sweep = new SweepAndPrune();
+    private Scene boxes;
+    private Shape[] poseA, poseB;
+    private boolean flip;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // Bolinhas de raio 0.6 a 1.1 m uma da outra (GRID) ou sorteadas no mesmo quadrado
+        Random random = new Random(1);
+        int cols = (int) Math.ceil(Math.sqrt(bodies));
+        double side = cols * 1.1;
+        boxes = new Scene();
+        Scene moved = new Scene();
+        poseA = new Shape[bodies];
+        poseB = new Shape[bodies];
+        for (int i = 0; i < bodies; i++) {
+            double x = layout.equals("GRID") ? (i % cols) * 1.1 : random.nextDouble() * side;
+            double y = layout.equals("GRID") ? (i / cols) * 1.1 : random.nextDouble() * side;
+            poseA[i] = main.createCircle(boxes, x, y, 0.6).shape;
+            poseB[i] = main.createCircle(moved, x + (random.nextDouble() - 0.5) * 0.1,
+                    y + (random.nextDouble() - 0.5) * 0.1, 0.6).shape;
+            poseA[i].updateWorld();
+            poseB[i].updateWorld();
+        }
+        sweep.resize(bodies);
+    }
+
+    // Quantos pares se tocam
+    @Benchmark
+    public int pairs() {
+        if (mode.equals("OBJECTS")) {
+            int pairs = 0;
+            for (int a = 0; a < bodies; a++) {
+                Shape s = boxes.bodies.get(a).shape;
+                for (int b = a + 1; b < bodies; b++) {
+                    if (s.overlaps(boxes.bodies.get(b).shape))
+                        pairs++;
+                }
+            }
+            return pairs;
+        }
+
+        Shape[] pose = (flip = !flip) ? poseB : poseA;
+        for (int i = 0; i < bodies; i++) {
+            sweep.set(i, pose[i]);
+        }
+        return sweep.find();
+    }
+}
@@ -0,0 +1,94 @@
+package EngineTest;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Narrowphase de uma pilha de bolinhas: os pares candidatos (AABBs se tocando) pelo
+// Colision.circleToCircle, um por vez (PAIR, o caminho padrão do Scene), e pelo
+// CircleBatch, no laço escalar (SCALAR) e com o Vector API (VECTOR). Os três escrevem o
+// mesmo resultado nos Manifolds do pool e mantêm os que deram contato.
+//
+// VECTOR precisa do engine compilado com -Pvector; o fork sobe com o módulo.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+public class CircleBatchBenchmark {
+
+    @Param({ "PAIR", "SCALAR", "VECTOR" })
+    public String mode;
+
+    @Param({ "1000", "10000" })
+    public int bodies;
+
+    private Scene scene;
+    private long[] pairs;
+    private int pairCount;
+    private final ManifoldPool pool = new ManifoldPool();
+    private final CircleBatch batch = new CircleBatch();
+    private CircleBatch.Mode batchMode;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        if (mode.equals("VECTOR") && !CircleBatch.vectorAvailable())
+            throw new IllegalStateException("VECTOR precisa do engine compilado com mvn -Pvector");
+        batchMode = mode.equals("VECTOR") ? CircleBatch.Mode.VECTOR : CircleBatch.Mode.SCALAR;
+
+        // Grade de bolinhas de raio 0.6 a 1.1 m: cada uma toca as vizinhas de lado e de cima
+        int cols = (int) Math.ceil(Math.sqrt(bodies));
+        scene = new Scene();
+        for (int i = 0; i < bodies; i++) {
+            RigidBody b = main.createCircle(scene, (i % cols) * 1.1, (i / cols) * 1.1, 0.6);
+            b.shape.updateWorld();
+        }
+
+        // Candidatos como o broadphase entrega: AABBs que se tocam, (i << 32) | j ordenados
+        pairs = new long[bodies * 8];
+        for (int i = 0; i < bodies; i++) {
+            Shape a = scene.bodies.get(i).shape;
+            for (int j = i + 1; j < Math.min(bodies, i + 2 * cols + 2); j++) {
+                if (a.overlaps(scene.bodies.get(j).shape))
+                    pairs[pairCount++] = ((long) i << 32) | j;
+            }
+        }
+        Arrays.sort(pairs, 0, pairCount);
+    }
+
+    // Quantos pares deram contato
+    @Benchmark
+    public int narrowphase() {
+        pool.reset();
+        int contacts = 0;
+
+        if (mode.equals("PAIR")) {
+            for (int p = 0; p < pairCount; p++) {
+                RigidBody A = scene.bodies.get((int) (pairs[p] >>> 32));
+                RigidBody B = scene.bodies.get((int) pairs[p]);
+                Manifold m = pool.acquire(A, B);
+                Colision.circleToCircle(m, A, B);
+                if (m.contactCount > 0) {
+                    pool.keep();
+                    contacts++;
+                }
+            }
+            return contacts;
+        }
+
+        int n = batch.collect(pairs, pairCount, scene.bodies);
+        batch.run(batchMode);
+        for (int k = 0; k < n; k++) {
+            int p = batch.pair[k];
+            Manifold m = pool.acquire(scene.bodies.get((int) (pairs[p] >>> 32)), scene.bodies.get((int) pairs[p]));
+            batch.write(k, m);
+            if (m.contactCount > 0) {
+                pool.keep();
+                contacts++;
+            }
+        }
+        return contacts;
+    }
+}
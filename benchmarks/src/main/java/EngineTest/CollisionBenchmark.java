@@ -0,0 +1,84 @@
+package EngineTest;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Microbenchmarks dos kernels de colisão e do impulso, um par por chamada.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+
+    private RigidBody circleA, circleB;
+    private RigidBody boxA, boxB;
+    private Manifold circleManifold, polyManifold, impulseManifold;
+    private final float[] penetration = { 0 };
+    private final int[] faceIndex = { 0 };
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Scene scene = new Scene();
+
+        // Dois círculos se sobrepondo
+        circleA = main.createCircle(scene, 0, 0, 0.6);
+        circleB = main.createCircle(scene, 1, 0, 0.6);
+        circleA.position.set(0, 0);
+        circleB.position.set(1.0, 0.2);
+
+        // Caixa apoiada (e levemente girada) em cima de outra: contato de 2 pontos
+        boxA = main.createBox(scene, 0, 0, 2, 1);
+        boxB = main.createBox(scene, 0, 1, 1, 1);
+        boxA.position.set(0, 0);
+        boxB.position.set(0.1, 0.95);
+        boxB.setAngle(0.05f);
+
+        circleManifold = new Manifold(circleA, circleB);
+        polyManifold = new Manifold(boxA, boxB);
+
+        impulseManifold = new Manifold(boxA, boxB);
+        impulseManifold.Solve(Manifold.Backend.SAT);
+        impulseManifold.Initialize();
+    }
+
+    @Benchmark
+    public Manifold circleToCircle() {
+        Colision.circleToCircle(circleManifold, circleA, circleB);
+        return circleManifold;
+    }
+
+    @Benchmark
+    public Manifold polygonToPolygon() {
+        Colision.polygonToPolygon(polyManifold, boxA, boxB);
+        return polyManifold;
+    }
+
+    // Mesmo par, mas B anda a cada chamada: o cache de vértices no mundo é refeito
+    // (o custo de um corpo que se mexeu, pago uma vez por step e não por par)
+    @Benchmark
+    public Manifold polygonToPolygonMoving() {
+        boxB.position.x = (boxB.position.x == 0.1) ? 0.1000001 : 0.1;
+        Colision.polygonToPolygon(polyManifold, boxA, boxB);
+        return polyManifold;
+    }
+
+    @Benchmark
+    public int findAxisLeastPenetration() {
+        return Colision.findAxisLeastPenetration(faceIndex, (PolygonShape) boxA.shape, (PolygonShape) boxB.shape,
+                penetration);
+    }
+
+    @Benchmark
+    public Manifold applyImpulse() {
+        // Mesmas velocidades de aproximação toda chamada (senão o contato separa e sai cedo)
+        boxA.velocity.set(0, 0);
+        boxA.angularVelocity = 0;
+        boxB.velocity.set(0, -1);
+        boxB.angularVelocity = 0;
+        impulseManifold.ApplyImpulse();
+        return impulseManifold;
+    }
+}
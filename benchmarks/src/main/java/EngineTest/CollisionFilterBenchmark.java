@@ -0,0 +1,47 @@
+package EngineTest;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Scene.step() com uma pilha de destroços: sem filtro todo destroço colide com os vizinhos;
+// com filtro (categoria DEBRIS fora da própria máscara) eles só batem no chão, e os pares
+// caem no broadphase, antes de qualquer Manifold.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollisionFilterBenchmark {
+
+    private static final int DEBRIS = 1 << 1;
+
+    @Param({ "1000", "5000" })
+    public int bodies;
+
+    @Param({ "false", "true" })
+    public boolean filtered;
+
+    private Scene scene;
+
+    // Cena nova a cada iteração para todas medirem a mesma fase (queda + empilhamento)
+    @Setup(Level.Iteration)
+    public void setup() {
+        scene = SceneFixtures.grid(bodies, SceneFixtures.Kind.MIXED);
+        if (filtered) {
+            for (RigidBody b : scene.bodies) {
+                if (b.invMass != 0) {
+                    b.categoryBits = DEBRIS;
+                    b.maskBits = ~DEBRIS;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public Scene step() {
+        scene.step();
+        return scene;
+    }
+}
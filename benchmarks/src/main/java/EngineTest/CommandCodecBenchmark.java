@@ -0,0 +1,69 @@
+package EngineTest;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Throughput e alocação do protocolo de texto: serialize() e parse() de SPAWN, SYNC e INPUT.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandCodecBenchmark {
+
+    private NetworkCommand.SpawnCommand spawn;
+    private NetworkCommand.SyncCommand sync;
+    private NetworkCommand.InputCommand input;
+
+    private String spawnLine, syncLine, inputLine;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // Pior caso do SPAWN: polígono com 7 vértices
+        Vector2[] vertices = new Vector2[7];
+        for (int i = 0; i < vertices.length; i++) {
+            double angle = i * 2 * Math.PI / vertices.length;
+            vertices[i] = new Vector2(0.75 * Math.cos(angle), 0.75 * Math.sin(angle));
+        }
+        spawn = new NetworkCommand.SpawnCommand(1234, "POLY", 12.34, 5.67, 1.0, vertices);
+        sync = new NetworkCommand.SyncCommand(1234, 12.3456, 5.6789, 0.4321f);
+        sync.seq = 4321;
+        input = new NetworkCommand.InputCommand("POLY", 12.34, 5.67);
+
+        spawnLine = spawn.serialize();
+        syncLine = sync.serialize();
+        inputLine = input.serialize();
+    }
+
+    @Benchmark
+    public String serializeSpawn() {
+        return spawn.serialize();
+    }
+
+    @Benchmark
+    public String serializeSync() {
+        return sync.serialize();
+    }
+
+    @Benchmark
+    public String serializeInput() {
+        return input.serialize();
+    }
+
+    @Benchmark
+    public NetworkCommand parseSpawn() {
+        return NetworkCommand.parse(spawnLine);
+    }
+
+    @Benchmark
+    public NetworkCommand parseSync() {
+        return NetworkCommand.parse(syncLine);
+    }
+
+    @Benchmark
+    public NetworkCommand parseInput() {
+        return NetworkCommand.parse(inputLine);
+    }
+}
@@ -0,0 +1,68 @@
+package EngineTest;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Scene.step() com correntes penduradas: 'links' elos por corrente, presos um no outro pelo
+// tipo de junta do parâmetro. Os elos de uma corrente ficam no mesmo grupo negativo (não
+// colidem entre si), então o custo é o das juntas: initialize() uma vez por step e solve()
+// em cada uma das 10 iterações.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JointBenchmark {
+
+    @Param({ "REVOLUTE", "DISTANCE", "WELD" })
+    public String type;
+
+    @Param({ "100", "1000" })
+    public int joints;
+
+    private static final int LINKS = 20;
+
+    private Scene scene;
+
+    // Cena nova a cada iteração para todas medirem a mesma fase (queda + balanço)
+    @Setup(Level.Iteration)
+    public void setup() {
+        scene = new Scene();
+        scene.deltaTime = Engine.dt;
+        scene.iterations = 10;
+
+        int chains = joints / LINKS;
+        for (int c = 0; c < chains; c++) {
+            double x = c * 25.0, y = 30; // Longe o bastante para duas correntes não se tocarem
+            RigidBody prev = main.createBox(scene, x, y, 0.2, 0.2);
+            prev.invMass = 0;
+            prev.invInertia = 0;
+            for (int i = 0; i < LINKS; i++) {
+                RigidBody link = main.createBox(scene, x + 0.25 + i * 0.5, y, 0.5, 0.1);
+                link.group = -(c + 1);
+                scene.addConstraint(joint(prev, link, x + i * 0.5, y));
+                prev = link;
+            }
+        }
+    }
+
+    private Constraint joint(RigidBody a, RigidBody b, double x, double y) {
+        switch (type) {
+            case "DISTANCE":
+                // Barra do centro de um elo ao do outro
+                return new DistanceJoint(a, b, a.position.x, a.position.y, b.position.x, b.position.y);
+            case "WELD":
+                return new WeldJoint(a, b, x, y);
+            default:
+                return new RevoluteJoint(a, b, x, y);
+        }
+    }
+
+    @Benchmark
+    public Scene step() {
+        scene.step();
+        return scene;
+    }
+}
@@ -0,0 +1,105 @@
+package EngineTest;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Ida e volta pelo Network de verdade (sockets em 127.0.0.1):
+// cliente -> servidor -> cliente, pelo caminho TCP (INPUT) e pelo UDP (SYNC).
+// Inclui serialize, socket, thread de escuta, parse e o commandBuffer dos dois lados.
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.AverageTime, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Dnet.debug=false", "-Djava.awt.headless=true",
+        "-Djava.net.preferIPv4Stack=true" })
+public class LoopbackBenchmark {
+
+    private static final int PORT = 7801;
+    private static final long TIMEOUT_NANOS = 1_000_000_000L;
+
+    private Network server, client;
+    private NetworkCommand.InputCommand input;
+    private NetworkCommand.SyncCommand sync;
+
+    // Ninguém olha os logs aqui
+    private static class SilentListener implements NetworkListener {
+        @Override
+        public void log(String msg) {
+        }
+
+        @Override
+        public void onConnected() {
+        }
+
+        @Override
+        public void onConnectionFailed(String reason) {
+            throw new IllegalStateException(reason);
+        }
+
+        @Override
+        public void onConnectionClosed() {
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        server = new Network(new SilentListener());
+        server.startServer(PORT);
+        Thread.sleep(200);
+
+        client = new Network(new SilentListener());
+        client.connect("127.0.0.1", PORT);
+
+        // Espera o TCP e o UDP_HELLO (o cliente dorme 1s antes do HELLO)
+        long deadline = System.nanoTime() + 5 * TIMEOUT_NANOS;
+        while (server.getClients().isEmpty() || !server.getClients().get(0).hasUDP()) {
+            if (System.nanoTime() > deadline)
+                throw new IllegalStateException("Cliente não registrou o UDP");
+            Thread.sleep(10);
+        }
+
+        input = new NetworkCommand.InputCommand("POLY", 12.34, 5.67);
+        sync = new NetworkCommand.SyncCommand(7, 12.34, 5.67, 0.5f);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public NetworkCommand tcpRoundTrip() {
+        client.sendTCP(input);
+        NetworkCommand atServer = await(server);
+        if (atServer == null)
+            return null;
+
+        server.sendTCP(atServer); // Eco para o cliente
+        return await(client);
+    }
+
+    @Benchmark
+    public NetworkCommand udpRoundTrip() {
+        client.sendUDP(sync);
+        NetworkCommand atServer = await(server);
+        if (atServer == null)
+            return null; // Datagrama perdido: conta como uma operação lenta
+
+        server.sendUDP(atServer);
+        return await(client);
+    }
+
+    private static NetworkCommand await(Network net) {
+        long deadline = System.nanoTime() + TIMEOUT_NANOS;
+        NetworkCommand cmd;
+        while ((cmd = net.pollCommand()) == null) {
+            if (System.nanoTime() > deadline)
+                return null;
+            Thread.onSpinWait();
+        }
+        return cmd;
+    }
+}
@@ -0,0 +1,89 @@
+package EngineTest;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// SAT (Colision) x GJK/EPA (Gjk) por número de vértices: par se sobrepondo, par separado
+// sem e com o palpite do step anterior, e círculo encostando num polígono.
+// O SAT testa todas as faces dos dois polígonos; o GJK só anda pelos suportes, então a
+// diferença deve crescer com o número de vértices.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NarrowphaseBenchmark {
+
+    @Param({ "4", "8", "16", "32", "64" })
+    public int vertices;
+
+    @Param({ "SAT", "GJK" })
+    public Manifold.Backend backend;
+
+    private Manifold overlapping, separated, circle;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Scene scene = new Scene();
+
+        // Par se sobrepondo
+        overlapping = new Manifold(regular(scene, 0, 0, 0.0f), regular(scene, 1.5, 0.2, 0.3f));
+
+        // Par separado na diagonal, mas com as AABBs se tocando (chega no narrowphase)
+        separated = new Manifold(regular(scene, 10, 0, 0.0f), regular(scene, 11.6, 1.6, 0.1f));
+
+        // Círculo entrando um pouco numa face do polígono
+        RigidBody ball = new RigidBody(new Circle(0.5f), 0, 0);
+        ball.shape.initialize();
+        ball.position.set(21.4, 0.1);
+        scene.bodies.add(ball);
+        circle = new Manifold(ball, regular(scene, 20, 0, 0.2f));
+    }
+
+    private RigidBody regular(Scene scene, double x, double y, float angle) {
+        Vector2[] v = new Vector2[vertices];
+        for (int i = 0; i < vertices; i++) {
+            double a = i * 2 * Math.PI / vertices;
+            v[i] = new Vector2(Math.cos(a), Math.sin(a));
+        }
+        PolygonShape poly = new PolygonShape();
+        poly.set(v, vertices);
+
+        RigidBody body = new RigidBody(poly, 0, 0);
+        poly.initialize();
+        body.position.set(x, y);
+        body.setAngle(angle);
+        scene.bodies.add(body);
+        return body;
+    }
+
+    @Benchmark
+    public Manifold overlapping() {
+        overlapping.Solve(backend);
+        return overlapping;
+    }
+
+    // Separado, primeiro step do par
+    @Benchmark
+    public Manifold separatedCold() {
+        separated.pairHint = PairCache.NONE;
+        separated.Solve(backend);
+        return separated;
+    }
+
+    // Separado, com o que o backend deixou no step anterior
+    @Benchmark
+    public Manifold separatedCached() {
+        separated.pairHint = separated.pairResult;
+        separated.Solve(backend);
+        return separated;
+    }
+
+    @Benchmark
+    public Manifold circleToPolygon() {
+        circle.Solve(backend);
+        return circle;
+    }
+}
@@ -0,0 +1,125 @@
+package EngineTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Consultas do Scene num cenário com 'statics' estáticos e 'dynamics' dinâmicos espalhados:
+// raio mais perto pelo broadphase x varrendo a lista inteira, consulta de ponto, e um lote de
+// 4096 raios em série x dividido entre as threads. rebuildAndRaycast paga a sincronização
+// (dinâmicos reordenados em x) antes do raio, como a primeira consulta depois de um step.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QueryBenchmark {
+
+    private static final int RAYS = 4096;
+    private static final double SIZE = 200;
+
+    @Param({ "1000", "10000" })
+    public int statics;
+
+    @Param({ "200", "5000" })
+    public int dynamics;
+
+    private Scene scene;
+    private final double[] rays = new double[RAYS * 5];
+    private final RaycastHit[] hits = new RaycastHit[RAYS];
+    private final RaycastHit scratch = new RaycastHit();
+    private final List<RigidBody> found = new ArrayList<>();
+    private int next = 0;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        scene = new Scene();
+        scene.deltaTime = Engine.dt;
+        scene.iterations = 10;
+
+        Random r = new Random(1);
+        for (int i = 0; i < statics + dynamics; i++) {
+            double x = r.nextDouble() * SIZE, y = r.nextDouble() * SIZE;
+            RigidBody b = (i % 2 == 0) ? main.createBox(scene, x, y, 1, 1) : main.createCircle(scene, x, y, 0.5);
+            b.position.set(x, y);
+            if (i < statics) {
+                b.invMass = 0;
+                b.invInertia = 0;
+            }
+        }
+        scene.step();
+
+        for (int k = 0; k < RAYS; k++) {
+            double a = r.nextDouble() * 2 * Math.PI;
+            rays[k * 5] = r.nextDouble() * SIZE;
+            rays[k * 5 + 1] = r.nextDouble() * SIZE;
+            rays[k * 5 + 2] = Math.cos(a);
+            rays[k * 5 + 3] = Math.sin(a);
+            rays[k * 5 + 4] = 20;
+        }
+    }
+
+    private int nextRay() {
+        next = (next + 1) % RAYS;
+        return next * 5;
+    }
+
+    @Benchmark
+    public RaycastHit raycast() {
+        int r = nextRay();
+        return scene.raycast(rays[r], rays[r + 1], rays[r + 2], rays[r + 3], rays[r + 4], Scene.ALL_LAYERS);
+    }
+
+    @Benchmark
+    public RaycastHit rebuildAndRaycast() {
+        int r = nextRay();
+        scene.invalidateQueries();
+        return scene.raycast(rays[r], rays[r + 1], rays[r + 2], rays[r + 3], rays[r + 4], Scene.ALL_LAYERS);
+    }
+
+    // O que um chamador faria sem a API: teste exato em todos os corpos
+    @Benchmark
+    public RaycastHit raycastBruteForce() {
+        int r = nextRay();
+        RaycastHit best = null;
+        double max = rays[r + 4];
+        for (int i = 0; i < scene.bodies.size(); i++) {
+            RigidBody b = scene.bodies.get(i);
+            b.shape.updateWorld();
+            if (SceneQuery.rayShape(b, rays[r], rays[r + 1], rays[r + 2], rays[r + 3], max, scratch)) {
+                max = scratch.distance;
+                best = scratch;
+            }
+        }
+        return best;
+    }
+
+    @Benchmark
+    public int queryPoint() {
+        int r = nextRay();
+        found.clear();
+        return scene.queryPoint(rays[r], rays[r + 1], Scene.ALL_LAYERS, found);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAYS)
+    public int batchSequential() {
+        int n = 0;
+        for (int k = 0; k < RAYS; k++) {
+            int r = k * 5;
+            if (scene.raycast(rays[r], rays[r + 1], rays[r + 2], rays[r + 3], rays[r + 4], Scene.ALL_LAYERS) != null)
+                n++;
+        }
+        return n;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(RAYS)
+    public int batchParallel() {
+        return scene.raycastBatch(rays, RAYS, Scene.ALL_LAYERS, hits);
+    }
+}
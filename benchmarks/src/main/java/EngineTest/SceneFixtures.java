@@ -0,0 +1,73 @@
+package EngineTest;
+
+// Cenas prontas para os benchmarks: N corpos numa grade em cima de um chão estático.
+public class SceneFixtures {
+
+    public enum Kind {
+        CIRCLES, BOXES, POLYS, MIXED
+    }
+
+    // Espaçamento da grade em metros (o construtor do RigidBody trunca para int)
+    private static final int SPACING = 2;
+
+    public static Scene grid(int count, Kind kind) {
+        Scene scene = new Scene();
+        scene.deltaTime = Engine.dt;
+        scene.iterations = 10;
+
+        int cols = (int) Math.ceil(Math.sqrt(count));
+
+        // Chão largo o bastante para a grade inteira
+        RigidBody floor = main.createBox(scene, cols * SPACING / 2.0, 0, cols * SPACING + 4, 1);
+        floor.invMass = 0;
+        floor.invInertia = 0;
+        floor.restitution = 0.2f;
+
+        for (int i = 0; i < count; i++) {
+            double x = 1 + (i % cols) * SPACING;
+            double y = 2 + (i / cols) * SPACING;
+            add(scene, kind, i, x, y);
+        }
+        return scene;
+    }
+
+    // Pilha de caixas (uma em cima da outra), usada nos testes de estabilidade
+    public static Scene stack(int height) {
+        Scene scene = new Scene();
+        scene.deltaTime = Engine.dt;
+        scene.iterations = 10;
+
+        RigidBody floor = main.createBox(scene, 0, 0, 20, 1);
+        floor.invMass = 0;
+        floor.invInertia = 0;
+
+        for (int i = 0; i < height; i++) {
+            RigidBody box = main.createBox(scene, 0, 0, 1, 1);
+            box.position.set(0, 1.0 + i * 1.0);
+        }
+        return scene;
+    }
+
+    private static void add(Scene scene, Kind kind, int i, double x, double y) {
+        switch (kind) {
+            case CIRCLES:
+                main.createCircle(scene, x, y, 0.6);
+                break;
+            case BOXES:
+                main.createBox(scene, x, y, 1, 1);
+                break;
+            case POLYS:
+                main.createRandomPoly(scene, x, y);
+                break;
+            case MIXED:
+                // Mesma mistura dos cliques na main: polígonos aleatórios, caixas e bolas
+                if (i % 3 == 0)
+                    main.createRandomPoly(scene, x, y);
+                else if (i % 3 == 1)
+                    main.createBox(scene, x, y, 1, 1);
+                else
+                    main.createCircle(scene, x, y, 0.6);
+                break;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package EngineTest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Checkpoint da cena: arquivo (FileChannel / mmap) e em memória (o que o rollback usaria).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SceneSnapshotBenchmark {
+
+    @Param({ "1000", "10000" })
+    public int bodies;
+
+    private Scene scene;
+    private Scene target;
+    private Path file;
+    private ByteBuffer memory;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        scene = SceneFixtures.grid(bodies, SceneFixtures.Kind.MIXED);
+        target = new Scene();
+        file = Files.createTempFile("scene", ".snap");
+        SceneSnapshot.save(scene, file);
+
+        memory = ByteBuffer.allocateDirect(SceneSnapshot.maxBytes(scene));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public long saveFile() throws IOException {
+        return SceneSnapshot.save(scene, file);
+    }
+
+    @Benchmark
+    public Scene restoreFile() throws IOException {
+        SceneSnapshot.restore(target, file);
+        return target;
+    }
+
+    @Benchmark
+    public Scene writeReadMemory() {
+        memory.clear();
+        SceneSnapshot.write(scene, memory);
+        memory.flip();
+        SceneSnapshot.read(target, memory);
+        return target;
+    }
+}
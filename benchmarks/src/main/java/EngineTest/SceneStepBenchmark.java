@@ -0,0 +1,36 @@
+package EngineTest;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Custo de um Scene.step() completo (broadphase por sort and sweep + BVH dos estáticos, e o
+// solver) por tamanho de cena.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SceneStepBenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    public int bodies;
+
+    @Param({ "CIRCLES", "BOXES", "POLYS", "MIXED" })
+    public SceneFixtures.Kind kind;
+
+    private Scene scene;
+
+    // Cena nova a cada iteração para todas medirem a mesma fase (queda + empilhamento)
+    @Setup(Level.Iteration)
+    public void setup() {
+        scene = SceneFixtures.grid(bodies, kind);
+    }
+
+    @Benchmark
+    public Scene step() {
+        scene.step();
+        return scene;
+    }
+}
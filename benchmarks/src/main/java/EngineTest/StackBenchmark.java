@@ -0,0 +1,158 @@
+package EngineTest;
+
+import java.nio.ByteBuffer;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Pilhas de caixas: custo do step com mais iterações x sub-stepping, e se a pilha fica em pé.
+// 'solver' = iterN (N iterações, 1 passo) ou subN (N sub-passos de 1 iteração).
+//
+// Cada operação é 1s simulado (WINDOW steps) a partir da mesma pilha assentada (SETTLE
+// steps, guardada em SceneSnapshot). O tempo sai para todas as configurações; a
+// estabilidade vai à parte, nos contadores do Stability: 'windows' janelas medidas, das
+// quais 'fallen' terminaram com a pilha caída. Uma pilha caída é outro regime, com menos
+// contatos, então o tempo só compara configurações com fallen = 0.
+//
+// Medido com o main() abaixo (600 ticks), só ficam em pé: altura 3 com sub4/8/16, altura 5
+// com sub8/16 e altura 10 com sub16; 20 caixas caem em todos os modos. O modo clássico
+// nunca entra em repouso (as caixas tremem a ~0.2 m/s): com iter40, 3 caixas passam pela
+// janela medida mas caem antes dos 10s, e com 10 ou 20 iterações nem isso.
+//
+// A tabela completa (afundamento, desvio, penetração) sai do main():
+// java -cp benchmarks/target/benchmarks.jar EngineTest.StackBenchmark [ticks [alturas...]]
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StackBenchmark {
+
+    private static final String[] SOLVERS = { "iter10", "iter20", "iter40", "sub4", "sub8", "sub16" };
+    private static final int[] HEIGHTS = { 3, 5, 10, 20 };
+
+    private static final int SETTLE = 120;
+    private static final int WINDOW = 60;
+    private static final double FALLEN = 0.1; // Desvio lateral (m) a partir do qual a pilha caiu
+
+    @Param({ "3", "5", "10" })
+    public int height;
+
+    @Param({ "iter10", "iter20", "iter40", "sub4", "sub8", "sub16" })
+    public String solver;
+
+    // Estabilidade, ao lado do tempo no resultado do JMH
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Stability {
+        public long windows;
+        public long fallen;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            windows = 0;
+            fallen = 0;
+        }
+    }
+
+    private Scene scene;
+    private byte[] settled;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        scene = stack(height, solver);
+        scene.profiler.enabled = false;
+        scene.stepTo(SETTLE);
+
+        ByteBuffer buf = ByteBuffer.allocate(SceneSnapshot.maxBytes(scene));
+        SceneSnapshot.write(scene, buf);
+        settled = new byte[buf.position()];
+        buf.flip().get(settled);
+    }
+
+    @Setup(Level.Invocation)
+    public void restore() {
+        SceneSnapshot.read(scene, ByteBuffer.wrap(settled));
+    }
+
+    // Fora do tempo medido: a pilha terminou a janela em pé?
+    @TearDown(Level.Invocation)
+    public void check(Stability stability) {
+        stability.windows++;
+        if (drift(scene) > FALLEN)
+            stability.fallen++;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WINDOW)
+    public Scene step() {
+        for (int i = 0; i < WINDOW; i++) {
+            scene.step();
+        }
+        return scene;
+    }
+
+    // Maior desvio lateral de uma caixa (o chão é o corpo 0)
+    static double drift(Scene scene) {
+        double drift = 0;
+        for (int i = 1; i < scene.bodies.size(); i++) {
+            drift = Math.max(drift, Math.abs(scene.bodies.get(i).position.x));
+        }
+        return drift;
+    }
+
+    static Scene stack(int height, String solver) {
+        Scene scene = SceneFixtures.stack(height);
+        if (solver.startsWith("iter")) {
+            scene.iterations = Integer.parseInt(solver.substring(4));
+            scene.substeps = 1;
+        } else if (solver.startsWith("sub")) {
+            scene.substeps = Integer.parseInt(solver.substring(3));
+        } else {
+            throw new IllegalArgumentException("solver: " + solver);
+        }
+        return scene;
+    }
+
+    // --- ESTABILIDADE ---
+    // Depois de 'ticks' steps: quanto o topo afundou, o maior desvio lateral de uma caixa
+    // e a maior penetração entre contatos. Desvio > FALLEN = a pilha caiu.
+    public static void main(String[] args) {
+        int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 600;
+        int[] heights = HEIGHTS;
+        if (args.length > 1) {
+            heights = new int[args.length - 1];
+            for (int i = 1; i < args.length; i++) {
+                heights[i - 1] = Integer.parseInt(args[i]);
+            }
+        }
+
+        System.out.println(String.format(Locale.US, "%-7s %6s %10s %10s %10s %10s %8s",
+                "solver", "height", "step(us)", "sink(m)", "drift(m)", "maxPen(m)", "caiu"));
+        for (int height : heights) {
+            for (String solver : SOLVERS) {
+                Scene scene = stack(height, solver);
+                scene.profiler.enabled = false;
+
+                long start = System.nanoTime();
+                scene.stepTo(ticks);
+                double stepMicros = (System.nanoTime() - start) / 1e3 / ticks;
+
+                RigidBody top = scene.bodies.get(scene.bodies.size() - 1);
+                double sink = (1.0 + (height - 1) * 1.0) - top.position.y;
+
+                double drift = drift(scene);
+
+                double maxPen = 0;
+                for (Manifold m : scene.contacts) {
+                    maxPen = Math.max(maxPen, m.penetration);
+                }
+
+                System.out.println(String.format(Locale.US, "%-7s %6d %10.1f %10.3f %10.3f %10.3f %8s",
+                        solver, height, stepMicros, sink, drift, maxPen, drift > FALLEN ? "sim" : "-"));
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package EngineTest;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Scene.step() com um cenário estático grande (grade de caixas fixas) e poucos dinâmicos
+// caindo num canto. Com a BVH dos estáticos o custo quase não deve subir com 'statics':
+// só os estáticos perto de algum dinâmico entram no broadphase, e o resto do step só passa
+// pelos dinâmicos (a separação é refeita quando a lista muda, não a cada step).
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StaticWorldBenchmark {
+
+    @Param({ "0", "1000", "5000", "20000" })
+    public int statics;
+
+    @Param({ "100", "500" })
+    public int dynamics;
+
+    private Scene scene;
+
+    // Cena nova a cada iteração para todas medirem a mesma fase (queda + empilhamento)
+    @Setup(Level.Iteration)
+    public void setup() {
+        scene = SceneFixtures.grid(dynamics, SceneFixtures.Kind.MIXED);
+
+        // Cenário à direita da grade, longe dos dinâmicos
+        int cols = (int) Math.ceil(Math.sqrt(statics));
+        for (int i = 0; i < statics; i++) {
+            RigidBody b = main.createBox(scene, 200 + (i % cols) * 3, (i / cols) * 3, 2, 1);
+            b.invMass = 0;
+            b.invInertia = 0;
+        }
+    }
+
+    @Benchmark
+    public Scene step() {
+        scene.step();
+        return scene;
+    }
+}
@@ -0,0 +1,115 @@
+package EngineTest;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Support mapping e SAT por número de vértices (polígonos regulares de 3 a 64 lados):
+// varredura linear x subida pelos vizinhos, e par separado com/sem o eixo do step anterior.
+// O ponto de corte do PolygonShape.hillClimbMinVertices sai daqui.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SupportBenchmark {
+
+    public enum Search {
+        LINEAR, HILL_CLIMB
+    }
+
+    @Param({ "3", "4", "6", "8", "12", "16", "32", "64" })
+    public int vertices;
+
+    @Param({ "LINEAR", "HILL_CLIMB" })
+    public Search search;
+
+    private PolygonShape polyA, polyB;
+    private RigidBody sepA, sepB;
+    private Manifold separated;
+    private final float[] penetration = { 0 };
+    private final int[] faceIndex = { 0 };
+
+    // Direção girando um pouco por chamada (coerência de frame a frame)
+    private final Vector2 dir = new Vector2(1, 0);
+    private double angle = 0;
+    private int lastSupport = 0;
+    private int threshold;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        threshold = PolygonShape.hillClimbMinVertices;
+        PolygonShape.hillClimbMinVertices = (search == Search.LINEAR) ? Integer.MAX_VALUE : 3;
+
+        Scene scene = new Scene();
+
+        // Par se sobrepondo (SAT roda todas as faces dos dois)
+        polyA = (PolygonShape) regular(scene, 0, 0, 0.0f).shape;
+        polyB = (PolygonShape) regular(scene, 1.5, 0.2, 0.3f).shape;
+
+        // Par separado na diagonal, mas com as AABBs se tocando (chega no narrowphase)
+        sepA = regular(scene, 10, 0, 0.0f);
+        sepB = regular(scene, 11.6, 1.6, 0.1f);
+        separated = new Manifold(sepA, sepB);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        PolygonShape.hillClimbMinVertices = threshold;
+    }
+
+    private RigidBody regular(Scene scene, double x, double y, float angle) {
+        Vector2[] v = new Vector2[vertices];
+        for (int i = 0; i < vertices; i++) {
+            double a = i * 2 * Math.PI / vertices;
+            v[i] = new Vector2(Math.cos(a), Math.sin(a));
+        }
+        PolygonShape poly = new PolygonShape();
+        poly.set(v, vertices);
+
+        RigidBody body = new RigidBody(poly, 0, 0);
+        poly.initialize();
+        body.position.set(x, y);
+        body.setAngle(angle);
+        scene.bodies.add(body);
+        return body;
+    }
+
+    @Benchmark
+    public int support() {
+        angle += 0.05;
+        dir.set(Math.cos(angle), Math.sin(angle));
+        lastSupport = PolygonShape.supportIndex(polyA.getWorldVertices(), polyA.m_vertexCount, dir.x, dir.y,
+                lastSupport);
+        return lastSupport;
+    }
+
+    @Benchmark
+    public int findAxisLeastPenetration() {
+        return Colision.findAxisLeastPenetration(faceIndex, polyA, polyB, penetration);
+    }
+
+    @Benchmark
+    public Manifold polygonToPolygon() {
+        Manifold m = new Manifold(polyA.body, polyB.body);
+        Colision.polygonToPolygon(m, polyA.body, polyB.body);
+        return m;
+    }
+
+    // Separado, SAT completo (primeiro step do par)
+    @Benchmark
+    public Manifold separatedCold() {
+        separated.pairHint = PairCache.NONE;
+        Colision.polygonToPolygon(separated, sepA, sepB);
+        return separated;
+    }
+
+    // Separado, com o eixo que o separou no step anterior
+    @Benchmark
+    public Manifold separatedCached() {
+        separated.pairHint = separated.pairResult;
+        Colision.polygonToPolygon(separated, sepA, sepB);
+        return separated;
+    }
+}
@@ -0,0 +1,177 @@
+package EngineTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+// Consultas da cena (BVH dos estáticos + varredura dos dinâmicos) contra o teste exato de
+// cada corpo da lista, um por um
+class SceneQueryTest {
+
+    private Scene scene;
+    private Random r;
+
+    @BeforeEach
+    void setUp() {
+        scene = new Scene();
+        scene.deltaTime = Engine.dt;
+        scene.iterations = 10;
+        scene.setDeterministic(5);
+        r = new Random(11);
+        for (int i = 0; i < 300; i++) {
+            double x = r.nextDouble() * 60, y = r.nextDouble() * 60;
+            RigidBody b = switch (i % 3) {
+                case 0 -> main.createRandomPoly(scene, x, y);
+                case 1 -> main.createBox(scene, x, y, 1 + r.nextInt(3), 1);
+                default -> main.createCircle(scene, x, y, 0.3 + r.nextDouble());
+            };
+            b.position.set(x, y);
+            b.setAngle((float) (r.nextDouble() * 6));
+            if (i % 2 == 0) {
+                b.invMass = 0;
+                b.invInertia = 0;
+            }
+            b.layer = 1 << (i % 3);
+        }
+    }
+
+    private static int mask(int k) {
+        return k % 4 == 0 ? Scene.ALL_LAYERS : 1 << (k % 3);
+    }
+
+    // Raio contra todos os corpos; empate de distância fica com o primeiro da lista
+    private RaycastHit bruteRaycast(double ox, double oy, double dx, double dy, double maxDistance, int mask) {
+        RaycastHit best = null, h = new RaycastHit();
+        for (RigidBody b : scene.bodies) {
+            if ((b.layer & mask) == 0)
+                continue;
+            b.shape.updateWorld();
+            if (SceneQuery.rayShape(b, ox, oy, dx, dy, maxDistance, h) && (best == null || h.distance < best.distance)) {
+                best = h;
+                h = new RaycastHit();
+            }
+        }
+        return best;
+    }
+
+    private List<RigidBody> bruteBox(double x0, double y0, double x1, double y1, int mask) {
+        List<RigidBody> out = new ArrayList<>();
+        for (RigidBody b : scene.bodies) {
+            Shape s = b.shape;
+            s.updateWorld();
+            if ((b.layer & mask) == 0 || s.minX > x1 || s.maxX < x0 || s.minY > y1 || s.maxY < y0)
+                continue;
+            if (SceneQuery.boxShape(b, (x0 + x1) * 0.5, (y0 + y1) * 0.5, (x1 - x0) * 0.5, (y1 - y0) * 0.5))
+                out.add(b);
+        }
+        return out;
+    }
+
+    private List<RigidBody> brutePoint(double x, double y, int mask) {
+        List<RigidBody> out = new ArrayList<>();
+        for (RigidBody b : scene.bodies) {
+            b.shape.updateWorld();
+            if ((b.layer & mask) != 0 && SceneQuery.containsPoint(b, x, y))
+                out.add(b);
+        }
+        return out;
+    }
+
+    private void checkAll(int queries) {
+        for (int k = 0; k < queries; k++) {
+            int mask = mask(k);
+
+            double ox = r.nextDouble() * 60, oy = r.nextDouble() * 60, angle = r.nextDouble() * 6.3;
+            double dx = Math.cos(angle), dy = Math.sin(angle);
+            RaycastHit got = scene.raycast(ox, oy, dx, dy, 30, mask);
+            RaycastHit ref = bruteRaycast(ox, oy, dx, dy, 30, mask);
+            assertEquals(ref == null, got == null, "raio " + k);
+            if (ref != null) {
+                assertSame(ref.body, got.body, "raio " + k);
+                assertEquals(ref.distance, got.distance, 1e-12, "raio " + k);
+            }
+
+            double x = r.nextDouble() * 60, y = r.nextDouble() * 60;
+            double w = r.nextDouble() * 3, h = r.nextDouble() * 3;
+            List<RigidBody> box = new ArrayList<>();
+            scene.queryAABB(x, y, x + w, y + h, mask, box);
+            assertEquals(bruteBox(x, y, x + w, y + h, mask), box, "caixa " + k);
+
+            List<RigidBody> point = new ArrayList<>();
+            scene.queryPoint(x, y, mask, point);
+            assertEquals(brutePoint(x, y, mask), point, "ponto " + k);
+        }
+    }
+
+    @Test
+    void matchesBruteForceAtRest() {
+        checkAll(1000);
+    }
+
+    @Test
+    void matchesBruteForceAfterStepping() {
+        scene.stepTo(60); // Os dinâmicos caíram e andaram: a varredura é refeita
+        checkAll(1000);
+    }
+
+    @Test
+    void seesTeleportAndMassChange() {
+        checkAll(10);
+        RigidBody moved = scene.bodies.get(1); // Dinâmico
+        moved.position.set(200, 200);
+        scene.invalidateQueries();
+        RigidBody wall = scene.bodies.get(0); // Estático movido fora do step
+        wall.position.set(-50, -50);
+        RigidBody frozen = scene.bodies.get(3); // Dinâmico que vira estático, e muda de lugar
+        frozen.invMass = 0;
+        frozen.invInertia = 0;
+        frozen.position.set(-80, -80);
+        scene.invalidateStatics();
+
+        List<RigidBody> out = new ArrayList<>();
+        scene.queryPoint(200, 200, Scene.ALL_LAYERS, out);
+        assertEquals(List.of(moved), out);
+        out.clear();
+        scene.queryPoint(-50, -50, Scene.ALL_LAYERS, out);
+        assertEquals(List.of(wall), out);
+        out.clear();
+        scene.queryPoint(-80, -80, Scene.ALL_LAYERS, out);
+        assertEquals(List.of(frozen), out);
+        checkAll(200);
+
+        // O step também vê o estático novo: nada cai através dele
+        RigidBody ball = main.createCircle(scene, -80, -76, 0.5);
+        scene.stepTo(scene.tick + 120);
+        assertTrue(ball.position.y > -80, "caiu através: y=" + ball.position.y);
+    }
+
+    @Test
+    void batchMatchesSingleRays() {
+        int count = 2000;
+        double[] rays = new double[5 * count];
+        for (int k = 0; k < count; k++) {
+            double angle = r.nextDouble() * 6.3;
+            rays[5 * k] = r.nextDouble() * 60;
+            rays[5 * k + 1] = r.nextDouble() * 60;
+            rays[5 * k + 2] = Math.cos(angle) * 3; // Direção não precisa ser unitária
+            rays[5 * k + 3] = Math.sin(angle) * 3;
+            rays[5 * k + 4] = 20;
+        }
+        RaycastHit[] hits = new RaycastHit[count];
+        scene.raycastBatch(rays, count, Scene.ALL_LAYERS, hits);
+        for (int k = 0; k < count; k++) {
+            RaycastHit h = scene.raycast(rays[5 * k], rays[5 * k + 1], rays[5 * k + 2], rays[5 * k + 3], rays[5 * k + 4],
+                    Scene.ALL_LAYERS);
+            assertEquals(h == null, hits[k] == null, "raio " + k);
+            if (h != null) {
+                assertSame(h.body, hits[k].body, "raio " + k);
+                assertEquals(h.distance, hits[k].distance, "raio " + k);
+            }
+        }
+    }
+}
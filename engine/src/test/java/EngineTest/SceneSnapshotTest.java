@@ -0,0 +1,85 @@
+package EngineTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SceneSnapshotTest {
+
+    // Chão, uma junta e uma pilha misturada caindo (o RNG da cena escolhe os polígonos)
+    private static Scene scene() {
+        Scene scene = new Scene();
+        scene.deltaTime = Engine.dt;
+        scene.iterations = 10;
+        scene.setDeterministic(5);
+        main.initDemo(scene);
+        for (int i = 0; i < 30; i++) {
+            double x = 2 + (i % 8) * 2.2, y = 4 + (i / 8) * 2.2;
+            switch (i % 3) {
+                case 0 -> main.createRandomPoly(scene, x, y);
+                case 1 -> main.createBox(scene, x, y, 1, 1);
+                default -> main.createCircle(scene, x, y, 0.5);
+            }
+        }
+        RigidBody anchor = main.createBox(scene, 30, 12, 0.2, 0.2);
+        anchor.invMass = 0;
+        anchor.invInertia = 0;
+        RigidBody link = main.createBox(scene, 31, 12, 1, 0.2);
+        scene.addConstraint(new DistanceJoint(anchor, link, anchor.position.x, anchor.position.y,
+                link.position.x, link.position.y));
+        return scene;
+    }
+
+    private static Scene roundTrip(Scene scene) {
+        ByteBuffer buf = ByteBuffer.allocate(SceneSnapshot.maxBytes(scene));
+        SceneSnapshot.write(scene, buf);
+        buf.flip();
+        Scene restored = new Scene();
+        SceneSnapshot.read(restored, buf);
+        assertFalse(buf.hasRemaining());
+        return restored;
+    }
+
+    @Test
+    void restoredSceneKeepsStepping() {
+        Scene scene = scene();
+        scene.stepTo(50);
+        Scene restored = roundTrip(scene);
+
+        assertEquals(50, restored.tick);
+        assertEquals(scene.bodies.size(), restored.bodies.size());
+        assertEquals(scene.getConstraintCount(), restored.getConstraintCount());
+        assertEquals(scene.worldHash.get(50), restored.worldHash.get(50));
+
+        // Mesmo estado (RNG incluso) = mesmo mundo bit a bit dali para frente
+        scene.stepTo(200);
+        restored.stepTo(200);
+        assertEquals(scene.worldHash.get(200), restored.worldHash.get(200));
+        assertEquals(scene.random.nextLong(), restored.random.nextLong());
+    }
+
+    @Test
+    void fileRoundTrip(@TempDir Path dir) throws IOException {
+        Scene scene = scene();
+        scene.stepTo(20);
+        Path file = dir.resolve("scene.snap");
+        SceneSnapshot.save(scene, file);
+
+        Scene loaded = SceneSnapshot.load(file);
+        scene.stepTo(120);
+        loaded.stepTo(120);
+        assertEquals(scene.worldHash.get(120), loaded.worldHash.get(120));
+    }
+
+    @Test
+    void rejectsWrongMagic() {
+        ByteBuffer buf = ByteBuffer.allocate(64);
+        buf.putInt(0x12345678).flip();
+        assertThrows(IllegalArgumentException.class, () -> SceneSnapshot.read(new Scene(), buf));
+    }
+}
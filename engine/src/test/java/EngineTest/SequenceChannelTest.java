@@ -0,0 +1,112 @@
+package EngineTest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+class SequenceChannelTest {
+
+    private static final int MOD = SequenceChannel.SEQ_MODULO;
+
+    // Um datagrama com um corpo só, como o Network faz: receive() e depois accept()
+    private static boolean deliver(SequenceChannel c, int bodyId, int seq) {
+        c.receive(seq);
+        return c.accept(bodyId, seq);
+    }
+
+    @Test
+    void sequenceGreaterThanWrapsAround() {
+        assertTrue(SequenceChannel.sequenceGreaterThan(0, MOD - 1));
+        assertTrue(SequenceChannel.sequenceGreaterThan(10, MOD - 10));
+        assertFalse(SequenceChannel.sequenceGreaterThan(MOD - 1, 0));
+        assertEquals(2, SequenceChannel.distance(1, MOD - 1));
+    }
+
+    @Test
+    void nextWrapsToZero() {
+        SequenceChannel c = new SequenceChannel();
+        for (int i = 0; i < MOD - 1; i++) {
+            c.next();
+        }
+        assertEquals(MOD - 1, c.next());
+        assertEquals(0, c.next());
+    }
+
+    @Test
+    void duplicateIsDropped() {
+        SequenceChannel c = new SequenceChannel();
+        assertTrue(deliver(c, 1, 5));
+        assertFalse(deliver(c, 1, 5));
+        assertEquals(1, c.getDroppedPackets());
+        assertEquals(0, c.getReorderedPackets());
+    }
+
+    @Test
+    void olderStateForSameBodyIsDropped() {
+        SequenceChannel c = new SequenceChannel();
+        assertTrue(deliver(c, 1, 10));
+        assertTrue(deliver(c, 2, 8)); // Chegou atrasado, mas o corpo 2 não tinha nada
+        assertFalse(deliver(c, 1, 9));
+        assertEquals(2, c.getReorderedPackets());
+        assertEquals(1, c.getDroppedPackets());
+    }
+
+    @Test
+    void acceptsAcrossWraparound() {
+        SequenceChannel c = new SequenceChannel();
+        assertTrue(deliver(c, 1, MOD - 2));
+        assertTrue(deliver(c, 1, MOD - 1));
+        assertTrue(deliver(c, 1, 0));
+        assertTrue(deliver(c, 1, 1));
+        assertFalse(deliver(c, 1, MOD - 1)); // Antes do wrap: velho, não "mais novo"
+        assertEquals(1, c.getDroppedPackets());
+    }
+
+    @Test
+    void idleBodyStillComparesAfterHalfCycle() {
+        SequenceChannel c = new SequenceChannel();
+        int seq = 0;
+        assertTrue(deliver(c, 1, seq));
+        // O corpo 1 fica parado por mais de meia volta enquanto outro corpo recebe
+        for (int i = 0; i < 40000; i++) {
+            seq = (seq + 1) % MOD;
+            assertTrue(deliver(c, 2, seq));
+        }
+        seq = (seq + 1) % MOD;
+        assertTrue(deliver(c, 1, seq));
+        assertFalse(deliver(c, 1, (seq - 5 + MOD) % MOD));
+
+        // Mais uma volta inteira e um pouco: continua certo
+        for (int i = 0; i < 100000; i++) {
+            seq = (seq + 1) % MOD;
+            deliver(c, 2, seq);
+        }
+        seq = (seq + 1) % MOD;
+        assertTrue(deliver(c, 1, seq));
+        assertEquals(1, c.getDroppedPackets());
+    }
+
+    @Test
+    void ackCoversPreviousAcrossWraparound() {
+        SequenceChannel c = new SequenceChannel();
+        assertNull(c.pollAck());
+        c.receive(MOD - 1);
+        c.receive(1); // O 0 se perdeu
+        assertEquals("ACK:1:2:0:0", c.pollAck()); // Bit 1: recebemos 1 - 2 = MOD - 1
+        assertNull(c.pollAck());
+
+        c.receive(0); // Chegou depois do 1
+        assertEquals("ACK:1:3:1:0", c.pollAck());
+    }
+
+    @Test
+    void resetForgetsEverything() {
+        SequenceChannel c = new SequenceChannel();
+        deliver(c, 1, 100);
+        deliver(c, 1, 100);
+        c.reset();
+        assertTrue(deliver(c, 1, 3));
+        assertEquals(1, c.getReceivedPackets());
+        assertEquals(0, c.getDroppedPackets());
+    }
+}